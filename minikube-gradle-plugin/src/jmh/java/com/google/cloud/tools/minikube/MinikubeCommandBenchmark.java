@@ -0,0 +1,163 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube;
+
+import com.google.cloud.tools.minikube.util.CommandExecutorFactory;
+import com.google.cloud.tools.minikube.util.ProfileLock;
+import com.google.cloud.tools.minikube.util.SimulatedMinikube;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.gradle.api.Project;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what the plugin adds on top of minikube itself: the latency of a command run through the
+ * plugin against {@link SimulatedMinikube}, next to the latency of running the simulated minikube
+ * directly. The plugin overhead is the difference between the percentiles of {@link #plugin} and
+ * {@link #minikube}.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MinikubeCommandBenchmark {
+
+  @Param({"start", "docker-env", "stop", "delete"})
+  public String command;
+
+  @Param({"0"})
+  public long fakeDelayMillis;
+
+  @Param({"0", "500"})
+  public int fakeOutputLines;
+
+  private final Logger logger = Logging.getLogger(MinikubeCommandBenchmark.class);
+
+  private Path benchmarkDirectory;
+  private Project project;
+  private String minikube;
+  /** No profile configuration exists here, so start never finds the profile already running. */
+  private Path minikubeHome;
+
+  private List<String> minikubeCommand;
+
+  private CommandExecutorFactory commandExecutorFactory;
+  private MinikubeExtension minikubeExtension;
+  private MinikubeCommandRunner commandRunner;
+
+  @Setup
+  public void setUp() throws IOException {
+    benchmarkDirectory = Files.createTempDirectory("minikube-benchmark");
+    project = ProjectBuilder.builder().withProjectDir(benchmarkDirectory.toFile()).build();
+    minikube =
+        SimulatedMinikube.create(benchmarkDirectory, fakeDelayMillis, fakeOutputLines).toString();
+    minikubeHome = benchmarkDirectory.resolve(".minikube");
+  }
+
+  /** Gives every invocation the build-wide state a new build would. */
+  @Setup(Level.Invocation)
+  public void setUpInvocation() {
+    commandExecutorFactory =
+        new CommandExecutorFactory(logger)
+            .setProfileLockDirectory(ProfileLock.getLockDirectory(minikubeHome));
+    MinikubeClusterService clusterService = new MinikubeClusterService(commandExecutorFactory);
+    minikubeExtension =
+        new MinikubeExtension(
+            project.getObjects(),
+            project.getProviders(),
+            project.container(MinikubeProfileConfiguration.class),
+            benchmarkDirectory,
+            commandExecutorFactory);
+    minikubeExtension.setClusterService(clusterService);
+    minikubeExtension.setMinikube(minikube);
+    minikubeExtension.setMinikubeHome(minikubeHome);
+    commandRunner =
+        new MinikubeCommandRunner(minikube, command, new String[0], commandExecutorFactory, logger)
+            .setClusterService(clusterService)
+            .setMinikubeHome(minikubeHome);
+    minikubeCommand =
+        "docker-env".equals(command)
+            ? Arrays.asList(minikube, "docker-env", "--shell=none", "--profile=")
+            : commandRunner.buildMinikubeCommand();
+  }
+
+  @TearDown(Level.Invocation)
+  public void tearDownInvocation() {
+    commandExecutorFactory.shutdown();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(benchmarkDirectory)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /** Runs the command through the plugin, as its task or the docker environment getter would. */
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public Map<String, String> plugin() throws IOException, InterruptedException {
+    if ("docker-env".equals(command)) {
+      return minikubeExtension.getDockerEnv();
+    }
+    commandRunner.run();
+    return null;
+  }
+
+  /** Runs the command the plugin runs without it, reading and discarding its output. */
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public void minikube() throws IOException, InterruptedException {
+    Process process = new ProcessBuilder(minikubeCommand).redirectErrorStream(true).start();
+    byte[] buffer = new byte[8192];
+    try (InputStream inputStream = process.getInputStream()) {
+      while (inputStream.read(buffer) != -1) {
+        // Discards the output.
+      }
+    }
+    if (process.waitFor() != 0) {
+      throw new IOException("command exited with non-zero exit code : " + minikubeCommand);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A fake minikube binary that prints a fixed number of lines of a fixed length and exits. The
+ * output is generated up front, so the binary itself costs no more than a shell and {@code cat}.
+ */
+class FakeMinikubeBinary {
+
+  /**
+   * Creates the binary in a new temporary directory.
+   *
+   * @param lineCount the number of lines to print
+   * @param lineLength the number of characters in each line, excluding the line separator
+   * @return the path to the binary
+   */
+  static Path create(int lineCount, int lineLength) throws IOException {
+    Path directory = Files.createTempDirectory("minikube-benchmark");
+
+    Path output = directory.resolve("output.txt");
+    char[] line = new char[lineLength];
+    Arrays.fill(line, 'x');
+    try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+      for (int lineIndex = 0; lineIndex < lineCount; lineIndex++) {
+        writer.write(line);
+        writer.write('\n');
+      }
+    }
+
+    Path binary = directory.resolve("fakeminikube");
+    Files.write(
+        binary, ("#!/bin/sh\nexec cat '" + output + "'\n").getBytes(StandardCharsets.UTF_8));
+    if (!binary.toFile().setExecutable(true)) {
+      throw new IOException("Could not make " + binary + " executable");
+    }
+    return binary;
+  }
+
+  /** Deletes the binary and its output. */
+  static void delete(Path binary) throws IOException {
+    try (Stream<Path> paths = Files.walk(binary.getParent())) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  private FakeMinikubeBinary() {}
+}
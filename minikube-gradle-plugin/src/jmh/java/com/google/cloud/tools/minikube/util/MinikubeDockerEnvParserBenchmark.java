@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link MinikubeDockerEnvParser} on {@code minikube docker-env} output, against the
+ * {@code String.split} parser it replaced.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MinikubeDockerEnvParserBenchmark {
+
+  /** The number of variables set, where {@code minikube docker-env} sets 4. */
+  @Param({"4", "64"})
+  public int variableCount;
+
+  private List<String> lines;
+  private List<String> shellLines;
+  private String output;
+
+  @Setup
+  public void setUp() {
+    lines = new ArrayList<>();
+    shellLines = new ArrayList<>();
+    for (int variableIndex = 0; variableIndex < variableCount; variableIndex++) {
+      String name = "DOCKER_VARIABLE_" + variableIndex;
+      String value = "/home/user/.minikube/certs/" + variableIndex;
+      lines.add(name + "=" + value);
+      shellLines.add("export " + name + "=\"" + value + "\"");
+    }
+    shellLines.add("# Run this command to configure your shell:");
+    shellLines.add("# eval $(minikube docker-env)");
+    output = String.join("\n", lines) + "\n";
+  }
+
+  @Benchmark
+  public Map<String, String> parse() {
+    return MinikubeDockerEnvParser.parse(lines);
+  }
+
+  @Benchmark
+  public Map<String, String> parseShellForm() {
+    return MinikubeDockerEnvParser.parse(shellLines);
+  }
+
+  @Benchmark
+  public Map<String, String> parseReader() throws IOException {
+    return MinikubeDockerEnvParser.parse(new StringReader(output));
+  }
+
+  @Benchmark
+  public Map<String, String> parseLineConsumer() {
+    MinikubeDockerEnvParser.LineConsumer lineConsumer = MinikubeDockerEnvParser.newLineConsumer();
+    lines.forEach(lineConsumer);
+    return lineConsumer.getEnvironment();
+  }
+
+  /** The parser before it parsed lines in place, as the baseline. */
+  @Benchmark
+  public Map<String, String> splitBaseline() {
+    Map<String, String> environmentMap = new HashMap<>();
+    for (String keyValueString : lines) {
+      String[] keyValuePair = keyValueString.split("=", 2);
+      if (keyValuePair.length < 2 || keyValuePair[0].length() == 0) {
+        throw new IllegalArgumentException(keyValueString);
+      }
+      environmentMap.put(keyValuePair[0], keyValuePair[1]);
+    }
+    return environmentMap;
+  }
+}
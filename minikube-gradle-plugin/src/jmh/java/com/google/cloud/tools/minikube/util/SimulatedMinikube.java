@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A shell script that stands in for minikube when benchmarking the plugin. Every command waits for
+ * a fixed delay, then {@code docker-env} prints a docker environment and the other commands print a
+ * fixed number of lines. Requires a Unix shell.
+ */
+public class SimulatedMinikube {
+
+  private static final int OUTPUT_LINE_LENGTH = 80;
+
+  private SimulatedMinikube() {}
+
+  /**
+   * Creates the script in the directory, replacing any script created before.
+   *
+   * @param directory the directory to create the script in
+   * @param delayMillis how long every command takes before printing its output
+   * @param outputLines the number of lines commands other than {@code docker-env} print
+   * @return the path to the script
+   */
+  public static Path create(Path directory, long delayMillis, int outputLines) throws IOException {
+    if (delayMillis < 0 || outputLines < 0) {
+      throw new IllegalArgumentException(
+          "Simulated minikube delay and output must not be negative");
+    }
+    Files.createDirectories(directory);
+
+    Path output = directory.resolve("output.txt");
+    char[] line = new char[OUTPUT_LINE_LENGTH];
+    Arrays.fill(line, 'x');
+    try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+      for (int lineIndex = 0; lineIndex < outputLines; lineIndex++) {
+        writer.write(line);
+        writer.write('\n');
+      }
+    }
+
+    StringBuilder script = new StringBuilder("#!/bin/sh\n");
+    if (delayMillis > 0) {
+      script.append(
+          String.format(Locale.ROOT, "sleep %d.%03d\n", delayMillis / 1000, delayMillis % 1000));
+    }
+    script
+        .append("case \"$1\" in\n")
+        .append("  docker-env)\n")
+        .append("    echo DOCKER_TLS_VERIFY=1\n")
+        .append("    echo DOCKER_HOST=tcp://192.168.99.100:2376\n")
+        .append("    echo DOCKER_CERT_PATH=/home/user/.minikube/certs\n")
+        .append("    echo MINIKUBE_ACTIVE_DOCKERD=minikube\n")
+        .append("    ;;\n")
+        .append("  *)\n")
+        .append("    cat '")
+        .append(output)
+        .append("'\n")
+        .append("    ;;\n")
+        .append("esac\n");
+
+    Path scriptFile = directory.resolve("minikube");
+    Files.write(scriptFile, script.toString().getBytes(StandardCharsets.UTF_8));
+    if (!scriptFile.toFile().setExecutable(true)) {
+      throw new IOException("Could not make " + scriptFile + " executable");
+    }
+    return scriptFile;
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Waits for the minikube cluster started in the background to be ready. Tasks that need the
+ * cluster, such as tests, depend on this task instead of the start task, so that the cluster starts
+ * while the tasks before them run.
+ */
+public class MinikubeAwaitReadyTask extends DefaultTask {
+
+  private MinikubeClusterService clusterService;
+  private Provider<MinikubeTask> startTask;
+
+  @Internal
+  public MinikubeClusterService getClusterService() {
+    return clusterService;
+  }
+
+  public void setClusterService(MinikubeClusterService clusterService) {
+    this.clusterService = clusterService;
+  }
+
+  /** @return the task whose configuration the cluster is started with */
+  @Internal
+  public Provider<MinikubeTask> getStartTask() {
+    return startTask;
+  }
+
+  public void setStartTask(Provider<MinikubeTask> startTask) {
+    this.startTask = startTask;
+  }
+
+  /**
+   * Starts the cluster in the background with the configuration of the start task, unless it was
+   * already started in the background during this build.
+   */
+  public void startInBackground() {
+    MinikubeTask start = startTask.get();
+    clusterService.startInBackground(start.getProfile(), () -> start.newCommandRunner().run());
+  }
+
+  @TaskAction
+  public void awaitReady() throws InterruptedException {
+    String profile = startTask.get().getProfile();
+    CompletableFuture<Void> backgroundStart = clusterService.getBackgroundStart(profile);
+    if (backgroundStart == null) {
+      // The cluster was started by the start task this task depends on.
+      setDidWork(false);
+      return;
+    }
+
+    long startNanos = System.nanoTime();
+    try {
+      backgroundStart.get();
+
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof GradleException) {
+        throw (GradleException) ex.getCause();
+      }
+      throw new GradleException(
+          "Starting minikube profile " + profile + " in the background failed", ex.getCause());
+    }
+    getLogger()
+        .info(
+            "Waited "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)
+                + " ms for minikube profile "
+                + profile
+                + " to be ready");
+  }
+}
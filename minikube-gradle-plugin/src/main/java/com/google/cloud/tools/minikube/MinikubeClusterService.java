@@ -0,0 +1,294 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube;
+
+import com.google.cloud.tools.minikube.util.BuildTrace;
+import com.google.cloud.tools.minikube.util.CommandExecutorFactory;
+import com.google.cloud.tools.minikube.util.CommandMetrics;
+import com.google.cloud.tools.minikube.util.MinikubeStartState;
+import com.google.cloud.tools.minikube.util.ProfileLock;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
+
+/**
+ * Build-wide state of the minikube clusters, shared by every project that applies the plugin. A
+ * single instance is registered on the root project, so that each profile is started at most once
+ * per build no matter how many projects depend on {@code minikubeStart}.
+ */
+public class MinikubeClusterService {
+
+  // @VisibleForTesting
+  static final String EXTENSION_NAME = "minikubeClusterService";
+
+  /** An action on a minikube cluster, such as running {@code minikube start}. */
+  public interface ClusterAction {
+    void run() throws IOException, InterruptedException;
+  }
+
+  /**
+   * Gets the service for the build, registering it on the root project if this is the first project
+   * to use it. The project is counted as a user of the service until the build finishes.
+   */
+  public static MinikubeClusterService register(Project project) {
+    Project rootProject = project.getRootProject();
+    Object registered = rootProject.getExtensions().findByName(EXTENSION_NAME);
+
+    MinikubeClusterService clusterService;
+    if (registered instanceof MinikubeClusterService) {
+      clusterService = (MinikubeClusterService) registered;
+    } else {
+      Path lockDirectory =
+          ProfileLock.getLockDirectory(
+              MinikubeStartState.getMinikubeHome(System.getenv("MINIKUBE_HOME")));
+      clusterService =
+          new MinikubeClusterService(
+              new CommandExecutorFactory(project.getLogger())
+                  .setProfileLockDirectory(lockDirectory));
+      // Resolved when the service is released, after the build script may have moved buildDir.
+      DirectoryProperty buildDirectory = rootProject.getLayout().getBuildDirectory();
+      clusterService.setMetricsReportFile(buildDirectory.file("minikube/metrics.json"));
+      clusterService.setTraceFile(buildDirectory.file("minikube/trace.json"));
+      // A service from a plugin loaded by another classloader cannot be shared.
+      if (registered == null) {
+        rootProject.getExtensions().add(EXTENSION_NAME, clusterService);
+      }
+    }
+
+    clusterService.retain();
+    project.getGradle().buildFinished(buildResult -> clusterService.release());
+    return clusterService;
+  }
+
+  private final CommandExecutorFactory commandExecutorFactory;
+  private final AtomicInteger users = new AtomicInteger();
+  private final ConcurrentMap<String, ProfileState> profiles = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, CompletableFuture<Void>> backgroundStarts =
+      new ConcurrentHashMap<>();
+  private Provider<RegularFile> metricsReportFile;
+  private Provider<RegularFile> traceFile;
+
+  // @VisibleForTesting
+  MinikubeClusterService(CommandExecutorFactory commandExecutorFactory) {
+    this.commandExecutorFactory = commandExecutorFactory;
+  }
+
+  /** @return the factory for the command executors shared by all users of the service */
+  public CommandExecutorFactory getCommandExecutorFactory() {
+    return commandExecutorFactory;
+  }
+
+  /**
+   * Sets the file to write the metrics of the commands run during the build to, once the service
+   * has no users left. The report is only written if any command ran.
+   */
+  public void setMetricsReportFile(Provider<RegularFile> metricsReportFile) {
+    this.metricsReportFile = metricsReportFile;
+  }
+
+  /**
+   * Sets the file to write the Chrome trace of the minikube tasks and commands of the build to,
+   * once the service has no users left. The trace is only written if anything was traced.
+   */
+  public void setTraceFile(Provider<RegularFile> traceFile) {
+    this.traceFile = traceFile;
+  }
+
+  /** Counts a new user of the service. */
+  public void retain() {
+    users.incrementAndGet();
+  }
+
+  /**
+   * Releases a user of the service. Once it has no users left, waits for the background starts
+   * still running, then writes the metrics report and the trace and shuts the service down.
+   */
+  public void release() {
+    if (users.decrementAndGet() == 0) {
+      try {
+        // Shutting down under a running start would leave its minikube process orphaned.
+        awaitBackgroundStarts();
+        writeMetricsReport();
+        writeTrace();
+      } finally {
+        commandExecutorFactory.shutdown();
+      }
+    }
+  }
+
+  /** @return the number of users of the service */
+  public int getUserCount() {
+    return users.get();
+  }
+
+  /**
+   * Starts the profile, unless it was already started during this build. Concurrent starts of the
+   * same profile wait for the first one to finish.
+   *
+   * @param profile the minikube profile
+   * @param startAction starts the cluster
+   * @return true if the cluster was started, false if it was already started
+   */
+  public boolean start(String profile, ClusterAction startAction)
+      throws IOException, InterruptedException {
+    return getProfileState(profile).start(startAction);
+  }
+
+  /**
+   * Runs the start action for the profile on a background thread, at most once per build, so that
+   * the cluster starts while other tasks run. The action usually goes through {@link #start}, so
+   * that tasks starting the same profile wait for it instead of starting it again.
+   *
+   * @param profile the minikube profile
+   * @param startAction starts the cluster
+   * @return completes once the action is done, exceptionally if it failed
+   */
+  public CompletableFuture<Void> startInBackground(String profile, ClusterAction startAction) {
+    return backgroundStarts.computeIfAbsent(
+        profile,
+        ignored -> {
+          CompletableFuture<Void> backgroundStart = new CompletableFuture<>();
+          Thread thread =
+              new Thread(
+                  () -> {
+                    try {
+                      startAction.run();
+                      backgroundStart.complete(null);
+                    } catch (Throwable ex) {
+                      // Tasks awaiting the start would otherwise wait forever.
+                      backgroundStart.completeExceptionally(ex);
+                    }
+                  },
+                  "minikube-start-" + profile);
+          // The build waits for the start in release(), not the JVM.
+          thread.setDaemon(true);
+          thread.start();
+          return backgroundStart;
+        });
+  }
+
+  /** @return the background start of the profile, or {@code null} if there is none */
+  public CompletableFuture<Void> getBackgroundStart(String profile) {
+    return backgroundStarts.get(profile);
+  }
+
+  /**
+   * Stops or deletes the profile. A later start in the same build starts it again.
+   *
+   * @param profile the minikube profile
+   * @param stopAction stops or deletes the cluster
+   */
+  public void stop(String profile, ClusterAction stopAction)
+      throws IOException, InterruptedException {
+    getProfileState(profile).stop(stopAction);
+  }
+
+  /** @return true if the profile was started during this build and not stopped since */
+  public boolean isStarted(String profile) {
+    return getProfileState(profile).isStarted();
+  }
+
+  /** Waits for the background starts to finish, whether they succeed or fail. */
+  private void awaitBackgroundStarts() {
+    for (Map.Entry<String, CompletableFuture<Void>> backgroundStart : backgroundStarts.entrySet()) {
+      if (!backgroundStart.getValue().isDone()) {
+        Logging.getLogger(MinikubeClusterService.class)
+            .lifecycle(
+                "Waiting for the background start of minikube profile "
+                    + backgroundStart.getKey()
+                    + " to finish");
+      }
+      try {
+        backgroundStart.getValue().join();
+      } catch (CancellationException | CompletionException ex) {
+        // The failure was reported to the tasks awaiting the start.
+      }
+    }
+  }
+
+  private void writeMetricsReport() {
+    if (metricsReportFile == null) {
+      return;
+    }
+    CommandMetrics commandMetrics = commandExecutorFactory.getCommandMetrics();
+    if (commandMetrics.getMetrics().isEmpty()) {
+      return;
+    }
+    Path reportFile = metricsReportFile.get().getAsFile().toPath();
+    try {
+      commandMetrics.write(reportFile);
+    } catch (IOException ex) {
+      Logging.getLogger(MinikubeClusterService.class)
+          .warn("Could not write minikube metrics report " + reportFile, ex);
+    }
+  }
+
+  private void writeTrace() {
+    if (traceFile == null) {
+      return;
+    }
+    BuildTrace buildTrace = commandExecutorFactory.getBuildTrace();
+    if (buildTrace.getSpans().isEmpty()) {
+      return;
+    }
+    Path file = traceFile.get().getAsFile().toPath();
+    try {
+      buildTrace.write(file);
+    } catch (IOException ex) {
+      Logging.getLogger(MinikubeClusterService.class)
+          .warn("Could not write minikube trace " + file, ex);
+    }
+  }
+
+  private ProfileState getProfileState(String profile) {
+    return profiles.computeIfAbsent(profile, ignored -> new ProfileState());
+  }
+
+  /** Serializes the actions on a single profile. */
+  private static class ProfileState {
+    private boolean started;
+
+    synchronized boolean start(ClusterAction startAction) throws IOException, InterruptedException {
+      if (started) {
+        return false;
+      }
+      startAction.run();
+      started = true;
+      return true;
+    }
+
+    synchronized void stop(ClusterAction stopAction) throws IOException, InterruptedException {
+      stopAction.run();
+      started = false;
+    }
+
+    synchronized boolean isStarted() {
+      return started;
+    }
+  }
+}
@@ -0,0 +1,435 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube;
+
+import com.google.cloud.tools.minikube.util.ClusterAdmission;
+import com.google.cloud.tools.minikube.util.ClusterSize;
+import com.google.cloud.tools.minikube.util.CommandExecutor;
+import com.google.cloud.tools.minikube.util.CommandExecutorFactory;
+import com.google.cloud.tools.minikube.util.HostResources;
+import com.google.cloud.tools.minikube.util.MinikubeProfile;
+import com.google.cloud.tools.minikube.util.MinikubeProgressReporter;
+import com.google.cloud.tools.minikube.util.MinikubeStartState;
+import com.google.cloud.tools.minikube.util.ProfileLock;
+import com.google.cloud.tools.minikube.util.WarmPool;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+
+/**
+ * Runs a minikube lifecycle command: starts a profile at most once per build and only when it is
+ * not already running with the configuration its flags ask for.
+ */
+class MinikubeCommandRunner {
+
+  /** Limits on the command output retained for the failure message; the rest is only logged. */
+  private static final int OUTPUT_TAIL_LINES = 100;
+
+  private static final long OUTPUT_TAIL_CHARACTERS = 64 * 1024;
+
+  private static final String JSON_OUTPUT_FLAG = "--output=json";
+
+  /** How long {@code minikube status} may take before the profile is taken as not running. */
+  // @VisibleForTesting
+  static final Duration STATUS_TIMEOUT = Duration.ofSeconds(30);
+
+  private final String minikube;
+  private final String command;
+  private final String[] flags;
+  private final CommandExecutorFactory commandExecutorFactory;
+  private final Logger logger;
+
+  private MinikubeClusterService clusterService;
+  private Path minikubeHome = MinikubeStartState.getMinikubeHome(System.getenv("MINIKUBE_HOME"));
+  private long timeoutSeconds;
+  private boolean jsonProgress;
+  private double maxHostFraction = HostResources.DEFAULT_CLUSTER_FRACTION;
+  private boolean autoSize;
+  private int concurrentClusters = 1;
+  private MinikubeWarmPoolConfiguration warmPool;
+
+  /**
+   * @param minikube the minikube executable
+   * @param command the minikube command: start, stop, etc.
+   * @param flags the flags to pass to the command
+   * @param commandExecutorFactory creates the executors to run minikube with
+   * @param logger for logging messages about the command
+   */
+  MinikubeCommandRunner(
+      String minikube,
+      String command,
+      String[] flags,
+      CommandExecutorFactory commandExecutorFactory,
+      Logger logger) {
+    this.minikube = minikube;
+    this.command = command;
+    this.flags = flags;
+    this.commandExecutorFactory = commandExecutorFactory;
+    this.logger = logger;
+  }
+
+  /** Sets the build-wide cluster state. Without one, every run runs the command. */
+  MinikubeCommandRunner setClusterService(MinikubeClusterService clusterService) {
+    this.clusterService = clusterService;
+    return this;
+  }
+
+  MinikubeCommandRunner setMinikubeHome(Path minikubeHome) {
+    this.minikubeHome = minikubeHome;
+    return this;
+  }
+
+  /** Sets the seconds the command may run before it is destroyed; 0 means no timeout. */
+  MinikubeCommandRunner setTimeoutSeconds(long timeoutSeconds) {
+    this.timeoutSeconds = timeoutSeconds;
+    return this;
+  }
+
+  /**
+   * Runs the command with {@code --output=json} and reports its progress from the JSON events
+   * minikube prints, instead of logging its output as is.
+   */
+  MinikubeCommandRunner setJsonProgress(boolean jsonProgress) {
+    this.jsonProgress = jsonProgress;
+    return this;
+  }
+
+  /**
+   * Sets the share of the host processors and memory the clusters started by the build may take. A
+   * start that would take more waits for the starts running to finish.
+   */
+  MinikubeCommandRunner setMaxHostFraction(double maxHostFraction) {
+    this.maxHostFraction = maxHostFraction;
+    return this;
+  }
+
+  /**
+   * Starts the cluster with {@code --cpus} and {@code --memory} sized to the host, unless the flags
+   * set them.
+   *
+   * @see HostResources#getAutoClusterSize
+   */
+  MinikubeCommandRunner setAutoSize(boolean autoSize) {
+    this.autoSize = autoSize;
+    return this;
+  }
+
+  /** Sets how many clusters start at once, for {@link #setAutoSize} to share the host between. */
+  MinikubeCommandRunner setConcurrentClusters(int concurrentClusters) {
+    this.concurrentClusters = concurrentClusters;
+    return this;
+  }
+
+  /**
+   * Pauses the cluster instead of stopping it, and unpauses a paused cluster started with the same
+   * flags instead of starting it, evicting the clusters paused for too long. Without a warm pool,
+   * or if it is not enabled, clusters are stopped and started.
+   */
+  MinikubeCommandRunner setWarmPool(MinikubeWarmPoolConfiguration warmPool) {
+    this.warmPool = warmPool;
+    return this;
+  }
+
+  /** @return the minikube profile selected by the {@code --profile} or {@code -p} flag */
+  String getProfile() {
+    return MinikubeProfile.fromArguments(Arrays.asList(flags));
+  }
+
+  /**
+   * Runs the command.
+   *
+   * @return false if the command was skipped because the profile was already started
+   */
+  boolean run() throws IOException, InterruptedException {
+    List<String> minikubeCommand = buildMinikubeCommand();
+    if (clusterService == null) {
+      if ("start".equals(command)) {
+        return startMinikube(minikubeCommand);
+      }
+      if ("stop".equals(command) && isWarmPoolEnabled()) {
+        pauseMinikube();
+      } else if ("stop".equals(command) || "delete".equals(command)) {
+        stopMinikube(minikubeCommand);
+      } else {
+        runMinikube(minikubeCommand);
+      }
+      return true;
+    }
+
+    String profile = getProfile();
+    if ("start".equals(command)) {
+      AtomicBoolean started = new AtomicBoolean();
+      if (!clusterService.start(profile, () -> started.set(startMinikube(minikubeCommand)))) {
+        logger.lifecycle("minikube profile " + profile + " was already started by this build");
+        return false;
+      }
+      return started.get();
+    }
+    if ("stop".equals(command) && isWarmPoolEnabled()) {
+      clusterService.stop(profile, this::pauseMinikube);
+    } else if ("stop".equals(command) || "delete".equals(command)) {
+      clusterService.stop(profile, () -> stopMinikube(minikubeCommand));
+    } else {
+      runMinikube(minikubeCommand);
+    }
+    return true;
+  }
+
+  /** @return true if this is a start command and the profile is running as its flags ask for */
+  boolean isStartUpToDate() {
+    if (!"start".equals(command) || commandExecutorFactory == null) {
+      return false;
+    }
+    try {
+      return new MinikubeStartState(minikubeHome, getProfile()).matches(Arrays.asList(flags))
+          && isProfileRunning();
+
+    } catch (IOException ex) {
+      return false;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  List<String> buildMinikubeCommand() {
+    List<String> execString = new ArrayList<>();
+    execString.add(minikube);
+    execString.add(command);
+    execString.addAll(Arrays.asList(flags));
+    if (autoSize && "start".equals(command)) {
+      execString.addAll(
+          HostResources.detect()
+              .getAutoClusterSize(concurrentClusters, maxHostFraction)
+              .getMissingFlags(execString));
+    }
+    if (jsonProgress && !execString.contains(JSON_OUTPUT_FLAG)) {
+      execString.add(JSON_OUTPUT_FLAG);
+    }
+
+    return execString;
+  }
+
+  /**
+   * Starts minikube unless the profile is already running with the configuration its flags ask for,
+   * as kept by minikube in the profile {@code config.json}. Holds the profile lock throughout, so
+   * that a build waiting to start the same profile sees the new configuration and skips its start.
+   * The start waits while the clusters started by this build take too much of the host for it. With
+   * the warm pool enabled, a paused cluster with the same configuration is unpaused instead.
+   *
+   * @return false if the profile was already running
+   */
+  private boolean startMinikube(List<String> minikubeCommand)
+      throws IOException, InterruptedException {
+    if (isWarmPoolEnabled()) {
+      evictIdleProfiles();
+    }
+    try (ProfileLock.Lease ignored =
+        newCommandExecutor().lockProfile(getProfile(), false, "minikube " + command)) {
+      MinikubeStartState startState = new MinikubeStartState(minikubeHome, getProfile());
+      if (isWarmPoolEnabled() && unpauseFromWarmPool(startState)) {
+        return true;
+      }
+      if (startState.matches(Arrays.asList(flags)) && isProfileRunning()) {
+        logger.lifecycle(
+            "minikube profile " + getProfile() + " is already running with the same flags");
+        return false;
+      }
+
+      try (ClusterAdmission.Ticket ticket =
+          newCommandExecutor()
+              .admitClusterStart(
+                  getProfile(), ClusterSize.fromArguments(minikubeCommand), maxHostFraction)) {
+        runMinikube(minikubeCommand);
+        if (ticket != null) {
+          ticket.started();
+        }
+      }
+      return true;
+    }
+  }
+
+  /** Stops or deletes minikube, releasing the host resources its cluster took. */
+  private void stopMinikube(List<String> minikubeCommand) throws IOException, InterruptedException {
+    runMinikube(minikubeCommand);
+    ClusterAdmission clusterAdmission = commandExecutorFactory.getClusterAdmission();
+    if (clusterAdmission != null) {
+      clusterAdmission.release(getProfile());
+    }
+  }
+
+  /**
+   * Pauses minikube instead of stopping it, and records it in the warm pool. Holds the profile lock
+   * throughout, so that a build starting the profile meanwhile sees it paused. The cluster keeps
+   * its host resources, so they are not released.
+   */
+  private void pauseMinikube() throws IOException, InterruptedException {
+    String profile = getProfile();
+    try (ProfileLock.Lease ignored =
+        newCommandExecutor().lockProfile(profile, false, "minikube pause")) {
+      runMinikube(Arrays.asList(minikube, "pause", "--profile=" + profile));
+      newWarmPool().markPaused(profile);
+    }
+    logger.lifecycle(
+        "Paused minikube profile "
+            + profile
+            + " into the warm pool, for at most "
+            + warmPool.getIdleTimeoutMinutes()
+            + " minutes");
+    evictIdleProfiles();
+  }
+
+  /**
+   * Unpauses the profile if it is in the warm pool and has the configuration its flags ask for. A
+   * paused cluster with another configuration is evicted, so that it is started again with the new
+   * one.
+   *
+   * @return true if the profile was unpaused
+   */
+  private boolean unpauseFromWarmPool(MinikubeStartState startState)
+      throws IOException, InterruptedException {
+    String profile = getProfile();
+    WarmPool pool = newWarmPool();
+    if (pool.isExpired(profile)) {
+      evict(pool, profile);
+      return false;
+    }
+    if (!pool.isWarm(profile)) {
+      return false;
+    }
+    if (!startState.matches(Arrays.asList(flags))) {
+      logger.lifecycle(
+          "minikube profile "
+              + profile
+              + " in the warm pool was started with other flags, starting it again");
+      evict(pool, profile);
+      return false;
+    }
+
+    try {
+      runMinikube(Arrays.asList(minikube, "unpause", "--profile=" + profile));
+    } catch (IOException | GradleException ex) {
+      logger.warn(
+          "Could not unpause minikube profile " + profile + ", starting it: " + ex.getMessage());
+      pool.remove(profile);
+      return false;
+    }
+    pool.remove(profile);
+    logger.lifecycle("Unpaused minikube profile " + profile + " from the warm pool");
+    return true;
+  }
+
+  /**
+   * Evicts the profiles idle in the warm pool for longer than its timeout. Each one is evicted
+   * under its own profile lock, and only if it is still idle then, since another build may have
+   * unpaused it meanwhile.
+   */
+  private void evictIdleProfiles() throws IOException, InterruptedException {
+    WarmPool pool = newWarmPool();
+    for (String profile : pool.getExpiredProfiles()) {
+      try (ProfileLock.Lease ignored =
+          newCommandExecutor().lockProfile(profile, false, "minikube " + getWarmPoolEviction())) {
+        if (pool.isExpired(profile)) {
+          evict(pool, profile);
+        }
+      }
+    }
+  }
+
+  /** Stops or deletes the paused profile, as configured, and takes it out of the warm pool. */
+  private void evict(WarmPool pool, String profile) throws IOException, InterruptedException {
+    logger.lifecycle(
+        "Evicting minikube profile "
+            + profile
+            + " from the warm pool with minikube "
+            + getWarmPoolEviction());
+    runMinikube(Arrays.asList(minikube, getWarmPoolEviction(), "--profile=" + profile));
+    pool.remove(profile);
+    ClusterAdmission clusterAdmission = commandExecutorFactory.getClusterAdmission();
+    if (clusterAdmission != null) {
+      clusterAdmission.release(profile);
+    }
+  }
+
+  private boolean isWarmPoolEnabled() {
+    return warmPool != null && warmPool.isEnabled();
+  }
+
+  private String getWarmPoolEviction() {
+    String eviction = warmPool.getEviction();
+    if (!"stop".equals(eviction) && !"delete".equals(eviction)) {
+      throw new GradleException("minikube.warmPool.eviction must be stop or delete: " + eviction);
+    }
+    return eviction;
+  }
+
+  private WarmPool newWarmPool() {
+    return new WarmPool(minikubeHome, Duration.ofMinutes(warmPool.getIdleTimeoutMinutes()));
+  }
+
+  /**
+   * Probes the profile with {@code minikube status}, which exits with 0 only when it is running. A
+   * probe that hangs, such as on a stuck hypervisor, is taken as not running. The probe bypasses
+   * the command cache, since another build may have stopped the profile since it was cached.
+   */
+  private boolean isProfileRunning() throws InterruptedException {
+    List<String> statusCommand = Arrays.asList(minikube, "status", "--profile=" + getProfile());
+    CommandExecutor commandExecutor = newCommandExecutor();
+    commandExecutor.setCommandCache(null);
+    commandExecutor.setTimeout(STATUS_TIMEOUT);
+    try {
+      commandExecutor.run(statusCommand);
+      return true;
+
+    } catch (IOException | GradleException ex) {
+      return false;
+    }
+  }
+
+  /** @return a new executor, which knows the commands of the minikube executable */
+  private CommandExecutor newCommandExecutor() {
+    CommandExecutor commandExecutor = commandExecutorFactory.newCommandExecutor();
+    commandExecutor.setMinikube(minikube);
+    return commandExecutor;
+  }
+
+  private void runMinikube(List<String> minikubeCommand) throws IOException, InterruptedException {
+    CommandExecutor commandExecutor =
+        newCommandExecutor().setOutputTail(OUTPUT_TAIL_LINES, OUTPUT_TAIL_CHARACTERS);
+    if (timeoutSeconds > 0) {
+      commandExecutor.setTimeout(Duration.ofSeconds(timeoutSeconds));
+    }
+    // Only the command built with --output=json reports its progress as JSON.
+    if (!jsonProgress || !minikubeCommand.contains(JSON_OUTPUT_FLAG)) {
+      commandExecutor.run(minikubeCommand);
+      return;
+    }
+
+    MinikubeProgressReporter progressReporter = new MinikubeProgressReporter(logger);
+    try {
+      commandExecutor.run(minikubeCommand, progressReporter);
+    } finally {
+      progressReporter.finish();
+    }
+  }
+}
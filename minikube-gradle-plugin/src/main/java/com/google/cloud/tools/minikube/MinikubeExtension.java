@@ -16,14 +16,29 @@
 
 package com.google.cloud.tools.minikube;
 
+import com.google.cloud.tools.minikube.util.CommandExecutor;
 import com.google.cloud.tools.minikube.util.CommandExecutorFactory;
+import com.google.cloud.tools.minikube.util.DockerEnvCache;
+import com.google.cloud.tools.minikube.util.DockerEnvResolver;
+import com.google.cloud.tools.minikube.util.HostResources;
 import com.google.cloud.tools.minikube.util.MinikubeDockerEnvParser;
+import com.google.cloud.tools.minikube.util.MinikubeProfile;
+import com.google.cloud.tools.minikube.util.MinikubeStartState;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.gradle.api.Action;
+import org.gradle.api.NamedDomainObjectContainer;
 import org.gradle.api.Project;
+import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
 
 /** Minikube configuration extension. */
 public class MinikubeExtension {
@@ -32,11 +47,67 @@ public class MinikubeExtension {
 
   private final CommandExecutorFactory commandExecutorFactory;
 
+  private final ProviderFactory providerFactory;
+
+  /** Keeps the docker environments across builds. */
+  private final DockerEnvCache dockerEnvCache;
+
+  /** Starts the cluster in the background as soon as the task graph is known. */
+  private boolean startAsync;
+
+  /** Profiles started, stopped and deleted together by the {@code minikube*Profiles} tasks. */
+  private final NamedDomainObjectContainer<MinikubeProfileConfiguration> profiles;
+
+  /** The most profiles to start, stop or delete at once; 0 derives it from the host. */
+  private int maxConcurrentProfiles;
+
+  /** The share of the host the clusters started by the build may take. */
+  private double maxHostFraction = HostResources.DEFAULT_CLUSTER_FRACTION;
+
+  /** Pauses clusters instead of stopping them, for the next build to unpause. */
+  private final MinikubeWarmPoolConfiguration warmPool = new MinikubeWarmPoolConfiguration();
+
+  /** Knows the profiles started by this build, which is null outside of the plugin. */
+  private MinikubeClusterService clusterService;
+
+  private Path minikubeHome = MinikubeStartState.getMinikubeHome(System.getenv("MINIKUBE_HOME"));
+
+  /** Lazily evaluated docker environments, by profile. */
+  private final ConcurrentMap<String, Provider<Map<String, String>>> dockerEnvProviders =
+      new ConcurrentHashMap<>();
+
   public MinikubeExtension(Project project, CommandExecutorFactory commandExecutorFactory) {
-    minikube = project.getObjects().property(String.class);
+    this(
+        project.getObjects(),
+        project.getProviders(),
+        project.container(MinikubeProfileConfiguration.class),
+        project.getBuildDir().toPath(),
+        commandExecutorFactory);
+  }
+
+  /** Creates the extension from what it needs of the project, resolved beforehand. */
+  MinikubeExtension(
+      ObjectFactory objectFactory,
+      ProviderFactory providerFactory,
+      NamedDomainObjectContainer<MinikubeProfileConfiguration> profiles,
+      Path buildDirectory,
+      CommandExecutorFactory commandExecutorFactory) {
+    minikube = objectFactory.property(String.class);
     setMinikube("minikube");
 
+    this.profiles = profiles;
     this.commandExecutorFactory = commandExecutorFactory;
+    this.providerFactory = providerFactory;
+    dockerEnvCache = new DockerEnvCache(buildDirectory.resolve("minikube").resolve("docker-env"));
+  }
+
+  void setClusterService(MinikubeClusterService clusterService) {
+    this.clusterService = clusterService;
+  }
+
+  // @VisibleForTesting
+  void setMinikubeHome(Path minikubeHome) {
+    this.minikubeHome = minikubeHome;
   }
 
   public String getMinikube() {
@@ -51,6 +122,74 @@ public class MinikubeExtension {
     return minikube;
   }
 
+  public boolean isStartAsync() {
+    return startAsync;
+  }
+
+  /**
+   * Sets whether to start the cluster in the background. When set, {@code minikube start} runs with
+   * the configuration of {@code minikubeStart} as soon as the task graph is known if it contains
+   * {@code minikubeAwaitReady}, and {@code minikubeAwaitReady} waits for it to finish. Otherwise
+   * {@code minikubeAwaitReady} depends on {@code minikubeStart}.
+   */
+  public void setStartAsync(boolean startAsync) {
+    this.startAsync = startAsync;
+  }
+
+  public NamedDomainObjectContainer<MinikubeProfileConfiguration> getProfiles() {
+    return profiles;
+  }
+
+  /**
+   * Configures the profiles that {@code minikubeStartProfiles}, {@code minikubeStopProfiles} and
+   * {@code minikubeDeleteProfiles} run on in parallel. Each profile is named after its minikube
+   * profile and may set the flags to start it with.
+   */
+  public void profiles(
+      Action<? super NamedDomainObjectContainer<MinikubeProfileConfiguration>> action) {
+    action.execute(profiles);
+  }
+
+  public int getMaxConcurrentProfiles() {
+    return maxConcurrentProfiles;
+  }
+
+  /**
+   * Sets the most profiles to start, stop or delete at once. If 0, the default, it is as many
+   * clusters of minikube's default size as the host has processors and memory for.
+   */
+  public void setMaxConcurrentProfiles(int maxConcurrentProfiles) {
+    this.maxConcurrentProfiles = maxConcurrentProfiles;
+  }
+
+  public double getMaxHostFraction() {
+    return maxHostFraction;
+  }
+
+  /**
+   * Sets the share of the host processors and memory that the clusters started by the build may
+   * take, by their {@code --cpus} and {@code --memory} flags. A start that would take more waits
+   * for the starts running to finish. Defaults to 0.75.
+   */
+  public void setMaxHostFraction(double maxHostFraction) {
+    this.maxHostFraction = maxHostFraction;
+  }
+
+  public MinikubeWarmPoolConfiguration getWarmPool() {
+    return warmPool;
+  }
+
+  /**
+   * Configures the warm pool. When enabled, {@code minikubeStop} and {@code minikubeStopProfiles}
+   * pause the clusters instead of stopping them, and the next start unpauses a paused cluster with
+   * the configuration its flags ask for, in seconds instead of booting it again. Clusters paused
+   * for longer than {@code idleTimeoutMinutes} (default 60) are evicted with {@code minikube stop},
+   * or {@code minikube delete} if {@code eviction} is {@code delete}, by the next start or stop.
+   */
+  public void warmPool(Action<? super MinikubeWarmPoolConfiguration> action) {
+    action.execute(warmPool);
+  }
+
   /**
    * Gets the minikube docker environment variables by running the command 'minikube docker-env
    * --shell=none'.
@@ -63,7 +202,10 @@ public class MinikubeExtension {
 
   /**
    * Gets the minikube docker environment variables by running the command 'minikube docker-env
-   * --shell=none'.
+   * --shell=none'. The result is kept under the build directory and reused for a profile started by
+   * the build until the profile configuration or the minikube binary changes. For VM drivers, the
+   * variables of a profile started by the build are read from the profile configuration without
+   * running minikube.
    *
    * @param profile target minikube profile
    * @return A map of docker environment variables and their values
@@ -76,9 +218,80 @@ public class MinikubeExtension {
     List<String> minikubeDockerEnvCommand =
         Arrays.asList(minikube.get(), "docker-env", "--shell=none", "--profile=" + profile);
 
-    List<String> dockerEnv =
-        commandExecutorFactory.newCommandExecutor().run(minikubeDockerEnvCommand);
+    String profileName = MinikubeProfile.fromArguments(minikubeDockerEnvCommand);
+    // The profile configuration remains while the cluster is stopped or paused, so neither it nor
+    // the cached environment is used unless the profile is known to be running. Otherwise minikube
+    // docker-env runs, and fails as it should.
+    boolean running = clusterService != null && clusterService.isStarted(profileName);
+    if (running) {
+      Map<String, String> resolvedDockerEnv =
+          new DockerEnvResolver(minikubeHome).resolve(profileName);
+      if (resolvedDockerEnv != null) {
+        return resolvedDockerEnv;
+      }
+    }
+
+    Path configJson = minikubeHome.resolve("profiles").resolve(profileName).resolve("config.json");
+    String fingerprint =
+        DockerEnvCache.fingerprint(
+            configJson, DockerEnvCache.findExecutable(minikube.get(), System.getenv("PATH")));
+    Map<String, String> cachedDockerEnv =
+        running ? dockerEnvCache.get(profileName, fingerprint) : null;
+    if (cachedDockerEnv != null) {
+      return cachedDockerEnv;
+    }
+
+    CommandExecutor commandExecutor = commandExecutorFactory.newCommandExecutor();
+    commandExecutor.setMinikube(minikube.get());
+    List<String> dockerEnv = commandExecutor.run(minikubeDockerEnvCommand);
+
+    Map<String, String> parsedDockerEnv = MinikubeDockerEnvParser.parse(dockerEnv);
+    dockerEnvCache.put(profileName, fingerprint, parsedDockerEnv);
+    return parsedDockerEnv;
+  }
+
+  /**
+   * Gets a provider of the minikube docker environment variables. Same as {@link
+   * #getDockerEnvProvider(String)} with the default profile.
+   */
+  public Provider<Map<String, String>> getDockerEnvProvider() {
+    return getDockerEnvProvider("");
+  }
+
+  /**
+   * Gets a provider of the minikube docker environment variables. The command 'minikube docker-env
+   * --shell=none' only runs when the value is first queried, usually by a task that runs, and its
+   * result is reused for the rest of the build.
+   *
+   * @param profile target minikube profile
+   * @return A provider of a map of docker environment variables and their values
+   */
+  public Provider<Map<String, String>> getDockerEnvProvider(String profile) {
+    if (profile == null) {
+      throw new NullPointerException("Minikube profile must not be null");
+    }
+
+    return dockerEnvProviders.computeIfAbsent(
+        profile,
+        ignored -> providerFactory.provider(new MemoizingCallable<>(() -> getDockerEnv(profile))));
+  }
+
+  /** Calls the delegate once it first succeeds and returns the same value after that. */
+  private static class MemoizingCallable<T> implements Callable<T> {
 
-    return MinikubeDockerEnvParser.parse(dockerEnv);
+    private final Callable<T> delegate;
+    private T value;
+
+    private MemoizingCallable(Callable<T> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized T call() throws Exception {
+      if (value == null) {
+        value = delegate.call();
+      }
+      return value;
+    }
   }
 }
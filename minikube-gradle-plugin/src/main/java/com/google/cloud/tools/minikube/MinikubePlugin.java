@@ -16,9 +16,11 @@
 
 package com.google.cloud.tools.minikube;
 
-import com.google.cloud.tools.minikube.util.CommandExecutorFactory;
+import java.util.Collections;
+import java.util.concurrent.Callable;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.tasks.TaskProvider;
 
 /** An extremely basic minikube plugin to manage the minikube lifecycle from gradle. */
 public class MinikubePlugin implements Plugin<Project> {
@@ -29,53 +31,151 @@ public class MinikubePlugin implements Plugin<Project> {
   @Override
   public void apply(Project project) {
     this.project = project;
-    CommandExecutorFactory commandExecutorFactory = new CommandExecutorFactory(project.getLogger());
+    MinikubeClusterService clusterService = MinikubeClusterService.register(project);
 
-    createMinikubeExtension(commandExecutorFactory);
+    createMinikubeExtension(clusterService);
 
-    configureMinikubeTaskAdditionCallback(commandExecutorFactory);
-    createMinikubeStartTask();
-    createMinikubeStopTask();
-    createMinikubeDeleteTask();
+    configureMinikubeTaskAdditionCallback(clusterService);
+    registerMinikubeStartTask();
+    registerMinikubeAwaitReadyTask(clusterService);
+    registerMinikubeStopTask();
+    registerMinikubeDeleteTask();
+    configureMinikubeProfilesTaskAdditionCallback(clusterService);
+    registerMinikubeProfilesTask("start", "Starts the minikube profiles in parallel.");
+    registerMinikubeProfilesTask("stop", "Stops the minikube profiles in parallel.");
+    registerMinikubeProfilesTask("delete", "Deletes the minikube profiles in parallel.");
   }
 
-  // Configure tasks as they are added. This allows us to configure our own AND any user configured
-  // tasks.
-  private void configureMinikubeTaskAdditionCallback(
-      CommandExecutorFactory commandExecutorFactory) {
+  // Configure tasks as they are realized. This allows us to configure our own AND any user
+  // configured tasks, without realizing tasks that are never used.
+  private void configureMinikubeTaskAdditionCallback(MinikubeClusterService clusterService) {
     project
         .getTasks()
         .withType(MinikubeTask.class)
-        .whenTaskAdded(
+        .configureEach(
             task -> {
               task.setMinikube(minikubeExtension.getMinikubeProvider());
               task.setGroup(MINIKUBE_GROUP);
-              task.setCommandExecutorFactory(commandExecutorFactory);
+              task.setCommandExecutorFactory(clusterService.getCommandExecutorFactory());
+              task.setClusterService(clusterService);
+              task.setMaxHostFraction(project.provider(minikubeExtension::getMaxHostFraction));
+              task.setWarmPool(minikubeExtension.getWarmPool());
             });
   }
 
-  private void createMinikubeExtension(CommandExecutorFactory commandExecutorFactory) {
+  private void configureMinikubeProfilesTaskAdditionCallback(
+      MinikubeClusterService clusterService) {
+    project
+        .getTasks()
+        .withType(MinikubeProfilesTask.class)
+        .configureEach(
+            task -> {
+              task.setMinikube(minikubeExtension.getMinikubeProvider());
+              task.setGroup(MINIKUBE_GROUP);
+              task.setCommandExecutorFactory(clusterService.getCommandExecutorFactory());
+              task.setClusterService(clusterService);
+              task.setProfiles(minikubeExtension.getProfiles());
+              task.setMaxConcurrentProfiles(
+                  project.provider(minikubeExtension::getMaxConcurrentProfiles));
+              task.setMaxHostFraction(project.provider(minikubeExtension::getMaxHostFraction));
+              task.setWarmPool(minikubeExtension.getWarmPool());
+            });
+  }
+
+  private void createMinikubeExtension(MinikubeClusterService clusterService) {
     minikubeExtension =
         project
             .getExtensions()
-            .create("minikube", MinikubeExtension.class, project, commandExecutorFactory);
+            .create(
+                "minikube",
+                MinikubeExtension.class,
+                project,
+                clusterService.getCommandExecutorFactory());
+    minikubeExtension.setClusterService(clusterService);
+  }
+
+  private void registerMinikubeStartTask() {
+    project
+        .getTasks()
+        .register(
+            "minikubeStart",
+            MinikubeTask.class,
+            task -> {
+              task.setCommand("start");
+              task.setDescription("Starts the minikube cluster.");
+            });
+  }
+
+  private void registerMinikubeAwaitReadyTask(MinikubeClusterService clusterService) {
+    TaskProvider<MinikubeTask> startTask =
+        project.getTasks().withType(MinikubeTask.class).named("minikubeStart");
+    project
+        .getTasks()
+        .register(
+            "minikubeAwaitReady",
+            MinikubeAwaitReadyTask.class,
+            task -> {
+              task.setGroup(MINIKUBE_GROUP);
+              task.setDescription(
+                  "Waits for the minikube cluster to be ready, started in the background if"
+                      + " minikube.startAsync is set.");
+              task.setClusterService(clusterService);
+              task.setStartTask(startTask);
+              task.dependsOn(
+                  (Callable<Object>)
+                      () -> minikubeExtension.isStartAsync() ? Collections.emptyList() : startTask);
+            });
+
+    // Starts the cluster as soon as it is known to be needed, instead of when a task needs it.
+    String awaitReadyPath = project.absoluteProjectPath("minikubeAwaitReady");
+    project
+        .getGradle()
+        .getTaskGraph()
+        .whenReady(
+            taskGraph -> {
+              if (minikubeExtension.isStartAsync() && taskGraph.hasTask(awaitReadyPath)) {
+                ((MinikubeAwaitReadyTask) project.getTasks().getByName("minikubeAwaitReady"))
+                    .startInBackground();
+              }
+            });
   }
 
-  private void createMinikubeStartTask() {
-    MinikubeTask task = project.getTasks().create("minikubeStart", MinikubeTask.class);
-    task.setCommand("start");
-    task.setDescription("Starts the minikube cluster.");
+  private void registerMinikubeStopTask() {
+    project
+        .getTasks()
+        .register(
+            "minikubeStop",
+            MinikubeTask.class,
+            task -> {
+              task.setCommand("stop");
+              task.setDescription("Stops the minikube cluster.");
+            });
   }
 
-  private void createMinikubeStopTask() {
-    MinikubeTask task = project.getTasks().create("minikubeStop", MinikubeTask.class);
-    task.setCommand("stop");
-    task.setDescription("Stops the minikube cluster.");
+  private void registerMinikubeDeleteTask() {
+    project
+        .getTasks()
+        .register(
+            "minikubeDelete",
+            MinikubeTask.class,
+            task -> {
+              task.setCommand("delete");
+              task.setDescription("Deletes the minikube cluster.");
+            });
   }
 
-  private void createMinikubeDeleteTask() {
-    MinikubeTask task = project.getTasks().create("minikubeDelete", MinikubeTask.class);
-    task.setCommand("delete");
-    task.setDescription("Deletes the minikube cluster.");
+  /** Registers {@code minikubeStartProfiles} and the like, named after the command. */
+  private void registerMinikubeProfilesTask(String command, String description) {
+    String taskName =
+        "minikube" + Character.toUpperCase(command.charAt(0)) + command.substring(1) + "Profiles";
+    project
+        .getTasks()
+        .register(
+            taskName,
+            MinikubeProfilesTask.class,
+            task -> {
+              task.setCommand(command);
+              task.setDescription(description);
+            });
   }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube;
+
+import org.gradle.api.Named;
+
+/** A minikube profile in the {@code profiles} block of the extension. */
+public class MinikubeProfileConfiguration implements Named {
+
+  /** The profile name, passed as {@code --profile} */
+  private final String name;
+  /** Flags passed to {@code minikube start} for this profile */
+  private String[] flags = {};
+
+  public MinikubeProfileConfiguration(String name) {
+    this.name = name;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  public String[] getFlags() {
+    return flags;
+  }
+
+  public void setFlags(String[] flags) {
+    this.flags = flags;
+  }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube;
+
+import com.google.cloud.tools.minikube.util.BuildTrace;
+import com.google.cloud.tools.minikube.util.CommandExecutorFactory;
+import com.google.cloud.tools.minikube.util.HostResources;
+import com.google.cloud.tools.minikube.util.MinikubeStartState;
+import com.google.cloud.tools.minikube.util.ParallelProfileRunner;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+/** Runs a minikube command on each of several profiles in parallel. */
+public class MinikubeProfilesTask extends DefaultTask {
+
+  /** minikube executable : lazily evaluated from extension input */
+  private Property<String> minikube;
+  /** The minikube command: start, stop or delete */
+  private String command;
+  /** The profiles to run the command on */
+  private Collection<MinikubeProfileConfiguration> profiles = Collections.emptyList();
+  /** The most profiles to run the command on at once; 0 derives it from the host */
+  private final Property<Integer> maxConcurrentProfiles;
+  /** Seconds each command may run before it is destroyed; 0 means no timeout */
+  private long timeoutSeconds;
+  /** Size {@code --cpus} and {@code --memory} of each profile to the host */
+  private boolean autoSize;
+  /** Pause instead of stop, and unpause instead of start */
+  private MinikubeWarmPoolConfiguration warmPool;
+  /** The share of the host the clusters started by the build may take */
+  private final Property<Double> maxHostFraction;
+
+  private CommandExecutorFactory commandExecutorFactory;
+  private MinikubeClusterService clusterService;
+  private Path minikubeHome = MinikubeStartState.getMinikubeHome(System.getenv("MINIKUBE_HOME"));
+
+  public MinikubeProfilesTask() {
+    minikube = getProject().getObjects().property(String.class);
+    maxConcurrentProfiles = getProject().getObjects().property(Integer.class);
+    maxConcurrentProfiles.set(0);
+    maxHostFraction = getProject().getObjects().property(Double.class);
+    maxHostFraction.set(HostResources.DEFAULT_CLUSTER_FRACTION);
+  }
+
+  public MinikubeProfilesTask setCommandExecutorFactory(
+      CommandExecutorFactory commandExecutorFactory) {
+    this.commandExecutorFactory = commandExecutorFactory;
+    return this;
+  }
+
+  /**
+   * Sets the build-wide cluster state, so that a profile is started at most once per build, also
+   * when {@code minikubeStart} starts it.
+   */
+  public MinikubeProfilesTask setClusterService(MinikubeClusterService clusterService) {
+    this.clusterService = clusterService;
+    return this;
+  }
+
+  @Input
+  public String getMinikube() {
+    return minikube.get();
+  }
+
+  public void setMinikube(String minikube) {
+    this.minikube.set(minikube);
+  }
+
+  public void setMinikube(Property<String> minikube) {
+    this.minikube = minikube;
+  }
+
+  @Input
+  public String getCommand() {
+    return command;
+  }
+
+  public void setCommand(String command) {
+    this.command = command;
+  }
+
+  @Internal
+  public Collection<MinikubeProfileConfiguration> getProfiles() {
+    return profiles;
+  }
+
+  /** Sets the profiles, which are read when the task runs. */
+  public void setProfiles(Collection<MinikubeProfileConfiguration> profiles) {
+    this.profiles = profiles;
+  }
+
+  @Internal
+  public int getMaxConcurrentProfiles() {
+    return maxConcurrentProfiles.get();
+  }
+
+  public void setMaxConcurrentProfiles(int maxConcurrentProfiles) {
+    this.maxConcurrentProfiles.set(maxConcurrentProfiles);
+  }
+
+  public void setMaxConcurrentProfiles(Provider<Integer> maxConcurrentProfiles) {
+    this.maxConcurrentProfiles.set(maxConcurrentProfiles);
+  }
+
+  @Internal
+  public long getTimeoutSeconds() {
+    return timeoutSeconds;
+  }
+
+  public void setTimeoutSeconds(long timeoutSeconds) {
+    this.timeoutSeconds = timeoutSeconds;
+  }
+
+  @Input
+  public boolean isAutoSize() {
+    return autoSize;
+  }
+
+  /**
+   * Starts each profile with {@code --cpus} and {@code --memory} sized to an equal part of the host
+   * processors and memory for each of the profiles starting at once, unless its flags set them.
+   */
+  public void setAutoSize(boolean autoSize) {
+    this.autoSize = autoSize;
+  }
+
+  @Internal
+  public MinikubeWarmPoolConfiguration getWarmPool() {
+    return warmPool;
+  }
+
+  /**
+   * Sets the warm pool, which pauses clusters instead of stopping them and unpauses them instead of
+   * starting them, when enabled.
+   */
+  public void setWarmPool(MinikubeWarmPoolConfiguration warmPool) {
+    this.warmPool = warmPool;
+  }
+
+  @Internal
+  public double getMaxHostFraction() {
+    return maxHostFraction.get();
+  }
+
+  public void setMaxHostFraction(double maxHostFraction) {
+    this.maxHostFraction.set(maxHostFraction);
+  }
+
+  public void setMaxHostFraction(Provider<Double> maxHostFraction) {
+    this.maxHostFraction.set(maxHostFraction);
+  }
+
+  // @VisibleForTesting
+  void setMinikubeHome(Path minikubeHome) {
+    this.minikubeHome = minikubeHome;
+  }
+
+  @TaskAction
+  public void execMinikube() throws InterruptedException {
+    Map<String, MinikubeProfileConfiguration> profilesByName = new LinkedHashMap<>();
+    for (MinikubeProfileConfiguration profile : profiles) {
+      profilesByName.put(profile.getName(), profile);
+    }
+    if (profilesByName.isEmpty()) {
+      getLogger().lifecycle("No minikube profiles are configured");
+      setDidWork(false);
+      return;
+    }
+
+    int maxConcurrency =
+        getMaxConcurrentProfiles() > 0
+            ? getMaxConcurrentProfiles()
+            : HostResources.detect().getMaxConcurrentClusters();
+    getLogger()
+        .lifecycle(
+            "Running minikube "
+                + command
+                + " on "
+                + profilesByName.size()
+                + " profiles, at most "
+                + maxConcurrency
+                + " at a time");
+
+    int concurrentClusters = Math.min(maxConcurrency, profilesByName.size());
+    AtomicBoolean didWork = new AtomicBoolean();
+    Map<String, Throwable> failures =
+        new ParallelProfileRunner(maxConcurrency)
+            .run(
+                new ArrayList<>(profilesByName.keySet()),
+                profile -> {
+                  long startNanoTime = System.nanoTime();
+                  try {
+                    if (newCommandRunner(profilesByName.get(profile))
+                        .setConcurrentClusters(concurrentClusters)
+                        .run()) {
+                      didWork.set(true);
+                    }
+                  } finally {
+                    traceExecution(profile, startNanoTime);
+                  }
+                });
+    if (!failures.isEmpty()) {
+      throw makeFailure(failures);
+    }
+    setDidWork(didWork.get());
+  }
+
+  /** @return the failure of the profiles, caused by the failure of the first one */
+  private GradleException makeFailure(Map<String, Throwable> failures) {
+    List<Throwable> causes = new ArrayList<>();
+    for (Map.Entry<String, Throwable> failure : failures.entrySet()) {
+      getLogger()
+          .error(
+              "minikube "
+                  + command
+                  + " failed for profile "
+                  + failure.getKey()
+                  + ": "
+                  + failure.getValue().getMessage());
+      causes.add(failure.getValue());
+    }
+    GradleException failure =
+        new GradleException(
+            "minikube " + command + " failed for profiles " + String.join(", ", failures.keySet()),
+            causes.get(0));
+    causes.subList(1, causes.size()).forEach(failure::addSuppressed);
+    return failure;
+  }
+
+  /** Adds a span for the command on the profile to the build trace, if there is one. */
+  private void traceExecution(String profile, long startNanoTime) {
+    BuildTrace buildTrace =
+        commandExecutorFactory == null ? null : commandExecutorFactory.getBuildTrace();
+    if (buildTrace == null) {
+      return;
+    }
+    buildTrace.addSpan(
+        new BuildTrace.Span(
+            getPath() + " " + profile,
+            "task",
+            Thread.currentThread().getName(),
+            startNanoTime,
+            System.nanoTime(),
+            Collections.singletonMap("profile", profile)));
+  }
+
+  /**
+   * Makes the runner of the command on the profile. Only {@code start} gets the flags of the
+   * profile, since the other commands reject flags such as {@code --kubernetes-version}.
+   */
+  MinikubeCommandRunner newCommandRunner(MinikubeProfileConfiguration profile) {
+    List<String> flags = new ArrayList<>();
+    if ("start".equals(command)) {
+      flags.addAll(Arrays.asList(profile.getFlags()));
+    }
+    flags.add("--profile=" + profile.getName());
+    return new MinikubeCommandRunner(
+            getMinikube(),
+            command,
+            flags.toArray(new String[0]),
+            commandExecutorFactory,
+            getLogger())
+        .setClusterService(clusterService)
+        .setMinikubeHome(minikubeHome)
+        .setTimeoutSeconds(timeoutSeconds)
+        .setMaxHostFraction(getMaxHostFraction())
+        .setAutoSize(autoSize)
+        .setWarmPool(warmPool);
+  }
+}
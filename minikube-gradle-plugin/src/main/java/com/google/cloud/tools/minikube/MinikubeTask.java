@@ -16,14 +16,21 @@
 
 package com.google.cloud.tools.minikube;
 
+import com.google.cloud.tools.minikube.util.BuildTrace;
 import com.google.cloud.tools.minikube.util.CommandExecutorFactory;
+import com.google.cloud.tools.minikube.util.HostResources;
+import com.google.cloud.tools.minikube.util.MinikubeProfile;
+import com.google.cloud.tools.minikube.util.MinikubeStartState;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.TaskAction;
 
 /** Generic Minikube task. */
@@ -35,11 +42,26 @@ public class MinikubeTask extends DefaultTask {
   private String command;
   /** Flag passthrough */
   private String[] flags = {};
+  /** Seconds the command may run before it is destroyed; 0 means no timeout */
+  private long timeoutSeconds;
+  /** Report the progress from the JSON events of {@code --output=json} */
+  private boolean jsonProgress;
+  /** Size {@code --cpus} and {@code --memory} to the host */
+  private boolean autoSize;
+  /** Pause instead of stop, and unpause instead of start */
+  private MinikubeWarmPoolConfiguration warmPool;
+  /** The share of the host the clusters started by the build may take */
+  private final Property<Double> maxHostFraction;
 
   private CommandExecutorFactory commandExecutorFactory;
+  private MinikubeClusterService clusterService;
+  private Path minikubeHome = MinikubeStartState.getMinikubeHome(System.getenv("MINIKUBE_HOME"));
 
   public MinikubeTask() {
     minikube = getProject().getObjects().property(String.class);
+    maxHostFraction = getProject().getObjects().property(Double.class);
+    maxHostFraction.set(HostResources.DEFAULT_CLUSTER_FRACTION);
+    getOutputs().upToDateWhen(task -> isStartUpToDate());
   }
 
   public MinikubeTask setCommandExecutorFactory(CommandExecutorFactory commandExecutorFactory) {
@@ -47,6 +69,20 @@ public class MinikubeTask extends DefaultTask {
     return this;
   }
 
+  /**
+   * Sets the build-wide cluster state, so that a profile is started at most once per build. Without
+   * one, every execution runs the command.
+   */
+  public MinikubeTask setClusterService(MinikubeClusterService clusterService) {
+    this.clusterService = clusterService;
+    return this;
+  }
+
+  @Internal
+  public MinikubeClusterService getClusterService() {
+    return clusterService;
+  }
+
   @Input
   public String getMinikube() {
     return minikube.get();
@@ -78,19 +114,122 @@ public class MinikubeTask extends DefaultTask {
     this.flags = flags;
   }
 
+  /** @return the minikube profile selected by the {@code --profile} or {@code -p} flag */
+  @Internal
+  public String getProfile() {
+    return MinikubeProfile.fromArguments(Arrays.asList(flags));
+  }
+
+  // @VisibleForTesting
+  void setMinikubeHome(Path minikubeHome) {
+    this.minikubeHome = minikubeHome;
+  }
+
+  @Internal
+  public long getTimeoutSeconds() {
+    return timeoutSeconds;
+  }
+
+  public void setTimeoutSeconds(long timeoutSeconds) {
+    this.timeoutSeconds = timeoutSeconds;
+  }
+
+  @Internal
+  public boolean isJsonProgress() {
+    return jsonProgress;
+  }
+
+  public void setJsonProgress(boolean jsonProgress) {
+    this.jsonProgress = jsonProgress;
+  }
+
+  @Input
+  public boolean isAutoSize() {
+    return autoSize;
+  }
+
+  /**
+   * Starts the cluster with {@code --cpus} and {@code --memory} sized to the host processors and
+   * memory, unless the flags set them.
+   */
+  public void setAutoSize(boolean autoSize) {
+    this.autoSize = autoSize;
+  }
+
+  @Internal
+  public MinikubeWarmPoolConfiguration getWarmPool() {
+    return warmPool;
+  }
+
+  /**
+   * Sets the warm pool, which pauses clusters instead of stopping them and unpauses them instead of
+   * starting them, when enabled.
+   */
+  public void setWarmPool(MinikubeWarmPoolConfiguration warmPool) {
+    this.warmPool = warmPool;
+  }
+
+  @Internal
+  public double getMaxHostFraction() {
+    return maxHostFraction.get();
+  }
+
+  public void setMaxHostFraction(double maxHostFraction) {
+    this.maxHostFraction.set(maxHostFraction);
+  }
+
+  public void setMaxHostFraction(Provider<Double> maxHostFraction) {
+    this.maxHostFraction.set(maxHostFraction);
+  }
+
   @TaskAction
   public void execMinikube() throws IOException, InterruptedException {
-    List<String> minikubeCommand = buildMinikubeCommand();
-    commandExecutorFactory.newCommandExecutor().run(minikubeCommand);
+    long startNanoTime = System.nanoTime();
+    try {
+      if (!newCommandRunner().run()) {
+        setDidWork(false);
+      }
+    } finally {
+      traceExecution(startNanoTime);
+    }
+  }
+
+  /** Adds a span for this task execution to the build trace, if there is one. */
+  private void traceExecution(long startNanoTime) {
+    BuildTrace buildTrace =
+        commandExecutorFactory == null ? null : commandExecutorFactory.getBuildTrace();
+    if (buildTrace == null) {
+      return;
+    }
+    buildTrace.addSpan(
+        new BuildTrace.Span(
+            getPath(),
+            "task",
+            Thread.currentThread().getName(),
+            startNanoTime,
+            System.nanoTime(),
+            Collections.singletonMap("didWork", String.valueOf(getDidWork()))));
+  }
+
+  /** @return true if this is a start task and the profile is running as its flags ask for */
+  private boolean isStartUpToDate() {
+    return newCommandRunner().isStartUpToDate();
+  }
+
+  MinikubeCommandRunner newCommandRunner() {
+    return new MinikubeCommandRunner(
+            getMinikube(), command, flags, commandExecutorFactory, getLogger())
+        .setClusterService(clusterService)
+        .setMinikubeHome(minikubeHome)
+        .setTimeoutSeconds(timeoutSeconds)
+        .setJsonProgress(jsonProgress)
+        .setMaxHostFraction(getMaxHostFraction())
+        .setAutoSize(autoSize)
+        .setWarmPool(warmPool);
   }
 
   // @VisibleForTesting
   List<String> buildMinikubeCommand() {
-    List<String> execString = new ArrayList<>();
-    execString.add(getMinikube());
-    execString.add(command);
-    execString.addAll(Arrays.asList(flags));
-
-    return execString;
+    return newCommandRunner().buildMinikubeCommand();
   }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube;
+
+/** The {@code warmPool} block of the extension. */
+public class MinikubeWarmPoolConfiguration {
+
+  /** Pause clusters instead of stopping them, and unpause them on the next start */
+  private boolean enabled;
+  /** Minutes a cluster may stay paused before it is evicted */
+  private long idleTimeoutMinutes = 60;
+  /** The command evicting an idle cluster: stop or delete */
+  private String eviction = "stop";
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public long getIdleTimeoutMinutes() {
+    return idleTimeoutMinutes;
+  }
+
+  public void setIdleTimeoutMinutes(long idleTimeoutMinutes) {
+    this.idleTimeoutMinutes = idleTimeoutMinutes;
+  }
+
+  public String getEviction() {
+    return eviction;
+  }
+
+  public void setEviction(String eviction) {
+    this.eviction = eviction;
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Collects timed spans of the minikube tasks, commands and command phases of a build, and writes
+ * them as a Chrome Trace Event file that can be loaded in {@code chrome://tracing} or Perfetto.
+ * Spans on the same thread nest by time, so the phases of a command show up under the command and
+ * the command under the task that ran it.
+ */
+public class BuildTrace {
+
+  /** A timed span on a thread. */
+  public static class Span {
+    private final String name;
+    private final String category;
+    private final String threadName;
+    private final long startNanoTime;
+    private final long endNanoTime;
+    private final Map<String, String> args;
+
+    /**
+     * @param name the name shown on the timeline
+     * @param category the kind of span, such as {@code task}, {@code command} or {@code phase}
+     * @param threadName the thread the span is shown on
+     * @param startNanoTime the {@link System#nanoTime} the span started at
+     * @param endNanoTime the {@link System#nanoTime} the span ended at
+     * @param args details shown when the span is selected
+     */
+    public Span(
+        String name,
+        String category,
+        String threadName,
+        long startNanoTime,
+        long endNanoTime,
+        Map<String, String> args) {
+      this.name = name;
+      this.category = category;
+      this.threadName = threadName;
+      this.startNanoTime = startNanoTime;
+      this.endNanoTime = endNanoTime;
+      this.args = Collections.unmodifiableMap(new LinkedHashMap<>(args));
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getCategory() {
+      return category;
+    }
+
+    public String getThreadName() {
+      return threadName;
+    }
+
+    public long getStartNanoTime() {
+      return startNanoTime;
+    }
+
+    public long getEndNanoTime() {
+      return endNanoTime;
+    }
+
+    public Map<String, String> getArgs() {
+      return args;
+    }
+  }
+
+  private final String processName;
+  private final long startNanoTime;
+  private final long startTimeMillis;
+  private final List<Span> spans = new ArrayList<>();
+
+  /** @param processName the name of the build process on the timeline */
+  public BuildTrace(String processName) {
+    this(processName, System.nanoTime(), System.currentTimeMillis());
+  }
+
+  // @VisibleForTesting
+  BuildTrace(String processName, long startNanoTime, long startTimeMillis) {
+    this.processName = processName;
+    this.startNanoTime = startNanoTime;
+    this.startTimeMillis = startTimeMillis;
+  }
+
+  /** Adds a span. */
+  public synchronized void addSpan(Span span) {
+    spans.add(span);
+  }
+
+  /** @return the spans added so far, in the order they were added */
+  public synchronized List<Span> getSpans() {
+    return new ArrayList<>(spans);
+  }
+
+  /** @return the spans as a Chrome Trace Event JSON file */
+  public String toJson() {
+    List<Span> sortedSpans = getSpans();
+    // Parents first when spans start together, so that they nest.
+    sortedSpans.sort(
+        Comparator.comparingLong(Span::getStartNanoTime)
+            .thenComparing(Comparator.comparingLong(Span::getEndNanoTime).reversed()));
+
+    Map<String, Integer> threadIds = new LinkedHashMap<>();
+    for (Span span : sortedSpans) {
+      threadIds.putIfAbsent(span.getThreadName(), threadIds.size() + 1);
+    }
+
+    StringBuilder json = new StringBuilder("{\n  \"traceEvents\": [\n");
+    json.append("    {\"name\": \"process_name\", \"ph\": \"M\", \"pid\": 1, \"tid\": 0,")
+        .append(" \"args\": {\"name\": ")
+        .append(quote(processName))
+        .append("}}");
+    for (Map.Entry<String, Integer> threadId : threadIds.entrySet()) {
+      json.append(",\n    {\"name\": \"thread_name\", \"ph\": \"M\", \"pid\": 1, \"tid\": ")
+          .append(threadId.getValue())
+          .append(", \"args\": {\"name\": ")
+          .append(quote(threadId.getKey()))
+          .append("}}");
+    }
+    for (Span span : sortedSpans) {
+      json.append(",\n    {\"name\": ")
+          .append(quote(span.getName()))
+          .append(", \"cat\": ")
+          .append(quote(span.getCategory()))
+          .append(", \"ph\": \"X\", \"ts\": ")
+          .append(toMicros(span.getStartNanoTime() - startNanoTime))
+          .append(", \"dur\": ")
+          .append(toMicros(span.getEndNanoTime() - span.getStartNanoTime()))
+          .append(", \"pid\": 1, \"tid\": ")
+          .append(threadIds.get(span.getThreadName()))
+          .append(", \"args\": {");
+      String separator = "";
+      for (Map.Entry<String, String> arg : span.getArgs().entrySet()) {
+        json.append(separator)
+            .append(quote(arg.getKey()))
+            .append(": ")
+            .append(quote(arg.getValue()));
+        separator = ", ";
+      }
+      json.append("}}");
+    }
+    return json.append(
+            "\n  ],\n  \"displayTimeUnit\": \"ms\",\n  \"otherData\": {\"startTimeMillis\": ")
+        .append(startTimeMillis)
+        .append("}\n}\n")
+        .toString();
+  }
+
+  /** Writes the trace file, creating its directory if needed. */
+  public void write(Path traceFile) throws IOException {
+    Files.createDirectories(traceFile.getParent());
+    Files.write(traceFile, toJson().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String toMicros(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1_000.0);
+  }
+
+  private static String quote(String string) {
+    StringBuilder quoted = new StringBuilder("\"");
+    for (char character : string.toCharArray()) {
+      if (character == '"' || character == '\\') {
+        quoted.append('\\').append(character);
+      } else if (character < 0x20) {
+        quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) character));
+      } else {
+        quoted.append(character);
+      }
+    }
+    return quoted.append('"').toString();
+  }
+}
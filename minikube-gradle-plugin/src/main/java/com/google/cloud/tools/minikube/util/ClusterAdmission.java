@@ -0,0 +1,206 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admits the cluster starts of a build one after another while they would not fit on the host, so
+ * that concurrent starts do not thrash the host memory and end up slower than starting the clusters
+ * in turn.
+ *
+ * <p>The clusters started by the build commit their CPUs and memory from when their start is
+ * admitted until they are stopped or deleted. A start is admitted once the committed resources and
+ * its own fit in a fraction of the host processors and physical memory. Starts are admitted in the
+ * order they asked. If a start does not fit even with no other start running, waiting would only
+ * end when a cluster is stopped, so it is admitted anyway as overcommitted.
+ */
+public class ClusterAdmission {
+
+  private final HostResources hostResources;
+
+  // Guarded by this.
+  private final Queue<Ticket> waiting = new ArrayDeque<>();
+  private final Map<Ticket, ClusterSize> starting = new HashMap<>();
+  private final Map<String, ClusterSize> running = new HashMap<>();
+
+  /** @param hostResources the resources of the host the clusters run on */
+  public ClusterAdmission(HostResources hostResources) {
+    this.hostResources = hostResources;
+  }
+
+  /** @return the resources of the host the clusters run on */
+  public HostResources getHostResources() {
+    return hostResources;
+  }
+
+  /**
+   * Waits until the start of the cluster may begin.
+   *
+   * @param profile the minikube profile; its resources already committed are replaced
+   * @param size the size the cluster is started with
+   * @param maxFraction the share of the host processors and memory the clusters may take
+   * @param waitListener called with the resources committed so far if the start has to wait
+   * @return the ticket to close once the start is done
+   */
+  public Ticket admit(
+      String profile, ClusterSize size, double maxFraction, WaitListener waitListener)
+      throws InterruptedException {
+    long startTimeMillis = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
+    Ticket ticket = new Ticket(this, profile, size, startTimeMillis);
+    synchronized (this) {
+      running.remove(profile);
+      waiting.add(ticket);
+      try {
+        boolean waited = false;
+        while (waiting.peek() != ticket || !(fits(size, maxFraction) || starting.isEmpty())) {
+          if (!waited) {
+            waitListener.onWait(getCommittedCpus(), getCommittedMemoryMb());
+            waited = true;
+          }
+          wait();
+        }
+        ticket.overcommitted = !fits(size, maxFraction);
+        starting.put(ticket, size);
+      } finally {
+        waiting.remove(ticket);
+        notifyAll();
+      }
+    }
+    ticket.waitNanos = System.nanoTime() - startNanos;
+    return ticket;
+  }
+
+  /** Releases the resources of a cluster that was stopped or deleted. */
+  public synchronized void release(String profile) {
+    if (running.remove(profile) != null) {
+      notifyAll();
+    }
+  }
+
+  /** @return the CPUs committed to the clusters started or starting */
+  public synchronized int getCommittedCpus() {
+    int cpus = 0;
+    for (ClusterSize size : starting.values()) {
+      cpus += size.getCpus();
+    }
+    for (ClusterSize size : running.values()) {
+      cpus += size.getCpus();
+    }
+    return cpus;
+  }
+
+  /** @return the memory in MB committed to the clusters started or starting */
+  public synchronized long getCommittedMemoryMb() {
+    long memoryMb = 0;
+    for (ClusterSize size : starting.values()) {
+      memoryMb += size.getMemoryMb();
+    }
+    for (ClusterSize size : running.values()) {
+      memoryMb += size.getMemoryMb();
+    }
+    return memoryMb;
+  }
+
+  /** @return true if the cluster fits in the fraction of the host with the committed resources */
+  private boolean fits(ClusterSize size, double maxFraction) {
+    if (getCommittedCpus() + size.getCpus() > hostResources.getProcessors() * maxFraction) {
+      return false;
+    }
+    return hostResources.getMemoryMb() < 0
+        || getCommittedMemoryMb() + size.getMemoryMb() <= hostResources.getMemoryMb() * maxFraction;
+  }
+
+  private synchronized void finish(Ticket ticket, boolean started) {
+    starting.remove(ticket);
+    if (started) {
+      running.put(ticket.getProfile(), ticket.getSize());
+    }
+    notifyAll();
+  }
+
+  /** Called when a start has to wait for the others. */
+  public interface WaitListener {
+    void onWait(int committedCpus, long committedMemoryMb);
+  }
+
+  /**
+   * The admission of a start, closed once the start is done. The resources stay committed if the
+   * start was marked as {@link #started}, and are released otherwise.
+   */
+  public static class Ticket implements AutoCloseable {
+
+    private final ClusterAdmission clusterAdmission;
+    private final String profile;
+    private final ClusterSize size;
+    private final long startTimeMillis;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private long waitNanos;
+    private boolean overcommitted;
+    private volatile boolean started;
+
+    private Ticket(
+        ClusterAdmission clusterAdmission, String profile, ClusterSize size, long startTimeMillis) {
+      this.clusterAdmission = clusterAdmission;
+      this.profile = profile;
+      this.size = size;
+      this.startTimeMillis = startTimeMillis;
+    }
+
+    /** @return the minikube profile */
+    public String getProfile() {
+      return profile;
+    }
+
+    /** @return the size the cluster is started with */
+    public ClusterSize getSize() {
+      return size;
+    }
+
+    /** @return the epoch milliseconds the start asked to be admitted at */
+    public long getStartTimeMillis() {
+      return startTimeMillis;
+    }
+
+    /** @return how long the start waited to be admitted, in nanoseconds */
+    public long getWaitNanos() {
+      return waitNanos;
+    }
+
+    /** @return true if the start was admitted although it does not fit on the host */
+    public boolean isOvercommitted() {
+      return overcommitted;
+    }
+
+    /** Marks the cluster as started, so that its resources stay committed until it is stopped. */
+    public void started() {
+      started = true;
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        clusterAdmission.finish(this, started);
+      }
+    }
+  }
+}
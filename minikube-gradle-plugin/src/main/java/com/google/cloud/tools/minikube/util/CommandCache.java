@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Caches the output of read-only minikube commands for the rest of the build, keyed by the whole
+ * command line: the minikube binary, the subcommand and the flags, including the profile. Running a
+ * command that changes a profile drops the cached output for that profile.
+ */
+public class CommandCache {
+
+  /** Runs a command without the cache. */
+  public interface CommandRunner {
+    List<String> run(List<String> command) throws IOException, InterruptedException;
+  }
+
+  private final ConcurrentMap<List<String>, CompletableFuture<List<String>>> cache =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Runs the command, or returns its cached output if it is read-only and already ran. Concurrent
+   * runs of the same read-only command wait for the first one. Failed runs are not cached.
+   *
+   * @param command the list of command line tokens
+   * @param commandRunner runs the command if its output is not cached
+   * @return the output of the command as a list of lines
+   */
+  public List<String> run(List<String> command, CommandRunner commandRunner)
+      throws IOException, InterruptedException {
+    if (!MinikubeProfile.isReadOnly(command)) {
+      invalidateFor(command);
+      try {
+        return commandRunner.run(command);
+      } finally {
+        // Output read while the command was changing the profile may be stale.
+        invalidateFor(command);
+      }
+    }
+
+    List<String> key = Collections.unmodifiableList(new ArrayList<>(command));
+    CompletableFuture<List<String>> output = new CompletableFuture<>();
+    CompletableFuture<List<String>> cachedOutput = cache.putIfAbsent(key, output);
+    if (cachedOutput != null) {
+      return getCachedOutput(cachedOutput);
+    }
+
+    try {
+      List<String> lines = Collections.unmodifiableList(new ArrayList<>(commandRunner.run(key)));
+      output.complete(lines);
+      return lines;
+
+    } catch (Throwable ex) {
+      // Concurrent and later runs of the command would otherwise wait for the output forever.
+      cache.remove(key, output);
+      output.completeExceptionally(ex);
+      throw ex;
+    }
+  }
+
+  /** Drops the cached output invalidated by the command, if it changes a profile. */
+  public void invalidateFor(List<String> command) {
+    if (!MinikubeProfile.isMutating(command)) {
+      return;
+    }
+    String profile = MinikubeProfile.fromArguments(command);
+    cache
+        .keySet()
+        .removeIf(
+            key ->
+                MinikubeProfile.isProfileList(key)
+                    || profile.equals(MinikubeProfile.fromArguments(key)));
+  }
+
+  /** @return the number of cached commands */
+  public int size() {
+    return cache.size();
+  }
+
+  private static List<String> getCachedOutput(CompletableFuture<List<String>> cachedOutput)
+      throws IOException, InterruptedException {
+    try {
+      return cachedOutput.get();
+
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+}
@@ -16,11 +16,28 @@
 
 package com.google.cloud.tools.minikube.util;
 
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.gradle.api.logging.Logger;
 
-/** {@link CommandExecutor} Factory. */
+/**
+ * {@link CommandExecutor} Factory. The created executors share a pool of daemon threads to read the
+ * command output on, so that idle threads are reused across commands, a cache for the output of
+ * read-only minikube commands, a registry of the metrics of the commands run, and a trace of the
+ * commands run. They lock minikube profiles across processes if given a lock directory.
+ */
 public class CommandExecutorFactory {
   private final Logger logger;
+  private final ExecutorService executorService =
+      Executors.newCachedThreadPool(new OutputReaderThreadFactory());
+  private final CommandCache commandCache = new CommandCache();
+  private final CommandMetrics commandMetrics = new CommandMetrics();
+  private final BuildTrace buildTrace = new BuildTrace("Gradle build");
+  private final ClusterAdmission clusterAdmission = new ClusterAdmission(HostResources.detect());
+  private Path profileLockDirectory;
 
   /**
    * Creates a new factory.
@@ -31,7 +48,60 @@ public class CommandExecutorFactory {
     this.logger = logger;
   }
 
+  /**
+   * Makes the created executors lock the minikube profile of each command across processes.
+   *
+   * @see CommandExecutor#setProfileLockDirectory
+   */
+  public CommandExecutorFactory setProfileLockDirectory(Path profileLockDirectory) {
+    this.profileLockDirectory = profileLockDirectory;
+    return this;
+  }
+
   public CommandExecutor newCommandExecutor() {
-    return new CommandExecutor().setLogger(logger);
+    return new CommandExecutor()
+        .setLogger(logger)
+        .setExecutorService(executorService)
+        .setCommandCache(commandCache)
+        .setCommandMetrics(commandMetrics)
+        .setBuildTrace(buildTrace)
+        .setProfileLockDirectory(profileLockDirectory)
+        .setClusterAdmission(clusterAdmission);
+  }
+
+  /** @return the metrics of the commands run by the created executors */
+  public CommandMetrics getCommandMetrics() {
+    return commandMetrics;
+  }
+
+  /** @return the trace of the commands run by the created executors */
+  public BuildTrace getBuildTrace() {
+    return buildTrace;
+  }
+
+  /** @return the admission of the cluster starts of the created executors */
+  public ClusterAdmission getClusterAdmission() {
+    return clusterAdmission;
+  }
+
+  /**
+   * Shuts down the shared thread pool once the commands already running are done. Call once no more
+   * commands will be run, at the end of the build.
+   */
+  public void shutdown() {
+    executorService.shutdown();
+  }
+
+  /** Creates named daemon threads, so that the pool never keeps the JVM alive. */
+  private static class OutputReaderThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread =
+          new Thread(runnable, "minikube-command-output-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
   }
 }
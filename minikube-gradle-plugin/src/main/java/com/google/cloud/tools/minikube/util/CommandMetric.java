@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Timings and output statistics of a single command run by {@link CommandExecutor}. */
+public class CommandMetric {
+
+  private final List<String> command;
+  private final long startTimeMillis;
+  private final long spawnNanos;
+  private final long wallNanos;
+  private final Integer exitCode;
+  private final long outputLines;
+  private final long outputBytes;
+  private final long firstOutputNanos;
+  private final Map<String, Long> phaseNanos;
+
+  /**
+   * @param command the command line tokens
+   * @param startTimeMillis the epoch milliseconds the command was started at
+   * @param spawnNanos how long starting the process took
+   * @param wallNanos how long from starting the process to its exit with all output read
+   * @param exitCode the exit code, or {@code null} if the command timed out
+   * @param outputLines the number of lines of output
+   * @param outputBytes the number of bytes of output
+   * @param firstOutputNanos how long from starting the process to its first line of output, or -1
+   *     if it printed nothing
+   * @param phaseNanos how long each phase minikube announced in its output took, in the order they
+   *     started
+   */
+  public CommandMetric(
+      List<String> command,
+      long startTimeMillis,
+      long spawnNanos,
+      long wallNanos,
+      Integer exitCode,
+      long outputLines,
+      long outputBytes,
+      long firstOutputNanos,
+      Map<String, Long> phaseNanos) {
+    this.command = Collections.unmodifiableList(new ArrayList<>(command));
+    this.startTimeMillis = startTimeMillis;
+    this.spawnNanos = spawnNanos;
+    this.wallNanos = wallNanos;
+    this.exitCode = exitCode;
+    this.outputLines = outputLines;
+    this.outputBytes = outputBytes;
+    this.firstOutputNanos = firstOutputNanos;
+    this.phaseNanos = Collections.unmodifiableMap(new LinkedHashMap<>(phaseNanos));
+  }
+
+  /** @return the command line tokens */
+  public List<String> getCommand() {
+    return command;
+  }
+
+  /** @return the epoch milliseconds the command was started at */
+  public long getStartTimeMillis() {
+    return startTimeMillis;
+  }
+
+  /** @return how long starting the process took, in nanoseconds */
+  public long getSpawnNanos() {
+    return spawnNanos;
+  }
+
+  /** @return how long from starting the process to its exit with all output read, in nanoseconds */
+  public long getWallNanos() {
+    return wallNanos;
+  }
+
+  /** @return the exit code, or {@code null} if the command timed out */
+  public Integer getExitCode() {
+    return exitCode;
+  }
+
+  /** @return the number of lines of output */
+  public long getOutputLines() {
+    return outputLines;
+  }
+
+  /** @return the number of bytes of output */
+  public long getOutputBytes() {
+    return outputBytes;
+  }
+
+  /**
+   * @return how long from starting the process to its first line of output, in nanoseconds, or -1
+   *     if it printed nothing
+   */
+  public long getFirstOutputNanos() {
+    return firstOutputNanos;
+  }
+
+  /**
+   * @return how long each phase minikube announced in its output took, in nanoseconds, in the order
+   *     they started
+   */
+  public Map<String, Long> getPhaseNanos() {
+    return phaseNanos;
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Persists the docker environment of minikube profiles across builds. An entry is reused while the
+ * fingerprint of the profile {@code config.json} and the minikube binary stays the same.
+ */
+public class DockerEnvCache {
+
+  private static final String FINGERPRINT_KEY = "fingerprint";
+  private static final String ENVIRONMENT_KEY_PREFIX = "env.";
+
+  /**
+   * Makes the fingerprint of a profile. The configuration is fingerprinted by its modification time
+   * and content hash. The binary is fingerprinted by its path, size and modification time, since
+   * hashing the whole binary would take longer than running it.
+   *
+   * @param configJson the profile {@code config.json}
+   * @param minikubeBinary the minikube executable, or {@code null} if it could not be found
+   * @return the fingerprint, or {@code null} if either file does not exist
+   */
+  public static String fingerprint(Path configJson, Path minikubeBinary) throws IOException {
+    if (minikubeBinary == null
+        || !Files.isRegularFile(minikubeBinary)
+        || !Files.isRegularFile(configJson)) {
+      return null;
+    }
+
+    StringBuilder fingerprint = new StringBuilder();
+    fingerprint.append(Files.getLastModifiedTime(configJson).toMillis()).append(':');
+    fingerprint.append(sha256(Files.readAllBytes(configJson))).append(':');
+    fingerprint.append(minikubeBinary.toAbsolutePath()).append(':');
+    fingerprint.append(Files.size(minikubeBinary)).append(':');
+    fingerprint.append(Files.getLastModifiedTime(minikubeBinary).toMillis());
+    return fingerprint.toString();
+  }
+
+  /**
+   * Finds the executable the same way the command would, searching the {@code PATH} for a bare
+   * name.
+   *
+   * @param executable the path or name of the executable
+   * @param pathEnvironment the value of {@code PATH}, or {@code null} if not set
+   * @return the executable, or {@code null} if it could not be found
+   */
+  public static Path findExecutable(String executable, String pathEnvironment) {
+    if (executable.contains("/") || executable.contains(File.separator)) {
+      return Paths.get(executable);
+    }
+    if (pathEnvironment == null) {
+      return null;
+    }
+    for (String directory : pathEnvironment.split(File.pathSeparator)) {
+      if (directory.isEmpty()) {
+        continue;
+      }
+      for (String name : new String[] {executable, executable + ".exe"}) {
+        Path candidate = Paths.get(directory, name);
+        if (Files.isRegularFile(candidate) && Files.isExecutable(candidate)) {
+          return candidate;
+        }
+      }
+    }
+    return null;
+  }
+
+  private final Path cacheDirectory;
+
+  /** @param cacheDirectory the directory to keep the cached environments in */
+  public DockerEnvCache(Path cacheDirectory) {
+    this.cacheDirectory = cacheDirectory;
+  }
+
+  /**
+   * Gets the cached docker environment of the profile.
+   *
+   * @return the environment, or {@code null} if it is not cached with the same fingerprint
+   */
+  public Map<String, String> get(String profile, String fingerprint) {
+    Path cacheFile = getCacheFile(profile);
+    if (fingerprint == null || !Files.isRegularFile(cacheFile)) {
+      return null;
+    }
+
+    Properties properties = new Properties();
+    try (InputStream inputStream = Files.newInputStream(cacheFile)) {
+      properties.load(inputStream);
+    } catch (IOException | IllegalArgumentException ex) {
+      // Treats an unreadable entry as missing; it is replaced on the next put.
+      return null;
+    }
+    if (!fingerprint.equals(properties.getProperty(FINGERPRINT_KEY))) {
+      return null;
+    }
+
+    Map<String, String> environment = new HashMap<>();
+    for (String key : properties.stringPropertyNames()) {
+      if (key.startsWith(ENVIRONMENT_KEY_PREFIX)) {
+        environment.put(
+            key.substring(ENVIRONMENT_KEY_PREFIX.length()), properties.getProperty(key));
+      }
+    }
+    return environment;
+  }
+
+  /** Caches the docker environment of the profile, unless the fingerprint is {@code null}. */
+  public void put(String profile, String fingerprint, Map<String, String> environment)
+      throws IOException {
+    if (fingerprint == null) {
+      return;
+    }
+
+    Properties properties = new Properties();
+    properties.setProperty(FINGERPRINT_KEY, fingerprint);
+    for (Map.Entry<String, String> variable : environment.entrySet()) {
+      properties.setProperty(ENVIRONMENT_KEY_PREFIX + variable.getKey(), variable.getValue());
+    }
+
+    // Writes to a temporary file first so that concurrent builds never read a partial entry.
+    Files.createDirectories(cacheDirectory);
+    Path temporaryFile = Files.createTempFile(cacheDirectory, profile, ".tmp");
+    try {
+      try (OutputStream outputStream = Files.newOutputStream(temporaryFile)) {
+        properties.store(outputStream, "minikube docker-env of profile " + profile);
+      }
+      Files.move(temporaryFile, getCacheFile(profile), StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+  }
+
+  private Path getCacheFile(String profile) {
+    return cacheDirectory.resolve(profile + ".properties");
+  }
+
+  private static String sha256(byte[] bytes) {
+    try {
+      StringBuilder hex = new StringBuilder();
+      for (byte digestByte : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+        hex.append(String.format("%02x", digestByte));
+      }
+      return hex.toString();
+
+    } catch (NoSuchAlgorithmException ex) {
+      // Every Java platform implements SHA-256.
+      throw new IllegalStateException(ex);
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import groovy.json.JsonSlurper;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the docker environment of a minikube profile from its {@code config.json} and the
+ * minikube certificates, without running {@code minikube docker-env}. Only VM drivers running the
+ * docker container runtime are supported, since their docker daemon listens on a fixed port of the
+ * VM IP. Other drivers forward the daemon port, which only minikube can look up.
+ */
+public class DockerEnvResolver {
+
+  /** Drivers that run minikube in a VM with its own IP. */
+  private static final Set<String> VM_DRIVERS =
+      new HashSet<>(
+          Arrays.asList(
+              "virtualbox",
+              "vmware",
+              "vmwarefusion",
+              "kvm",
+              "kvm2",
+              "hyperkit",
+              "hyperv",
+              "parallels",
+              "xhyve"));
+
+  /** The port the docker daemon in the minikube VM listens on. */
+  private static final int DOCKER_PORT = 2376;
+
+  private static final List<String> CERTIFICATES = Arrays.asList("ca.pem", "cert.pem", "key.pem");
+
+  private final Path minikubeHome;
+
+  /** @param minikubeHome the {@code .minikube} directory */
+  public DockerEnvResolver(Path minikubeHome) {
+    this.minikubeHome = minikubeHome;
+  }
+
+  /**
+   * Resolves the variables {@code minikube docker-env --shell=none} would print for the profile.
+   *
+   * @param profile the minikube profile
+   * @return the docker environment, or {@code null} if the profile files are missing or the driver
+   *     is not supported
+   */
+  public Map<String, String> resolve(String profile) {
+    Path configJson = minikubeHome.resolve("profiles").resolve(profile).resolve("config.json");
+    if (!Files.isRegularFile(configJson)) {
+      return null;
+    }
+
+    Object config;
+    try (Reader reader = Files.newBufferedReader(configJson, StandardCharsets.UTF_8)) {
+      config = new JsonSlurper().parse(reader);
+    } catch (IOException | RuntimeException ex) {
+      return null;
+    }
+    if (!(config instanceof Map)) {
+      return null;
+    }
+    Map<?, ?> configMap = (Map<?, ?>) config;
+
+    if (!VM_DRIVERS.contains(configMap.get("Driver")) || !isDockerRuntime(configMap)) {
+      return null;
+    }
+    String ip = findControlPlaneIp(configMap.get("Nodes"));
+    if (ip == null) {
+      return null;
+    }
+    Path certPath = minikubeHome.resolve("certs");
+    for (String certificate : CERTIFICATES) {
+      if (!Files.isRegularFile(certPath.resolve(certificate))) {
+        return null;
+      }
+    }
+
+    Map<String, String> environment = new HashMap<>();
+    environment.put("DOCKER_TLS_VERIFY", "1");
+    environment.put("DOCKER_HOST", "tcp://" + ip + ":" + DOCKER_PORT);
+    environment.put("DOCKER_CERT_PATH", certPath.toString());
+    environment.put("MINIKUBE_ACTIVE_DOCKERD", profile);
+    return environment;
+  }
+
+  /** @return true if the profile runs the docker container runtime, which is the default */
+  private static boolean isDockerRuntime(Map<?, ?> configMap) {
+    Object kubernetesConfig = configMap.get("KubernetesConfig");
+    if (!(kubernetesConfig instanceof Map)) {
+      return true;
+    }
+    Object containerRuntime = ((Map<?, ?>) kubernetesConfig).get("ContainerRuntime");
+    return containerRuntime == null
+        || "".equals(containerRuntime)
+        || "docker".equals(containerRuntime);
+  }
+
+  /** @return the IP of the first control plane node, or {@code null} if there is none */
+  private static String findControlPlaneIp(Object nodes) {
+    if (!(nodes instanceof List)) {
+      return null;
+    }
+    for (Object node : (List<?>) nodes) {
+      if (node instanceof Map && Boolean.TRUE.equals(((Map<?, ?>) node).get("ControlPlane"))) {
+        Object ip = ((Map<?, ?>) node).get("IP");
+        return ip instanceof String && !((String) ip).isEmpty() ? (String) ip : null;
+      }
+    }
+    return null;
+  }
+}
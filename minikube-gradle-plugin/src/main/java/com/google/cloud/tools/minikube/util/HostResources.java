@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+/** The processors and physical memory of the host, to size concurrent minikube clusters by. */
+public class HostResources {
+
+  /** The CPUs minikube gives a cluster when {@code --cpus} is not set. */
+  public static final int DEFAULT_CLUSTER_CPUS = 2;
+
+  /** The memory in MB minikube gives a cluster when {@code --memory} is not set. */
+  public static final long DEFAULT_CLUSTER_MEMORY_MB = 2048;
+
+  /** The smallest size {@link #getAutoClusterSize} gives a cluster, the least minikube runs on. */
+  public static final ClusterSize MIN_AUTO_CLUSTER_SIZE = new ClusterSize(2, 2048);
+
+  /**
+   * The largest size {@link #getAutoClusterSize} gives a cluster, past which it is seldom faster.
+   */
+  public static final ClusterSize MAX_AUTO_CLUSTER_SIZE = new ClusterSize(8, 16 * 1024);
+
+  /**
+   * The share of the host processors and memory clusters may take by default; the rest is left to
+   * the host and the build.
+   */
+  public static final double DEFAULT_CLUSTER_FRACTION = 0.75;
+
+  /** Detects the resources of this host. */
+  public static HostResources detect() {
+    OperatingSystemMXBean operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+    long memoryMb = -1;
+    if (operatingSystem instanceof com.sun.management.OperatingSystemMXBean) {
+      memoryMb =
+          ((com.sun.management.OperatingSystemMXBean) operatingSystem).getTotalPhysicalMemorySize()
+              / (1024 * 1024);
+    }
+    return new HostResources(Runtime.getRuntime().availableProcessors(), memoryMb);
+  }
+
+  private final int processors;
+  private final long memoryMb;
+
+  /**
+   * @param processors the processors available
+   * @param memoryMb the physical memory in MB, or a negative number if unknown
+   */
+  public HostResources(int processors, long memoryMb) {
+    this.processors = processors;
+    this.memoryMb = memoryMb;
+  }
+
+  /** @return the processors available */
+  public int getProcessors() {
+    return processors;
+  }
+
+  /** @return the physical memory in MB, or a negative number if unknown */
+  public long getMemoryMb() {
+    return memoryMb;
+  }
+
+  /**
+   * Gets how many clusters of the size fit on the host at once: as many as there are CPUs for, and
+   * memory for in {@value #DEFAULT_CLUSTER_FRACTION} of the physical memory, but at least one.
+   *
+   * @param clusterCpus the CPUs of each cluster
+   * @param clusterMemoryMb the memory in MB of each cluster
+   */
+  public int getMaxConcurrentClusters(int clusterCpus, long clusterMemoryMb) {
+    long clusters = processors / Math.max(1, clusterCpus);
+    if (memoryMb >= 0) {
+      clusters =
+          Math.min(
+              clusters,
+              (long) (memoryMb * DEFAULT_CLUSTER_FRACTION) / Math.max(1, clusterMemoryMb));
+    }
+    return (int) Math.max(1, Math.min(Integer.MAX_VALUE, clusters));
+  }
+
+  /** @return how many clusters of minikube's default size fit on the host at once */
+  public int getMaxConcurrentClusters() {
+    return getMaxConcurrentClusters(DEFAULT_CLUSTER_CPUS, DEFAULT_CLUSTER_MEMORY_MB);
+  }
+
+  /**
+   * Sizes clusters to the host: each of the clusters running at once gets an equal part of the
+   * fraction of the host processors and physical memory, within {@link #MIN_AUTO_CLUSTER_SIZE} and
+   * {@link #MAX_AUTO_CLUSTER_SIZE}. The memory is rounded down to a multiple of 256 MB.
+   *
+   * @param concurrentClusters the clusters running at once
+   * @param maxFraction the share of the host the clusters may take
+   * @return the size of each cluster, with minikube's default memory if the memory is unknown
+   */
+  public ClusterSize getAutoClusterSize(int concurrentClusters, double maxFraction) {
+    int clusters = Math.max(1, concurrentClusters);
+    int cpus = (int) (processors * maxFraction / clusters);
+    cpus =
+        Math.max(MIN_AUTO_CLUSTER_SIZE.getCpus(), Math.min(MAX_AUTO_CLUSTER_SIZE.getCpus(), cpus));
+    long clusterMemoryMb = DEFAULT_CLUSTER_MEMORY_MB;
+    if (memoryMb >= 0) {
+      clusterMemoryMb = (long) (memoryMb * maxFraction / clusters) / 256 * 256;
+      clusterMemoryMb =
+          Math.max(
+              MIN_AUTO_CLUSTER_SIZE.getMemoryMb(),
+              Math.min(MAX_AUTO_CLUSTER_SIZE.getMemoryMb(), clusterMemoryMb));
+    }
+    return new ClusterSize(cpus, clusterMemoryMb);
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Splits the output of a minikube command into phases. minikube announces each step of a command
+ * with a line ending in an ellipsis, such as {@code Starting VM...} or an emoji followed by {@code
+ * Creating virtualbox VM ...}. With {@code --output=json}, each step event starts a phase instead.
+ * A phase lasts from its line until the next phase starts or the command ends.
+ */
+class MinikubeOutputPhases implements Consumer<String> {
+
+  private final List<String> names = new ArrayList<>();
+  private final List<Long> startNanoTimes = new ArrayList<>();
+
+  /** Starts a new phase if the output line announces one. */
+  @Override
+  public synchronized void accept(String line) {
+    String name = parsePhaseName(line);
+    if (name != null) {
+      names.add(name);
+      startNanoTimes.add(System.nanoTime());
+    }
+  }
+
+  /**
+   * Ends the last phase.
+   *
+   * @param threadName the thread to show the phases on
+   * @param endNanoTime the {@link System#nanoTime} the command ended at
+   * @return the phases, in the order they started
+   */
+  synchronized List<BuildTrace.Span> finish(String threadName, long endNanoTime) {
+    List<BuildTrace.Span> phases = new ArrayList<>();
+    for (int i = 0; i < names.size(); i++) {
+      long phaseEndNanoTime = i + 1 < names.size() ? startNanoTimes.get(i + 1) : endNanoTime;
+      phases.add(
+          new BuildTrace.Span(
+              names.get(i),
+              "phase",
+              threadName,
+              startNanoTimes.get(i),
+              phaseEndNanoTime,
+              Collections.emptyMap()));
+    }
+    return phases;
+  }
+
+  /**
+   * @return the name of the phase the output line announces, without its ellipsis and leading
+   *     symbols, or {@code null} if it does not announce one
+   */
+  // @VisibleForTesting
+  static String parsePhaseName(String line) {
+    MinikubeJsonEvent event = MinikubeJsonEvent.parse(line);
+    if (event != null) {
+      return event.isStep() && !event.getName().isEmpty() ? event.getName() : null;
+    }
+
+    String trimmed = line.trim();
+    int end;
+    if (trimmed.endsWith("...")) {
+      end = trimmed.length() - 3;
+    } else if (trimmed.endsWith("\u2026")) { // horizontal ellipsis
+      end = trimmed.length() - 1;
+    } else {
+      return null;
+    }
+
+    int start = 0;
+    while (start < end && !Character.isLetterOrDigit(trimmed.codePointAt(start))) {
+      start += Character.charCount(trimmed.codePointAt(start));
+    }
+    while (end > start && Character.isWhitespace(trimmed.charAt(end - 1))) {
+      end--;
+    }
+    if (start == end) {
+      return null;
+    }
+    return trimmed.substring(start, end);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/** Finds the minikube profile a command runs against, and whether the command changes it. */
+public class MinikubeProfile {
+
+  /** The profile minikube uses when none is given. */
+  public static final String DEFAULT = "minikube";
+
+  /** Subcommands that only read the state of a profile. */
+  private static final Set<String> READ_ONLY_SUBCOMMANDS =
+      new HashSet<>(Arrays.asList("docker-env", "ip", "status", "version"));
+
+  /** Subcommands that change the state of a profile. */
+  private static final Set<String> MUTATING_SUBCOMMANDS =
+      new HashSet<>(Arrays.asList("start", "stop", "delete", "pause", "unpause"));
+
+  /**
+   * Finds the profile selected by the {@code --profile} or {@code -p} flag. As with minikube, the
+   * last occurrence wins.
+   *
+   * @param arguments the command line tokens
+   * @return the selected profile, or {@link #DEFAULT} if none is selected
+   */
+  public static String fromArguments(List<String> arguments) {
+    String profile = DEFAULT;
+    for (int i = 0; i < arguments.size(); i++) {
+      String argument = arguments.get(i);
+      if (argument.startsWith("--profile=")) {
+        profile = argument.substring("--profile=".length());
+      } else if (argument.startsWith("-p=")) {
+        profile = argument.substring("-p=".length());
+      } else if ((argument.equals("--profile") || argument.equals("-p"))
+          && i + 1 < arguments.size()) {
+        profile = arguments.get(++i);
+      }
+    }
+    return profile.isEmpty() ? DEFAULT : profile;
+  }
+
+  /** @return true if the minikube command only reads the state of a profile */
+  public static boolean isReadOnly(List<String> command) {
+    return command.size() > 1
+        && (READ_ONLY_SUBCOMMANDS.contains(command.get(1)) || isProfileList(command));
+  }
+
+  /** @return true if the minikube command changes the state of a profile */
+  public static boolean isMutating(List<String> command) {
+    if (command.size() < 2) {
+      return false;
+    }
+    if (MUTATING_SUBCOMMANDS.contains(command.get(1))) {
+      return true;
+    }
+    return command.size() > 2
+        && "addons".equals(command.get(1))
+        && ("enable".equals(command.get(2)) || "disable".equals(command.get(2)));
+  }
+
+  /** @return true if the command is {@code minikube profile list}, which reads all profiles */
+  public static boolean isProfileList(List<String> command) {
+    return command.size() > 2 && "profile".equals(command.get(1)) && "list".equals(command.get(2));
+  }
+
+  private MinikubeProfile() {}
+}
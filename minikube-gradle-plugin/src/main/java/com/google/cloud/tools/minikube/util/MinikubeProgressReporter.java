@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.gradle.api.logging.Logger;
+
+/**
+ * Reports the progress of a minikube command run with {@code --output=json} as its events are read.
+ * Logs each step as it starts, along with warnings and errors, and the duration of every step once
+ * the command is done.
+ */
+public class MinikubeProgressReporter implements Consumer<String> {
+
+  private final Logger logger;
+  private final Map<String, Duration> stepDurations = new LinkedHashMap<>();
+  private String currentStep;
+  private long currentStepNanoTime;
+
+  /** @param logger for logging the progress */
+  public MinikubeProgressReporter(Logger logger) {
+    this.logger = logger;
+  }
+
+  /** Reports the event on the output line, if it is a minikube JSON event. */
+  @Override
+  public synchronized void accept(String line) {
+    MinikubeJsonEvent event = MinikubeJsonEvent.parse(line);
+    if (event == null) {
+      return;
+    }
+
+    switch (event.getType()) {
+      case MinikubeJsonEvent.STEP_TYPE:
+        endCurrentStep();
+        currentStep = event.getName().isEmpty() ? event.getMessage() : event.getName();
+        currentStepNanoTime = System.nanoTime();
+        logger.lifecycle(formatStep(event));
+        break;
+      case MinikubeJsonEvent.WARNING_TYPE:
+        logger.warn(event.getMessage());
+        break;
+      case MinikubeJsonEvent.ERROR_TYPE:
+        logger.error(event.getMessage());
+        break;
+      case MinikubeJsonEvent.INFO_TYPE:
+        logger.lifecycle(event.getMessage());
+        break;
+      default:
+        logger.debug(event.getMessage());
+    }
+  }
+
+  /**
+   * Ends the last step and logs the duration of every step. Call once the command is done.
+   *
+   * @return the duration of each step, in the order they started
+   */
+  public synchronized Map<String, Duration> finish() {
+    endCurrentStep();
+    if (!stepDurations.isEmpty()) {
+      StringBuilder summary = new StringBuilder("minikube step durations:");
+      for (Map.Entry<String, Duration> stepDuration : stepDurations.entrySet()) {
+        summary
+            .append(System.lineSeparator())
+            .append(
+                String.format(
+                    Locale.ROOT,
+                    "  %-32s %8.3f s",
+                    stepDuration.getKey(),
+                    stepDuration.getValue().toMillis() / 1000.0));
+      }
+      logger.lifecycle(summary.toString());
+    }
+    return Collections.unmodifiableMap(new LinkedHashMap<>(stepDurations));
+  }
+
+  /** @return the step currently running, or {@code null} if none started or the command is done */
+  public synchronized String getCurrentStep() {
+    return currentStep;
+  }
+
+  private void endCurrentStep() {
+    if (currentStep == null) {
+      return;
+    }
+    Duration duration = Duration.ofNanos(System.nanoTime() - currentStepNanoTime);
+    stepDurations.merge(currentStep, duration, Duration::plus);
+    currentStep = null;
+  }
+
+  private static String formatStep(MinikubeJsonEvent event) {
+    StringBuilder step = new StringBuilder("minikube ");
+    if (event.getCurrentStep() >= 0 && event.getTotalSteps() > 0) {
+      step.append('[')
+          .append(event.getCurrentStep())
+          .append('/')
+          .append(event.getTotalSteps())
+          .append("] ");
+    }
+    step.append(event.getName());
+    if (!event.getMessage().isEmpty() && !event.getMessage().equals(event.getName())) {
+      step.append(event.getName().isEmpty() ? "" : ": ").append(event.getMessage());
+    }
+    return step.toString();
+  }
+}
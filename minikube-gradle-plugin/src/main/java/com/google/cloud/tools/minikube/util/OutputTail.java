@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Retains the last lines of command output, bounded by both a number of lines and a total number of
+ * characters. Older lines are dropped as newer lines are added.
+ */
+public class OutputTail {
+
+  private final int maxLines;
+  private final long maxCharacters;
+
+  private final Deque<String> lines = new ArrayDeque<>();
+  private long characters;
+  private long droppedLines;
+  private long lineCount;
+  private long firstLineNanoTime;
+  private long lastLineNanoTime;
+
+  /**
+   * @param maxLines the maximum number of lines to retain
+   * @param maxCharacters the maximum total number of characters to retain
+   */
+  public OutputTail(int maxLines, long maxCharacters) {
+    if (maxLines < 0 || maxCharacters < 0) {
+      throw new IllegalArgumentException("Output tail limits must not be negative");
+    }
+    this.maxLines = maxLines;
+    this.maxCharacters = maxCharacters;
+  }
+
+  /** Adds a line, dropping the oldest lines that no longer fit. */
+  public synchronized void add(String line) {
+    lineCount++;
+    lastLineNanoTime = System.nanoTime();
+    if (lineCount == 1) {
+      firstLineNanoTime = lastLineNanoTime;
+    }
+
+    lines.addLast(line);
+    characters += line.length();
+
+    while (!lines.isEmpty() && (lines.size() > maxLines || characters > maxCharacters)) {
+      characters -= lines.removeFirst().length();
+      droppedLines++;
+    }
+  }
+
+  /** @return the retained lines, oldest first */
+  public synchronized List<String> getLines() {
+    return new ArrayList<>(lines);
+  }
+
+  /** @return the number of lines added, including lines no longer retained */
+  public synchronized long getLineCount() {
+    return lineCount;
+  }
+
+  /** @return the {@link System#nanoTime} the first line was added at */
+  public synchronized long getFirstLineNanoTime() {
+    return firstLineNanoTime;
+  }
+
+  /** @return the {@link System#nanoTime} the last line was added at */
+  public synchronized long getLastLineNanoTime() {
+    return lastLineNanoTime;
+  }
+
+  /** @return the number of lines that were added but are no longer retained */
+  public synchronized long getDroppedLines() {
+    return droppedLines;
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs an action on each of several minikube profiles in parallel, at most a given number at a
+ * time. Every action runs to the end even if others fail, so that no profile is left half started.
+ */
+public class ParallelProfileRunner {
+
+  /** An action on a single profile, such as starting it. */
+  public interface ProfileAction {
+    void run(String profile) throws Exception;
+  }
+
+  private final int maxConcurrency;
+
+  /** @param maxConcurrency the most profiles to run the action on at once */
+  public ParallelProfileRunner(int maxConcurrency) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("Max concurrency must be at least 1: " + maxConcurrency);
+    }
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  /** @return the most profiles to run the action on at once */
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  /**
+   * Runs the action on each profile and waits for all of them. The actions run on a new pool of
+   * daemon threads, which is shut down once they are done.
+   *
+   * @param profiles the profiles, in the order to begin the action on them
+   * @param action the action
+   * @return the failures by profile, in the order of the profiles, or an empty map if none failed
+   * @throws InterruptedException if interrupted while waiting, after interrupting the actions
+   */
+  public Map<String, Throwable> run(List<String> profiles, ProfileAction action)
+      throws InterruptedException {
+    Map<String, Throwable> failures = new LinkedHashMap<>();
+    if (profiles.isEmpty()) {
+      return failures;
+    }
+
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService executorService =
+        Executors.newFixedThreadPool(
+            Math.min(maxConcurrency, profiles.size()),
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, "minikube-profile-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (String profile : profiles) {
+        results.add(
+            executorService.submit(
+                () -> {
+                  action.run(profile);
+                  return null;
+                }));
+      }
+      for (int i = 0; i < profiles.size(); i++) {
+        try {
+          results.get(i).get();
+        } catch (ExecutionException ex) {
+          failures.put(profiles.get(i), ex.getCause());
+        }
+      }
+      return failures;
+
+    } catch (InterruptedException ex) {
+      executorService.shutdownNow();
+      throw ex;
+
+    } finally {
+      executorService.shutdown();
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Destroys a process together with its descendants. minikube forks drivers and ssh sessions that
+ * keep running if only minikube itself is destroyed.
+ *
+ * <p>Descendants are found with {@code Process.descendants()}, which is only available on Java 9
+ * and later. On Java 8 only the process itself is destroyed.
+ */
+class ProcessTree {
+
+  /**
+   * Forcibly destroys the process and all of its descendants.
+   *
+   * @return the number of processes destroyed
+   */
+  static int destroyForcibly(Process process) {
+    // Finds the descendants first, since they are reparented once the process is destroyed.
+    List<Object> descendants = findDescendants(process);
+
+    process.destroyForcibly();
+    int destroyed = 1;
+
+    for (Object descendant : descendants) {
+      if (destroyProcessHandle(descendant)) {
+        destroyed++;
+      }
+    }
+    return destroyed;
+  }
+
+  /** @return the {@code ProcessHandle}s of the process descendants, or empty if not available */
+  private static List<Object> findDescendants(Process process) {
+    try {
+      Method descendantsMethod = Process.class.getMethod("descendants");
+      Stream<?> descendants = (Stream<?>) descendantsMethod.invoke(process);
+      if (descendants == null) {
+        return Collections.emptyList();
+      }
+      return descendants.collect(Collectors.toList());
+
+    } catch (ReflectiveOperationException | RuntimeException ex) {
+      return Collections.emptyList();
+    }
+  }
+
+  /** @return true if the {@code ProcessHandle} was requested to be destroyed */
+  private static boolean destroyProcessHandle(Object processHandle) {
+    try {
+      Method destroyMethod = Class.forName("java.lang.ProcessHandle").getMethod("destroyForcibly");
+      return (Boolean) destroyMethod.invoke(processHandle);
+
+    } catch (ReflectiveOperationException | RuntimeException ex) {
+      return false;
+    }
+  }
+
+  private ProcessTree() {}
+}
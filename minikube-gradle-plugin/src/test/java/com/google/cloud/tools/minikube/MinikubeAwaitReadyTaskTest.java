@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.minikube.util.CommandExecutor;
+import com.google.cloud.tools.minikube.util.CommandExecutorFactory;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for MinikubeAwaitReadyTask */
+public class MinikubeAwaitReadyTaskTest {
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private CommandExecutor commandExecutorMock;
+  private MinikubeClusterService clusterService;
+  private MinikubeTask startTask;
+  private MinikubeAwaitReadyTask awaitReadyTask;
+
+  @Before
+  public void setUp() throws IOException {
+    commandExecutorMock = mock(CommandExecutor.class);
+    when(commandExecutorMock.setOutputTail(anyInt(), anyLong())).thenReturn(commandExecutorMock);
+    CommandExecutorFactory commandExecutorFactoryMock = mock(CommandExecutorFactory.class);
+    when(commandExecutorFactoryMock.newCommandExecutor()).thenReturn(commandExecutorMock);
+    clusterService = new MinikubeClusterService(commandExecutorFactoryMock);
+
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.newFolder()).build();
+    Path minikubeHome = tmp.newFolder().toPath();
+    startTask =
+        project
+            .getTasks()
+            .create(
+                "minikubeStart",
+                MinikubeTask.class,
+                minikubeTask -> {
+                  minikubeTask.setMinikube("minikube");
+                  minikubeTask.setCommand("start");
+                  minikubeTask.setCommandExecutorFactory(commandExecutorFactoryMock);
+                  minikubeTask.setClusterService(clusterService);
+                  minikubeTask.setMinikubeHome(minikubeHome);
+                });
+    awaitReadyTask =
+        project
+            .getTasks()
+            .create(
+                "minikubeAwaitReady",
+                MinikubeAwaitReadyTask.class,
+                task -> {
+                  task.setClusterService(clusterService);
+                  task.setStartTask(project.provider(() -> startTask));
+                });
+  }
+
+  @Test
+  public void testAwaitReady_backgroundStart() throws IOException, InterruptedException {
+    awaitReadyTask.startInBackground();
+    awaitReadyTask.startInBackground();
+    awaitReadyTask.awaitReady();
+
+    Assert.assertTrue(clusterService.isStarted("minikube"));
+
+    // The start task does not start the profile again.
+    startTask.execMinikube();
+    Assert.assertFalse(startTask.getDidWork());
+    verify(commandExecutorMock).run(Arrays.asList("minikube", "start"));
+  }
+
+  @Test
+  public void testAwaitReady_backgroundStartFailed() throws IOException, InterruptedException {
+    GradleException startFailure = new GradleException("start failed");
+    when(commandExecutorMock.run(Arrays.asList("minikube", "start"))).thenThrow(startFailure);
+
+    awaitReadyTask.startInBackground();
+    try {
+      awaitReadyTask.awaitReady();
+      Assert.fail("Expected a GradleException to be thrown");
+    } catch (GradleException ex) {
+      Assert.assertSame(startFailure, ex);
+    }
+    Assert.assertFalse(clusterService.isStarted("minikube"));
+  }
+
+  @Test
+  public void testAwaitReady_noBackgroundStart() throws InterruptedException {
+    awaitReadyTask.awaitReady();
+
+    Assert.assertFalse(awaitReadyTask.getDidWork());
+  }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.google.cloud.tools.minikube.util.BuildTrace;
+import com.google.cloud.tools.minikube.util.CommandExecutorFactory;
+import com.google.cloud.tools.minikube.util.CommandMetric;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for MinikubeClusterService */
+public class MinikubeClusterServiceTest {
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private CommandExecutorFactory commandExecutorFactoryMock;
+  private MinikubeClusterService clusterService;
+  private AtomicInteger starts;
+  private AtomicInteger stops;
+
+  @Before
+  public void setUp() {
+    commandExecutorFactoryMock = mock(CommandExecutorFactory.class);
+    clusterService = new MinikubeClusterService(commandExecutorFactoryMock);
+    starts = new AtomicInteger();
+    stops = new AtomicInteger();
+  }
+
+  @Test
+  public void testStart_oncePerProfile() throws IOException, InterruptedException {
+    Assert.assertTrue(clusterService.start("minikube", starts::incrementAndGet));
+    Assert.assertFalse(clusterService.start("minikube", starts::incrementAndGet));
+    Assert.assertTrue(clusterService.start("other", starts::incrementAndGet));
+
+    Assert.assertEquals(2, starts.get());
+    Assert.assertTrue(clusterService.isStarted("minikube"));
+    Assert.assertTrue(clusterService.isStarted("other"));
+  }
+
+  @Test
+  public void testStart_concurrent() throws InterruptedException {
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] =
+          new Thread(
+              () -> {
+                try {
+                  clusterService.start("minikube", starts::incrementAndGet);
+                } catch (IOException | InterruptedException ex) {
+                  throw new AssertionError(ex);
+                }
+              });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals(1, starts.get());
+  }
+
+  @Test
+  public void testStart_retriedAfterFailure() throws IOException, InterruptedException {
+    try {
+      clusterService.start(
+          "minikube",
+          () -> {
+            throw new IOException("start failed");
+          });
+      Assert.fail("start should have failed");
+    } catch (IOException ex) {
+      Assert.assertEquals("start failed", ex.getMessage());
+    }
+    Assert.assertFalse(clusterService.isStarted("minikube"));
+
+    Assert.assertTrue(clusterService.start("minikube", starts::incrementAndGet));
+    Assert.assertEquals(1, starts.get());
+  }
+
+  @Test
+  public void testStop_startsAgain() throws IOException, InterruptedException {
+    clusterService.start("minikube", starts::incrementAndGet);
+    clusterService.stop("minikube", stops::incrementAndGet);
+
+    Assert.assertFalse(clusterService.isStarted("minikube"));
+    Assert.assertTrue(clusterService.start("minikube", starts::incrementAndGet));
+    Assert.assertEquals(2, starts.get());
+    Assert.assertEquals(1, stops.get());
+  }
+
+  @Test
+  public void testRelease_shutsDownWithLastUser() {
+    clusterService.retain();
+    clusterService.retain();
+
+    clusterService.release();
+    verify(commandExecutorFactoryMock, never()).shutdown();
+    Assert.assertEquals(1, clusterService.getUserCount());
+
+    clusterService.release();
+    verify(commandExecutorFactoryMock).shutdown();
+    Assert.assertEquals(0, clusterService.getUserCount());
+  }
+
+  @Test
+  public void testRelease_writesMetricsReport() throws IOException {
+    CommandExecutorFactory commandExecutorFactory = new CommandExecutorFactory(null);
+    commandExecutorFactory
+        .getCommandMetrics()
+        .record(
+            new CommandMetric(
+                Arrays.asList("minikube", "start"), 0, 1, 2, 0, 0, 0, -1, new HashMap<>()));
+    MinikubeClusterService clusterService = new MinikubeClusterService(commandExecutorFactory);
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.getRoot()).build();
+    clusterService.setMetricsReportFile(
+        project.getLayout().getBuildDirectory().file("minikube/metrics.json"));
+    clusterService.retain();
+
+    clusterService.release();
+
+    Path metricsReportFile = project.getBuildDir().toPath().resolve("minikube/metrics.json");
+    Assert.assertEquals(
+        commandExecutorFactory.getCommandMetrics().toJson(),
+        new String(Files.readAllBytes(metricsReportFile), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testRelease_writesTrace() throws IOException {
+    CommandExecutorFactory commandExecutorFactory = new CommandExecutorFactory(null);
+    commandExecutorFactory
+        .getBuildTrace()
+        .addSpan(new BuildTrace.Span(":minikubeStart", "task", "main", 0, 1, new HashMap<>()));
+    MinikubeClusterService clusterService = new MinikubeClusterService(commandExecutorFactory);
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.getRoot()).build();
+    clusterService.setTraceFile(
+        project.getLayout().getBuildDirectory().file("minikube/trace.json"));
+    clusterService.retain();
+
+    clusterService.release();
+
+    Path traceFile = project.getBuildDir().toPath().resolve("minikube/trace.json");
+    Assert.assertEquals(
+        commandExecutorFactory.getBuildTrace().toJson(),
+        new String(Files.readAllBytes(traceFile), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testStartInBackground() throws InterruptedException, ExecutionException {
+    CompletableFuture<Void> backgroundStart =
+        clusterService.startInBackground(
+            "minikube", () -> clusterService.start("minikube", starts::incrementAndGet));
+    CompletableFuture<Void> secondBackgroundStart =
+        clusterService.startInBackground("minikube", starts::incrementAndGet);
+    backgroundStart.get();
+
+    Assert.assertSame(backgroundStart, secondBackgroundStart);
+    Assert.assertSame(backgroundStart, clusterService.getBackgroundStart("minikube"));
+    Assert.assertNull(clusterService.getBackgroundStart("other"));
+    Assert.assertEquals(1, starts.get());
+    Assert.assertTrue(clusterService.isStarted("minikube"));
+  }
+
+  @Test
+  public void testStartInBackground_failed() throws InterruptedException {
+    IOException startFailure = new IOException("start failed");
+    CompletableFuture<Void> backgroundStart =
+        clusterService.startInBackground(
+            "minikube",
+            () ->
+                clusterService.start(
+                    "minikube",
+                    () -> {
+                      throw startFailure;
+                    }));
+
+    try {
+      backgroundStart.get();
+      Assert.fail("Expected an ExecutionException to be thrown");
+    } catch (ExecutionException ex) {
+      Assert.assertSame(startFailure, ex.getCause());
+    }
+    Assert.assertFalse(clusterService.isStarted("minikube"));
+  }
+
+  @Test
+  public void testStartInBackground_error() throws InterruptedException {
+    AssertionError startError = new AssertionError("start error");
+    CompletableFuture<Void> backgroundStart =
+        clusterService.startInBackground(
+            "minikube",
+            () -> {
+              throw startError;
+            });
+
+    try {
+      backgroundStart.get();
+      Assert.fail("Expected an ExecutionException to be thrown");
+    } catch (ExecutionException ex) {
+      Assert.assertSame(startError, ex.getCause());
+    }
+  }
+
+  @Test
+  public void testRelease_waitsForBackgroundStart() throws InterruptedException {
+    CountDownLatch startRunning = new CountDownLatch(1);
+    clusterService.retain();
+    CompletableFuture<Void> backgroundStart =
+        clusterService.startInBackground(
+            "minikube",
+            () -> {
+              startRunning.countDown();
+              Thread.sleep(200);
+              starts.incrementAndGet();
+            });
+    startRunning.await();
+
+    clusterService.release();
+
+    Assert.assertTrue(backgroundStart.isDone());
+    Assert.assertEquals(1, starts.get());
+    verify(commandExecutorFactoryMock).shutdown();
+  }
+
+  @Test
+  public void testRegister_sharedAcrossProjects() {
+    Project rootProject = ProjectBuilder.builder().withProjectDir(tmp.getRoot()).build();
+    Project subproject = ProjectBuilder.builder().withParent(rootProject).withName("sub").build();
+
+    MinikubeClusterService rootService = MinikubeClusterService.register(rootProject);
+    MinikubeClusterService subprojectService = MinikubeClusterService.register(subproject);
+
+    Assert.assertSame(rootService, subprojectService);
+    Assert.assertSame(
+        rootService, rootProject.getExtensions().getByName(MinikubeClusterService.EXTENSION_NAME));
+    Assert.assertEquals(2, rootService.getUserCount());
+  }
+
+  @Test
+  public void testRegister_reportsUnderBuildDirSetLater() throws IOException {
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.getRoot()).build();
+    MinikubeClusterService clusterService = MinikubeClusterService.register(project);
+    clusterService
+        .getCommandExecutorFactory()
+        .getCommandMetrics()
+        .record(
+            new CommandMetric(
+                Arrays.asList("minikube", "start"), 0, 1, 2, 0, 0, 0, -1, new HashMap<>()));
+    clusterService
+        .getCommandExecutorFactory()
+        .getBuildTrace()
+        .addSpan(new BuildTrace.Span(":minikubeStart", "task", "main", 0, 1, new HashMap<>()));
+
+    // As a build script configuring buildDir after applying the plugin would.
+    project.setBuildDir("out");
+    clusterService.release();
+
+    Path reportDirectory = tmp.getRoot().toPath().resolve("out").resolve("minikube");
+    Assert.assertTrue(Files.exists(reportDirectory.resolve("metrics.json")));
+    Assert.assertTrue(Files.exists(reportDirectory.resolve("trace.json")));
+    Assert.assertFalse(Files.exists(tmp.getRoot().toPath().resolve("build")));
+  }
+}
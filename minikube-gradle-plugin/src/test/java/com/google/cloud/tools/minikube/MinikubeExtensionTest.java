@@ -17,6 +17,7 @@
 package com.google.cloud.tools.minikube;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -24,6 +25,9 @@ import static org.mockito.Mockito.when;
 import com.google.cloud.tools.minikube.util.CommandExecutor;
 import com.google.cloud.tools.minikube.util.CommandExecutorFactory;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -31,14 +35,21 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.gradle.api.Project;
+import org.gradle.api.provider.Provider;
 import org.gradle.testfixtures.ProjectBuilder;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /** Tests for MinikubeExtension */
 public class MinikubeExtensionTest {
 
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private Project project;
+  private Path minikubeHome;
   private CommandExecutor commandExecutorMock;
   private CommandExecutorFactory commandExecutorFactoryMock;
   private MinikubeExtension minikube;
@@ -56,8 +67,9 @@ public class MinikubeExtensionTest {
   }
 
   @Before
-  public void setUp() {
-    Project project = ProjectBuilder.builder().build();
+  public void setUp() throws IOException {
+    project = ProjectBuilder.builder().withProjectDir(tmp.newFolder()).build();
+    minikubeHome = tmp.newFolder(".minikube").toPath();
 
     // Mocks the CommandExecutor.
     commandExecutorMock = mock(CommandExecutor.class);
@@ -67,6 +79,7 @@ public class MinikubeExtensionTest {
     // Creates an extension to test on.
     minikube = new MinikubeExtension(project, commandExecutorFactoryMock);
     minikube.setMinikube("/test/path/to/minikube");
+    minikube.setMinikubeHome(minikubeHome);
 
     expectedCommand =
         new ArrayList<>(Arrays.asList("/test/path/to/minikube", "docker-env", "--shell=none"));
@@ -121,4 +134,151 @@ public class MinikubeExtensionTest {
       Assert.assertEquals("Minikube profile must not be null", ex.getMessage());
     }
   }
+
+  @Test
+  public void testGetDockerEnvProvider_lazyAndMemoized() throws IOException, InterruptedException {
+    String profile = "testProfile";
+    expectedCommand.add("--profile=".concat(profile));
+    when(commandExecutorMock.run(expectedCommand)).thenReturn(dockerEnvOutput);
+
+    Provider<Map<String, String>> dockerEnv = minikube.getDockerEnvProvider(profile);
+    verify(commandExecutorMock, never()).run(expectedCommand);
+
+    Assert.assertEquals(expectedMap, dockerEnv.get());
+    Assert.assertEquals(expectedMap, minikube.getDockerEnvProvider(profile).get());
+    verify(commandExecutorMock).run(expectedCommand);
+  }
+
+  @Test
+  public void testGetDockerEnvProvider_withDefaultProfile()
+      throws IOException, InterruptedException {
+    expectedCommand.add("--profile=");
+    when(commandExecutorMock.run(expectedCommand)).thenReturn(dockerEnvOutput);
+
+    Assert.assertEquals(expectedMap, minikube.getDockerEnvProvider().get());
+    Assert.assertSame(minikube.getDockerEnvProvider(), minikube.getDockerEnvProvider(""));
+  }
+
+  @Test
+  public void testGetDockerEnv_cachedAcrossBuilds() throws IOException, InterruptedException {
+    Path minikubeBinary = tmp.newFile("minikube").toPath();
+    Path profileDirectory = minikubeHome.resolve("profiles").resolve("testProfile");
+    Files.createDirectories(profileDirectory);
+    Files.write(profileDirectory.resolve("config.json"), "{}".getBytes(StandardCharsets.UTF_8));
+
+    List<String> command =
+        Arrays.asList(
+            minikubeBinary.toString(), "docker-env", "--shell=none", "--profile=testProfile");
+    when(commandExecutorMock.run(command)).thenReturn(dockerEnvOutput);
+
+    minikube.setMinikube(minikubeBinary.toString());
+    minikube.setClusterService(newClusterService("testProfile"));
+    Assert.assertEquals(expectedMap, minikube.getDockerEnv("testProfile"));
+
+    // A later build that starts the profile reads the cached environment without running minikube.
+    MinikubeExtension nextBuildMinikube =
+        new MinikubeExtension(project, commandExecutorFactoryMock);
+    nextBuildMinikube.setClusterService(newClusterService("testProfile"));
+    nextBuildMinikube.setMinikube(minikubeBinary.toString());
+    nextBuildMinikube.setMinikubeHome(minikubeHome);
+    Assert.assertEquals(expectedMap, nextBuildMinikube.getDockerEnv("testProfile"));
+    verify(commandExecutorMock).run(command);
+
+    // Changing the profile configuration runs minikube again.
+    Files.write(
+        profileDirectory.resolve("config.json"),
+        "{\"changed\": 1}".getBytes(StandardCharsets.UTF_8));
+    Assert.assertEquals(expectedMap, nextBuildMinikube.getDockerEnv("testProfile"));
+    verify(commandExecutorMock, times(2)).run(command);
+  }
+
+  @Test
+  public void testGetDockerEnv_notCachedAfterStop() throws IOException, InterruptedException {
+    Path minikubeBinary = tmp.newFile("minikube").toPath();
+    Path profileDirectory = minikubeHome.resolve("profiles").resolve("testProfile");
+    Files.createDirectories(profileDirectory);
+    Files.write(profileDirectory.resolve("config.json"), "{}".getBytes(StandardCharsets.UTF_8));
+
+    List<String> command =
+        Arrays.asList(
+            minikubeBinary.toString(), "docker-env", "--shell=none", "--profile=testProfile");
+    when(commandExecutorMock.run(command)).thenReturn(dockerEnvOutput);
+
+    MinikubeClusterService clusterService = newClusterService("testProfile");
+    minikube.setClusterService(clusterService);
+    minikube.setMinikube(minikubeBinary.toString());
+    Assert.assertEquals(expectedMap, minikube.getDockerEnv("testProfile"));
+
+    // Stopping leaves the profile configuration, so its fingerprint alone would still match.
+    clusterService.stop("testProfile", () -> {});
+    IOException expectedIOException = new IOException("minikube is not running");
+    when(commandExecutorMock.run(command)).thenThrow(expectedIOException);
+    try {
+      minikube.getDockerEnv("testProfile");
+      Assert.fail("getDockerEnv should have run minikube and failed");
+
+    } catch (IOException ex) {
+      Assert.assertSame(expectedIOException, ex);
+    }
+    verify(commandExecutorMock, times(2)).run(command);
+  }
+
+  @Test
+  public void testGetDockerEnv_fromProfileConfig() throws IOException, InterruptedException {
+    writeHyperkitProfileConfig();
+    minikube.setClusterService(newClusterService("minikube"));
+
+    Map<String, String> dockerEnv = minikube.getDockerEnv();
+
+    Assert.assertEquals("tcp://192.168.64.2:2376", dockerEnv.get("DOCKER_HOST"));
+    verify(commandExecutorFactoryMock, never()).newCommandExecutor();
+  }
+
+  @Test
+  public void testGetDockerEnv_profileConfigNotStarted() throws IOException, InterruptedException {
+    writeHyperkitProfileConfig();
+    minikube.setClusterService(new MinikubeClusterService(commandExecutorFactoryMock));
+    expectedCommand.add("--profile=");
+    when(commandExecutorMock.run(expectedCommand)).thenReturn(dockerEnvOutput);
+
+    Assert.assertEquals(expectedMap, minikube.getDockerEnv());
+    verify(commandExecutorMock).run(expectedCommand);
+  }
+
+  @Test
+  public void testGetDockerEnv_profileConfigStopped() throws IOException, InterruptedException {
+    writeHyperkitProfileConfig();
+    MinikubeClusterService clusterService = new MinikubeClusterService(commandExecutorFactoryMock);
+    clusterService.start("minikube", () -> {});
+    // Stopping with the warm pool pauses the cluster, which leaves its configuration too.
+    clusterService.stop("minikube", () -> {});
+    minikube.setClusterService(clusterService);
+    expectedCommand.add("--profile=");
+    when(commandExecutorMock.run(expectedCommand)).thenReturn(dockerEnvOutput);
+
+    Assert.assertEquals(expectedMap, minikube.getDockerEnv());
+    verify(commandExecutorMock).run(expectedCommand);
+  }
+
+  private MinikubeClusterService newClusterService(String startedProfile)
+      throws IOException, InterruptedException {
+    MinikubeClusterService clusterService = new MinikubeClusterService(commandExecutorFactoryMock);
+    clusterService.start(startedProfile, () -> {});
+    return clusterService;
+  }
+
+  /** Writes the configuration of a default profile running in hyperkit, with its certificates. */
+  private void writeHyperkitProfileConfig() throws IOException {
+    Path profileDirectory = minikubeHome.resolve("profiles").resolve("minikube");
+    Files.createDirectories(profileDirectory);
+    Files.write(
+        profileDirectory.resolve("config.json"),
+        ("{\"Driver\": \"hyperkit\","
+                + " \"Nodes\": [{\"IP\": \"192.168.64.2\", \"ControlPlane\": true}]}")
+            .getBytes(StandardCharsets.UTF_8));
+    Path certs = Files.createDirectories(minikubeHome.resolve("certs"));
+    for (String certificate : Arrays.asList("ca.pem", "cert.pem", "key.pem")) {
+      Files.createFile(certs.resolve(certificate));
+    }
+  }
 }
@@ -16,7 +16,10 @@
 
 package com.google.cloud.tools.minikube;
 
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.tasks.TaskCollection;
 import org.gradle.api.tasks.TaskContainer;
@@ -86,4 +89,93 @@ public class MinikubePluginTest {
     Assert.assertEquals(custom.getCommand(), "custom");
     Assert.assertArrayEquals(custom.getFlags(), new String[] {});
   }
+
+  @Test
+  public void testClusterServiceSharedBySubprojects() {
+    Project rootProject = ProjectBuilder.builder().withProjectDir(tmp.getRoot()).build();
+    Project subproject1 = ProjectBuilder.builder().withParent(rootProject).withName("sub1").build();
+    Project subproject2 = ProjectBuilder.builder().withParent(rootProject).withName("sub2").build();
+    subproject1.getPluginManager().apply(MinikubePlugin.class);
+    subproject2.getPluginManager().apply(MinikubePlugin.class);
+
+    MinikubeClusterService clusterService =
+        (MinikubeClusterService)
+            rootProject.getExtensions().getByName(MinikubeClusterService.EXTENSION_NAME);
+    Assert.assertEquals(2, clusterService.getUserCount());
+
+    MinikubeTask start1 = (MinikubeTask) subproject1.getTasks().getByName("minikubeStart");
+    MinikubeTask start2 = (MinikubeTask) subproject2.getTasks().getByName("minikubeStart");
+    Assert.assertSame(start1.getClusterService(), start2.getClusterService());
+    Assert.assertSame(clusterService, start1.getClusterService());
+  }
+
+  @Test
+  public void testMinikubeAwaitReadyDependsOnStart() {
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.getRoot()).build();
+    project.getPluginManager().apply(MinikubePlugin.class);
+    ((ProjectInternal) project).evaluate();
+
+    Task awaitReady = project.getTasks().getByName("minikubeAwaitReady");
+    Assert.assertTrue(awaitReady instanceof MinikubeAwaitReadyTask);
+    Assert.assertEquals(
+        Collections.singleton(project.getTasks().getByName("minikubeStart")),
+        awaitReady.getTaskDependencies().getDependencies(awaitReady));
+  }
+
+  @Test
+  public void testMinikubeAwaitReady_startAsync() {
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.getRoot()).build();
+    project.getPluginManager().apply(MinikubePlugin.class);
+    MinikubeExtension ex = (MinikubeExtension) project.getExtensions().getByName("minikube");
+    ex.setStartAsync(true);
+    ((ProjectInternal) project).evaluate();
+
+    Task awaitReady = project.getTasks().getByName("minikubeAwaitReady");
+    Assert.assertTrue(awaitReady.getTaskDependencies().getDependencies(awaitReady).isEmpty());
+  }
+
+  @Test
+  public void testMinikubeProfilesTasks() {
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.getRoot()).build();
+    project.getPluginManager().apply(MinikubePlugin.class);
+    MinikubeExtension ex = (MinikubeExtension) project.getExtensions().getByName("minikube");
+    ex.profiles(
+        profiles -> {
+          profiles.create("k8s110", profile -> profile.setFlags(new String[] {"--cpus=2"}));
+          profiles.create("k8s111");
+        });
+    ex.setMaxConcurrentProfiles(3);
+
+    TaskCollection<MinikubeProfilesTask> tc =
+        project.getTasks().withType(MinikubeProfilesTask.class);
+
+    Assert.assertEquals(3, tc.size());
+    Assert.assertEquals("start", tc.getByName("minikubeStartProfiles").getCommand());
+    Assert.assertEquals("stop", tc.getByName("minikubeStopProfiles").getCommand());
+    MinikubeProfilesTask deleteProfiles = tc.getByName("minikubeDeleteProfiles");
+    Assert.assertEquals("delete", deleteProfiles.getCommand());
+    Assert.assertEquals("Minikube", deleteProfiles.getGroup());
+    Assert.assertEquals(2, deleteProfiles.getProfiles().size());
+    Assert.assertEquals(3, deleteProfiles.getMaxConcurrentProfiles());
+  }
+
+  @Test
+  public void testMinikubeTasksRegisteredLazily() {
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.getRoot()).build();
+    project.getPluginManager().apply(MinikubePlugin.class);
+
+    AtomicInteger realizedTasks = new AtomicInteger();
+    project
+        .getTasks()
+        .withType(MinikubeTask.class)
+        .configureEach(task -> realizedTasks.incrementAndGet());
+    ((ProjectInternal) project).evaluate();
+
+    Assert.assertEquals(0, realizedTasks.get());
+
+    MinikubeTask minikubeStart = (MinikubeTask) project.getTasks().getByName("minikubeStart");
+    Assert.assertEquals(1, realizedTasks.get());
+    Assert.assertEquals("Minikube", minikubeStart.getGroup());
+    Assert.assertNotNull(minikubeStart.getClusterService());
+  }
 }
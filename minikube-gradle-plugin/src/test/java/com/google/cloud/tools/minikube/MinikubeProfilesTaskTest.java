@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.minikube.util.CommandExecutor;
+import com.google.cloud.tools.minikube.util.CommandExecutorFactory;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for MinikubeProfilesTask */
+public class MinikubeProfilesTaskTest {
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private CommandExecutor commandExecutorMock;
+  private MinikubeClusterService clusterService;
+  private MinikubeProfileConfiguration k8s110;
+  private MinikubeProfileConfiguration k8s111;
+
+  @Before
+  public void setUp() {
+    commandExecutorMock = mock(CommandExecutor.class);
+    when(commandExecutorMock.setOutputTail(anyInt(), anyLong())).thenReturn(commandExecutorMock);
+    CommandExecutorFactory commandExecutorFactoryMock = mock(CommandExecutorFactory.class);
+    when(commandExecutorFactoryMock.newCommandExecutor()).thenReturn(commandExecutorMock);
+    clusterService = new MinikubeClusterService(commandExecutorFactoryMock);
+
+    k8s110 = new MinikubeProfileConfiguration("k8s110");
+    k8s110.setFlags(new String[] {"--kubernetes-version=v1.10.0"});
+    k8s111 = new MinikubeProfileConfiguration("k8s111");
+  }
+
+  @Test
+  public void testExecMinikube_start() throws IOException, InterruptedException {
+    MinikubeProfilesTask startProfiles = newProfilesTask("start");
+
+    startProfiles.execMinikube();
+
+    verify(commandExecutorMock)
+        .run(
+            Arrays.asList("minikube", "start", "--kubernetes-version=v1.10.0", "--profile=k8s110"));
+    verify(commandExecutorMock).run(Arrays.asList("minikube", "start", "--profile=k8s111"));
+    Assert.assertTrue(clusterService.isStarted("k8s110"));
+    Assert.assertTrue(clusterService.isStarted("k8s111"));
+    Assert.assertTrue(startProfiles.getDidWork());
+  }
+
+  @Test
+  public void testExecMinikube_stopWithoutStartFlags() throws IOException, InterruptedException {
+    newProfilesTask("stop").execMinikube();
+
+    verify(commandExecutorMock).run(Arrays.asList("minikube", "stop", "--profile=k8s110"));
+    verify(commandExecutorMock).run(Arrays.asList("minikube", "stop", "--profile=k8s111"));
+  }
+
+  @Test
+  public void testExecMinikube_failedProfiles() throws IOException, InterruptedException {
+    IOException expectedIOException = new IOException("no k8s110");
+    when(commandExecutorMock.run(Arrays.asList("minikube", "delete", "--profile=k8s110")))
+        .thenThrow(expectedIOException);
+
+    try {
+      newProfilesTask("delete").execMinikube();
+      Assert.fail("execMinikube() should have failed");
+
+    } catch (GradleException ex) {
+      Assert.assertEquals("minikube delete failed for profiles k8s110", ex.getMessage());
+      Assert.assertSame(expectedIOException, ex.getCause());
+    }
+    verify(commandExecutorMock).run(Arrays.asList("minikube", "delete", "--profile=k8s111"));
+  }
+
+  @Test
+  public void testExecMinikube_noProfiles() throws InterruptedException {
+    MinikubeProfilesTask startProfiles = newProfilesTask("start");
+    startProfiles.setProfiles(Collections.emptyList());
+
+    startProfiles.execMinikube();
+
+    Assert.assertFalse(startProfiles.getDidWork());
+  }
+
+  private MinikubeProfilesTask newProfilesTask(String command) {
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.getRoot()).build();
+    MinikubeProfilesTask profilesTask =
+        project.getTasks().create("minikubeProfiles", MinikubeProfilesTask.class);
+    profilesTask.setMinikube("minikube");
+    profilesTask.setCommand(command);
+    profilesTask.setProfiles(Arrays.asList(k8s110, k8s111));
+    profilesTask.setMaxConcurrentProfiles(2);
+    profilesTask.setMinikubeHome(tmp.getRoot().toPath().resolve(".minikube"));
+    profilesTask
+        .setCommandExecutorFactory(clusterService.getCommandExecutorFactory())
+        .setClusterService(clusterService);
+    return profilesTask;
+  }
+}
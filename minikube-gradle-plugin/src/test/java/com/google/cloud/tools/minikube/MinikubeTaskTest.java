@@ -16,6 +16,22 @@
 
 package com.google.cloud.tools.minikube;
 
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.minikube.util.CommandExecutor;
+import com.google.cloud.tools.minikube.util.CommandExecutorFactory;
+import com.google.cloud.tools.minikube.util.HostResources;
+import com.google.cloud.tools.minikube.util.WarmPool;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Arrays;
 import org.gradle.api.Project;
 import org.gradle.testfixtures.ProjectBuilder;
@@ -48,4 +64,253 @@ public class MinikubeTaskTest {
         Arrays.asList("/test/path/to/minikube", "testCommand", "testFlag1", "testFlag2"),
         testTask.buildMinikubeCommand());
   }
+
+  @Test
+  public void testBuildCommand_jsonProgress() {
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.getRoot()).build();
+    MinikubeTask testTask =
+        project
+            .getTasks()
+            .create(
+                "minikubeTestTask",
+                MinikubeTask.class,
+                minikubeTask -> {
+                  minikubeTask.setMinikube("/test/path/to/minikube");
+                  minikubeTask.setCommand("start");
+                  minikubeTask.setFlags(new String[] {"testFlag1"});
+                  minikubeTask.setJsonProgress(true);
+                });
+
+    Assert.assertEquals(
+        Arrays.asList("/test/path/to/minikube", "start", "testFlag1", "--output=json"),
+        testTask.buildMinikubeCommand());
+  }
+
+  @Test
+  public void testBuildCommand_autoSize() {
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.getRoot()).build();
+    MinikubeTask testTask =
+        project
+            .getTasks()
+            .create(
+                "minikubeTestTask",
+                MinikubeTask.class,
+                minikubeTask -> {
+                  minikubeTask.setMinikube("/test/path/to/minikube");
+                  minikubeTask.setCommand("start");
+                  minikubeTask.setFlags(new String[] {"--memory=4g"});
+                  minikubeTask.setAutoSize(true);
+                });
+
+    // The memory set by the flags wins.
+    Assert.assertEquals(
+        Arrays.asList(
+            "/test/path/to/minikube",
+            "start",
+            "--memory=4g",
+            "--cpus="
+                + HostResources.detect()
+                    .getAutoClusterSize(1, HostResources.DEFAULT_CLUSTER_FRACTION)
+                    .getCpus()),
+        testTask.buildMinikubeCommand());
+  }
+
+  @Test
+  public void testGetProfile() {
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.getRoot()).build();
+    MinikubeTask testTask = project.getTasks().create("minikubeTestTask", MinikubeTask.class);
+
+    Assert.assertEquals("minikube", testTask.getProfile());
+
+    testTask.setFlags(new String[] {"--cpus=2", "--profile=first"});
+    Assert.assertEquals("first", testTask.getProfile());
+
+    testTask.setFlags(new String[] {"--profile", "second", "--cpus=2"});
+    Assert.assertEquals("second", testTask.getProfile());
+
+    testTask.setFlags(new String[] {"-p", "third"});
+    Assert.assertEquals("third", testTask.getProfile());
+
+    testTask.setFlags(new String[] {"--profile=first", "-p=last"});
+    Assert.assertEquals("last", testTask.getProfile());
+  }
+
+  @Test
+  public void testExecMinikube_startOncePerBuild() throws IOException, InterruptedException {
+    CommandExecutor commandExecutorMock = mock(CommandExecutor.class);
+    when(commandExecutorMock.setOutputTail(anyInt(), anyLong())).thenReturn(commandExecutorMock);
+    CommandExecutorFactory commandExecutorFactoryMock = mock(CommandExecutorFactory.class);
+    when(commandExecutorFactoryMock.newCommandExecutor()).thenReturn(commandExecutorMock);
+    MinikubeClusterService clusterService = new MinikubeClusterService(commandExecutorFactoryMock);
+
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.newFolder()).build();
+    MinikubeTask start1 = newStartTask(project, "start1", clusterService);
+    MinikubeTask start2 = newStartTask(project, "start2", clusterService);
+
+    start1.execMinikube();
+    start2.execMinikube();
+
+    verify(commandExecutorMock).run(Arrays.asList("minikube", "start"));
+    Assert.assertTrue(clusterService.isStarted("minikube"));
+  }
+
+  @Test
+  public void testExecMinikube_startSkippedWhenRunningWithSameFlags()
+      throws IOException, InterruptedException {
+    CommandExecutor commandExecutorMock = mock(CommandExecutor.class);
+    when(commandExecutorMock.setOutputTail(anyInt(), anyLong())).thenReturn(commandExecutorMock);
+    CommandExecutorFactory commandExecutorFactoryMock = mock(CommandExecutorFactory.class);
+    when(commandExecutorFactoryMock.newCommandExecutor()).thenReturn(commandExecutorMock);
+    MinikubeClusterService clusterService = new MinikubeClusterService(commandExecutorFactoryMock);
+
+    Path minikubeHome = tmp.newFolder(".minikube").toPath();
+    writeProfileConfig(minikubeHome, "{\"CPUs\": 2}");
+
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.newFolder()).build();
+    MinikubeTask start = newStartTask(project, "start", clusterService);
+    start.setFlags(new String[] {"--cpus=2"});
+    start.setMinikubeHome(minikubeHome);
+
+    start.execMinikube();
+
+    verify(commandExecutorMock).run(Arrays.asList("minikube", "status", "--profile=minikube"));
+    verify(commandExecutorMock).setCommandCache(null);
+    verify(commandExecutorMock).setTimeout(MinikubeCommandRunner.STATUS_TIMEOUT);
+    verify(commandExecutorMock, never()).run(Arrays.asList("minikube", "start", "--cpus=2"));
+  }
+
+  @Test
+  public void testExecMinikube_startWhenFlagsChanged() throws IOException, InterruptedException {
+    CommandExecutor commandExecutorMock = mock(CommandExecutor.class);
+    when(commandExecutorMock.setOutputTail(anyInt(), anyLong())).thenReturn(commandExecutorMock);
+    CommandExecutorFactory commandExecutorFactoryMock = mock(CommandExecutorFactory.class);
+    when(commandExecutorFactoryMock.newCommandExecutor()).thenReturn(commandExecutorMock);
+    MinikubeClusterService clusterService = new MinikubeClusterService(commandExecutorFactoryMock);
+
+    Path minikubeHome = tmp.newFolder(".minikube").toPath();
+    // Started with other flags, by the plugin or by hand.
+    writeProfileConfig(minikubeHome, "{\"CPUs\": 2}");
+
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.newFolder()).build();
+    MinikubeTask start = newStartTask(project, "start", clusterService);
+    start.setFlags(new String[] {"--cpus=4"});
+    start.setMinikubeHome(minikubeHome);
+
+    start.execMinikube();
+
+    verify(commandExecutorMock).run(Arrays.asList("minikube", "start", "--cpus=4"));
+    verify(commandExecutorMock, never())
+        .run(Arrays.asList("minikube", "status", "--profile=minikube"));
+  }
+
+  @Test
+  public void testExecMinikube_warmPoolPausesInsteadOfStop()
+      throws IOException, InterruptedException {
+    CommandExecutor commandExecutorMock = mock(CommandExecutor.class);
+    when(commandExecutorMock.setOutputTail(anyInt(), anyLong())).thenReturn(commandExecutorMock);
+    CommandExecutorFactory commandExecutorFactoryMock = mock(CommandExecutorFactory.class);
+    when(commandExecutorFactoryMock.newCommandExecutor()).thenReturn(commandExecutorMock);
+    MinikubeClusterService clusterService = new MinikubeClusterService(commandExecutorFactoryMock);
+
+    Path minikubeHome = tmp.newFolder(".minikube").toPath();
+    Files.createDirectories(minikubeHome.resolve("profiles").resolve("minikube"));
+
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.newFolder()).build();
+    MinikubeTask stop = newStartTask(project, "stop", clusterService);
+    stop.setCommand("stop");
+    stop.setMinikubeHome(minikubeHome);
+    stop.setWarmPool(newWarmPool());
+
+    stop.execMinikube();
+
+    verify(commandExecutorMock).run(Arrays.asList("minikube", "pause", "--profile=minikube"));
+    verify(commandExecutorMock, never()).run(Arrays.asList("minikube", "stop"));
+    Assert.assertTrue(new WarmPool(minikubeHome, Duration.ofHours(1)).isWarm("minikube"));
+  }
+
+  @Test
+  public void testExecMinikube_warmPoolUnpausesWithSameFlags()
+      throws IOException, InterruptedException {
+    CommandExecutor commandExecutorMock = mock(CommandExecutor.class);
+    when(commandExecutorMock.setOutputTail(anyInt(), anyLong())).thenReturn(commandExecutorMock);
+    CommandExecutorFactory commandExecutorFactoryMock = mock(CommandExecutorFactory.class);
+    when(commandExecutorFactoryMock.newCommandExecutor()).thenReturn(commandExecutorMock);
+    MinikubeClusterService clusterService = new MinikubeClusterService(commandExecutorFactoryMock);
+
+    Path minikubeHome = tmp.newFolder(".minikube").toPath();
+    writeProfileConfig(minikubeHome, "{\"CPUs\": 2}");
+    WarmPool warmPool = new WarmPool(minikubeHome, Duration.ofHours(1));
+    warmPool.markPaused("minikube");
+
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.newFolder()).build();
+    MinikubeTask start = newStartTask(project, "start", clusterService);
+    start.setFlags(new String[] {"--cpus=2"});
+    start.setMinikubeHome(minikubeHome);
+    start.setWarmPool(newWarmPool());
+
+    start.execMinikube();
+
+    verify(commandExecutorMock).run(Arrays.asList("minikube", "unpause", "--profile=minikube"));
+    verify(commandExecutorMock, never()).run(Arrays.asList("minikube", "start", "--cpus=2"));
+    Assert.assertFalse(warmPool.isWarm("minikube"));
+  }
+
+  @Test
+  public void testExecMinikube_warmPoolEvictsIdleProfiles()
+      throws IOException, InterruptedException {
+    CommandExecutor commandExecutorMock = mock(CommandExecutor.class);
+    when(commandExecutorMock.setOutputTail(anyInt(), anyLong())).thenReturn(commandExecutorMock);
+    CommandExecutorFactory commandExecutorFactoryMock = mock(CommandExecutorFactory.class);
+    when(commandExecutorFactoryMock.newCommandExecutor()).thenReturn(commandExecutorMock);
+    MinikubeClusterService clusterService = new MinikubeClusterService(commandExecutorFactoryMock);
+
+    Path minikubeHome = tmp.newFolder(".minikube").toPath();
+    Path idleProfileDirectory = minikubeHome.resolve("profiles").resolve("idle");
+    Files.createDirectories(idleProfileDirectory);
+    Files.write(idleProfileDirectory.resolve("build-tools-paused"), "0".getBytes("UTF-8"));
+
+    Project project = ProjectBuilder.builder().withProjectDir(tmp.newFolder()).build();
+    MinikubeTask start = newStartTask(project, "start", clusterService);
+    start.setMinikubeHome(minikubeHome);
+    MinikubeWarmPoolConfiguration warmPoolConfiguration = newWarmPool();
+    warmPoolConfiguration.setEviction("delete");
+    start.setWarmPool(warmPoolConfiguration);
+
+    start.execMinikube();
+
+    verify(commandExecutorMock).run(Arrays.asList("minikube", "delete", "--profile=idle"));
+    verify(commandExecutorMock).run(Arrays.asList("minikube", "start"));
+    Assert.assertFalse(Files.exists(idleProfileDirectory.resolve("build-tools-paused")));
+  }
+
+  private static MinikubeWarmPoolConfiguration newWarmPool() {
+    MinikubeWarmPoolConfiguration warmPoolConfiguration = new MinikubeWarmPoolConfiguration();
+    warmPoolConfiguration.setEnabled(true);
+    return warmPoolConfiguration;
+  }
+
+  private MinikubeTask newStartTask(
+      Project project, String name, MinikubeClusterService clusterService) throws IOException {
+    Path minikubeHome = tmp.newFolder().toPath();
+    return project
+        .getTasks()
+        .create(
+            name,
+            MinikubeTask.class,
+            minikubeTask -> {
+              minikubeTask.setMinikube("minikube");
+              minikubeTask.setCommand("start");
+              minikubeTask.setCommandExecutorFactory(clusterService.getCommandExecutorFactory());
+              minikubeTask.setClusterService(clusterService);
+              minikubeTask.setMinikubeHome(minikubeHome);
+            });
+  }
+
+  /** Writes the profile configuration minikube keeps for the default profile. */
+  private static void writeProfileConfig(Path minikubeHome, String configJson) throws IOException {
+    Path profileDirectory =
+        Files.createDirectories(minikubeHome.resolve("profiles").resolve("minikube"));
+    Files.write(
+        profileDirectory.resolve("config.json"), configJson.getBytes(StandardCharsets.UTF_8));
+  }
 }
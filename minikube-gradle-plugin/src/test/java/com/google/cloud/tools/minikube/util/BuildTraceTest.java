@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for BuildTrace */
+public class BuildTraceTest {
+
+  @Test
+  public void testToJson() {
+    BuildTrace buildTrace = new BuildTrace("Gradle build", 1_000_000, 1500000000000L);
+    buildTrace.addSpan(
+        new BuildTrace.Span(
+            "Starting VM", "phase", "worker \"1\"", 2_500_000, 3_000_000, Collections.emptyMap()));
+    buildTrace.addSpan(
+        new BuildTrace.Span(
+            "minikube start",
+            "command",
+            "worker \"1\"",
+            2_000_000,
+            4_000_000,
+            Collections.singletonMap("exitCode", "0")));
+    buildTrace.addSpan(
+        new BuildTrace.Span(
+            ":minikubeStart",
+            "task",
+            "worker \"1\"",
+            2_000_000,
+            5_000_000,
+            Collections.emptyMap()));
+    buildTrace.addSpan(
+        new BuildTrace.Span(
+            "minikube docker-env",
+            "command",
+            "main",
+            1_000_500,
+            1_500_000,
+            Collections.emptyMap()));
+
+    Assert.assertEquals(
+        "{\n"
+            + "  \"traceEvents\": [\n"
+            + "    {\"name\": \"process_name\", \"ph\": \"M\", \"pid\": 1, \"tid\": 0,"
+            + " \"args\": {\"name\": \"Gradle build\"}},\n"
+            + "    {\"name\": \"thread_name\", \"ph\": \"M\", \"pid\": 1, \"tid\": 1,"
+            + " \"args\": {\"name\": \"main\"}},\n"
+            + "    {\"name\": \"thread_name\", \"ph\": \"M\", \"pid\": 1, \"tid\": 2,"
+            + " \"args\": {\"name\": \"worker \\\"1\\\"\"}},\n"
+            + "    {\"name\": \"minikube docker-env\", \"cat\": \"command\", \"ph\": \"X\","
+            + " \"ts\": 0.500, \"dur\": 499.500, \"pid\": 1, \"tid\": 1, \"args\": {}},\n"
+            + "    {\"name\": \":minikubeStart\", \"cat\": \"task\", \"ph\": \"X\","
+            + " \"ts\": 1000.000, \"dur\": 3000.000, \"pid\": 1, \"tid\": 2, \"args\": {}},\n"
+            + "    {\"name\": \"minikube start\", \"cat\": \"command\", \"ph\": \"X\","
+            + " \"ts\": 1000.000, \"dur\": 2000.000, \"pid\": 1, \"tid\": 2,"
+            + " \"args\": {\"exitCode\": \"0\"}},\n"
+            + "    {\"name\": \"Starting VM\", \"cat\": \"phase\", \"ph\": \"X\","
+            + " \"ts\": 1500.000, \"dur\": 500.000, \"pid\": 1, \"tid\": 2, \"args\": {}}\n"
+            + "  ],\n"
+            + "  \"displayTimeUnit\": \"ms\",\n"
+            + "  \"otherData\": {\"startTimeMillis\": 1500000000000}\n"
+            + "}\n",
+        buildTrace.toJson());
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for ClusterAdmission */
+public class ClusterAdmissionTest {
+
+  private static final ClusterSize FOUR_GB = new ClusterSize(2, 4096);
+
+  // 3/4 of 16 GB fits three 4 GB clusters.
+  private final ClusterAdmission clusterAdmission =
+      new ClusterAdmission(new HostResources(16, 16 * 1024));
+
+  @Test
+  public void testAdmit_fits() throws InterruptedException {
+    for (String profile : new String[] {"a", "b", "c"}) {
+      ClusterAdmission.Ticket ticket = admit(profile, FOUR_GB);
+      Assert.assertFalse(ticket.isOvercommitted());
+      ticket.started();
+      ticket.close();
+    }
+
+    Assert.assertEquals(6, clusterAdmission.getCommittedCpus());
+    Assert.assertEquals(12 * 1024, clusterAdmission.getCommittedMemoryMb());
+  }
+
+  @Test
+  public void testAdmit_waitsForStart() throws InterruptedException {
+    ClusterAdmission.Ticket first = admit("a", new ClusterSize(2, 10 * 1024));
+    CountDownLatch waiting = new CountDownLatch(1);
+    AtomicReference<ClusterAdmission.Ticket> second = new AtomicReference<>();
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                second.set(
+                    clusterAdmission.admit(
+                        "b", FOUR_GB, 0.75, (cpus, memoryMb) -> waiting.countDown()));
+              } catch (InterruptedException ex) {
+                throw new AssertionError(ex);
+              }
+            });
+    thread.start();
+
+    Assert.assertTrue(waiting.await(10, TimeUnit.SECONDS));
+    Assert.assertNull(second.get());
+    first.close();
+    thread.join(10_000);
+
+    // The first start failed, so the second one fits.
+    Assert.assertNotNull(second.get());
+    Assert.assertFalse(second.get().isOvercommitted());
+    Assert.assertTrue(second.get().getWaitNanos() > 0);
+  }
+
+  @Test
+  public void testAdmit_overcommittedOnceStartsAreDone() throws InterruptedException {
+    ClusterAdmission.Ticket first = admit("a", new ClusterSize(2, 8192));
+    first.started();
+    first.close();
+
+    // Only stopping a cluster would make room, so the start does not wait.
+    ClusterAdmission.Ticket second = admit("b", new ClusterSize(2, 8192));
+
+    Assert.assertTrue(second.isOvercommitted());
+  }
+
+  @Test
+  public void testRelease() throws InterruptedException {
+    try (ClusterAdmission.Ticket ticket = admit("a", new ClusterSize(2, 8192))) {
+      ticket.started();
+    }
+    clusterAdmission.release("a");
+
+    Assert.assertEquals(0, clusterAdmission.getCommittedCpus());
+    Assert.assertFalse(admit("b", new ClusterSize(2, 8192)).isOvercommitted());
+  }
+
+  @Test
+  public void testAdmit_replacesProfile() throws InterruptedException {
+    try (ClusterAdmission.Ticket ticket = admit("a", new ClusterSize(2, 8192))) {
+      ticket.started();
+    }
+
+    try (ClusterAdmission.Ticket ticket = admit("a", new ClusterSize(4, 8192))) {
+      Assert.assertFalse(ticket.isOvercommitted());
+      ticket.started();
+    }
+    Assert.assertEquals(4, clusterAdmission.getCommittedCpus());
+  }
+
+  private ClusterAdmission.Ticket admit(String profile, ClusterSize size)
+      throws InterruptedException {
+    return clusterAdmission.admit(
+        profile, size, 0.75, (cpus, memoryMb) -> Assert.fail("Should not wait"));
+  }
+}
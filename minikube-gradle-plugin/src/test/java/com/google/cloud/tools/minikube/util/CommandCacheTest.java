@@ -0,0 +1,179 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests for CommandCache */
+public class CommandCacheTest {
+
+  private static final List<String> DOCKER_ENV =
+      Arrays.asList("minikube", "docker-env", "--shell=none", "--profile=");
+  private static final List<String> OTHER_DOCKER_ENV =
+      Arrays.asList("minikube", "docker-env", "--shell=none", "--profile=other");
+  private static final List<String> PROFILE_LIST = Arrays.asList("minikube", "profile", "list");
+
+  private CommandCache commandCache;
+  private List<List<String>> ranCommands;
+
+  @Before
+  public void setUp() {
+    commandCache = new CommandCache();
+    ranCommands = Collections.synchronizedList(new ArrayList<>());
+  }
+
+  private List<String> run(List<String> command) throws IOException, InterruptedException {
+    return commandCache.run(
+        command,
+        uncachedCommand -> {
+          ranCommands.add(uncachedCommand);
+          return Collections.singletonList("output of " + String.join(" ", uncachedCommand));
+        });
+  }
+
+  @Test
+  public void testRun_readOnlyCached() throws IOException, InterruptedException {
+    for (int i = 0; i < 40; i++) {
+      Assert.assertEquals(
+          Collections.singletonList("output of minikube docker-env --shell=none --profile="),
+          run(DOCKER_ENV));
+    }
+
+    Assert.assertEquals(Collections.singletonList(DOCKER_ENV), ranCommands);
+    Assert.assertEquals(1, commandCache.size());
+  }
+
+  @Test
+  public void testRun_otherCommandsNotCached() throws IOException, InterruptedException {
+    List<String> custom = Arrays.asList("minikube", "addons", "list");
+    run(custom);
+    run(custom);
+
+    Assert.assertEquals(Arrays.asList(custom, custom), ranCommands);
+    Assert.assertEquals(0, commandCache.size());
+  }
+
+  @Test
+  public void testRun_failureNotCached() throws IOException, InterruptedException {
+    try {
+      commandCache.run(
+          DOCKER_ENV,
+          uncachedCommand -> {
+            throw new IOException("docker-env failed");
+          });
+      Assert.fail("run should have failed");
+    } catch (IOException ex) {
+      Assert.assertEquals("docker-env failed", ex.getMessage());
+    }
+
+    run(DOCKER_ENV);
+    Assert.assertEquals(Collections.singletonList(DOCKER_ENV), ranCommands);
+  }
+
+  @Test
+  public void testRun_errorNotCached() throws IOException, InterruptedException {
+    try {
+      commandCache.run(
+          DOCKER_ENV,
+          uncachedCommand -> {
+            throw new AssertionError("docker-env crashed");
+          });
+      Assert.fail("run should have failed");
+    } catch (AssertionError ex) {
+      Assert.assertEquals("docker-env crashed", ex.getMessage());
+    }
+    Assert.assertEquals(0, commandCache.size());
+
+    run(DOCKER_ENV);
+    Assert.assertEquals(Collections.singletonList(DOCKER_ENV), ranCommands);
+  }
+
+  @Test
+  public void testRun_concurrentRunsOnce() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger runs = new AtomicInteger();
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] =
+          new Thread(
+              () -> {
+                try {
+                  commandCache.run(
+                      DOCKER_ENV,
+                      uncachedCommand -> {
+                        runs.incrementAndGet();
+                        release.await();
+                        return Collections.emptyList();
+                      });
+                } catch (IOException | InterruptedException ex) {
+                  throw new AssertionError(ex);
+                }
+              });
+      threads[i].start();
+    }
+    release.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals(1, runs.get());
+  }
+
+  @Test
+  public void testRun_mutatingInvalidatesProfile() throws IOException, InterruptedException {
+    run(DOCKER_ENV);
+    run(OTHER_DOCKER_ENV);
+    run(PROFILE_LIST);
+
+    // The default profile given as --profile= is the same profile as minikube.
+    run(Arrays.asList("minikube", "stop", "-p", "minikube"));
+    run(DOCKER_ENV);
+    run(OTHER_DOCKER_ENV);
+    run(PROFILE_LIST);
+
+    Assert.assertEquals(
+        Arrays.asList(
+            DOCKER_ENV,
+            OTHER_DOCKER_ENV,
+            PROFILE_LIST,
+            Arrays.asList("minikube", "stop", "-p", "minikube"),
+            DOCKER_ENV,
+            PROFILE_LIST),
+        ranCommands);
+  }
+
+  @Test
+  public void testInvalidateFor_addonsEnable() throws IOException, InterruptedException {
+    run(OTHER_DOCKER_ENV);
+
+    commandCache.invalidateFor(Arrays.asList("minikube", "addons", "enable", "ingress"));
+    Assert.assertEquals(1, commandCache.size());
+
+    commandCache.invalidateFor(
+        Arrays.asList("minikube", "addons", "enable", "ingress", "--profile=other"));
+    Assert.assertEquals(0, commandCache.size());
+  }
+}
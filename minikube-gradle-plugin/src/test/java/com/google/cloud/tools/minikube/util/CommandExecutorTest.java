@@ -16,32 +16,50 @@
 
 package com.google.cloud.tools.minikube.util;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.tools.ant.filters.StringInputStream;
 import org.gradle.api.GradleException;
 import org.gradle.api.logging.Logger;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 /** Tests for CommandExecutor */
 public class CommandExecutorTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Mock private CommandExecutor.ProcessBuilderFactory processBuilderFactoryMock;
 
   @Mock private ProcessBuilder processBuilderMock;
@@ -169,34 +187,389 @@ public class CommandExecutorTest {
   }
 
   @Test
-  public void testRunCommandWithLogging_commandTimeout() throws IOException, InterruptedException {
+  public void testRunCommandWithOutputTail_success() throws IOException, InterruptedException {
+    List<String> command = Arrays.asList("someCommand", "someOption");
+
+    setProcessMockOutput(
+        Arrays.asList("some output line 1", "some output line 2", "some output line 3"));
+
+    List<String> streamedOutput = new ArrayList<>();
+    List<String> output =
+        new CommandExecutor()
+            .setOutputTail(2, 1024)
+            .setProcessBuilderFactory(processBuilderFactoryMock)
+            .run(command, streamedOutput::add);
+
+    verifyProcessBuilding(command);
+    Assert.assertEquals(Arrays.asList("some output line 2", "some output line 3"), output);
+    Assert.assertEquals(
+        Arrays.asList("some output line 1", "some output line 2", "some output line 3"),
+        streamedOutput);
+  }
+
+  @Test
+  public void testRunCommandWithOutputTail_commandError() throws IOException, InterruptedException {
+    List<String> command = Arrays.asList("someCommand", "someOption");
+
+    setProcessMockOutput(
+        Arrays.asList("some output line 1", "some output line 2", "some output line 3"));
+    when(processMock.waitFor()).thenReturn(1);
+
+    try {
+      new CommandExecutor()
+          .setOutputTail(1, 1024)
+          .setProcessBuilderFactory(processBuilderFactoryMock)
+          .run(command);
+      Assert.fail("Expected a GradleException to be thrown");
+    } catch (GradleException ex) {
+      Assert.assertEquals(
+          "command exited with non-zero exit code : 1"
+              + System.lineSeparator()
+              + "some output line 3",
+          ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testRunCommandWithTimeout_success() throws IOException, InterruptedException {
+    List<String> command = Arrays.asList("someCommand", "someOption");
+    List<String> expectedOutput = Arrays.asList("some output line 1", "some output line 2");
+
+    setProcessMockOutput(expectedOutput);
+    when(processMock.waitFor(anyLong(), any(TimeUnit.class))).thenReturn(true);
+
+    List<String> output =
+        new CommandExecutor()
+            .setTimeout(Duration.ofSeconds(10))
+            .setProcessBuilderFactory(processBuilderFactoryMock)
+            .run(command);
+
+    verifyProcessBuilding(command);
+    Assert.assertEquals(expectedOutput, output);
+    verify(processMock).exitValue();
+  }
+
+  @Test
+  public void testRunCommandWithTimeout_timedOut() throws IOException, InterruptedException {
+    List<String> command = Arrays.asList("someCommand", "someOption");
+
+    setProcessMockOutput(Arrays.asList("some output line 1", "some output line 2"));
+    when(processMock.waitFor(anyLong(), any(TimeUnit.class))).thenReturn(false);
+
+    try {
+      new CommandExecutor()
+          .setTimeout(Duration.ofMillis(1))
+          .setOutputTail(1, 1024)
+          .setProcessBuilderFactory(processBuilderFactoryMock)
+          .run(command);
+      Assert.fail("Expected a GradleException to be thrown");
+    } catch (GradleException ex) {
+      Assert.assertTrue(ex.getMessage(), ex.getMessage().startsWith("command timed out after "));
+      Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("(timeout 1 ms)"));
+      Assert.assertTrue(
+          ex.getMessage(),
+          ex.getMessage()
+              .contains(
+                  "destroyed 1 processes : someCommand someOption"
+                      + System.lineSeparator()
+                      + "some output line 2"));
+      verify(processMock).destroyForcibly();
+    }
+  }
+
+  @Test
+  public void testRunCommandWithLogging_commandTimeout()
+      throws IOException, InterruptedException, ExecutionException, TimeoutException {
     List<String> command = Arrays.asList("someCommand", "someOption");
 
-    // Mocks the ExecutorService to be interrupted when awaiting termination.
-    CommandExecutor.ExecutorServiceFactory executorServiceFactoryMock =
-        mock(CommandExecutor.ExecutorServiceFactory.class);
+    // Mocks the ExecutorService to be interrupted when awaiting the output consumer.
     ExecutorService executorServiceMock = mock(ExecutorService.class);
-    when(executorServiceFactoryMock.createExecutorService()).thenReturn(executorServiceMock);
-    when(executorServiceMock.awaitTermination(CommandExecutor.TIMEOUT_SECONDS, TimeUnit.SECONDS))
+    Future<?> outputConsumerMock = mock(Future.class);
+    doReturn(outputConsumerMock).when(executorServiceMock).submit(any(Runnable.class));
+    when(outputConsumerMock.get(CommandExecutor.TIMEOUT_SECONDS, TimeUnit.SECONDS))
         .thenThrow(new InterruptedException());
 
     new CommandExecutor()
         .setLogger(loggerMock)
         .setProcessBuilderFactory(processBuilderFactoryMock)
-        .setExecutorServiceFactory(executorServiceFactoryMock)
+        .setExecutorService(executorServiceMock)
         .run(command);
 
+    // The shared ExecutorService is not shut down.
+    verify(executorServiceMock, never()).shutdown();
+    Assert.assertTrue(Thread.interrupted());
+
     loggerInOrder.verify(loggerMock).debug("Running command : someCommand someOption");
     loggerInOrder
         .verify(loggerMock)
         .debug("Task Executor interrupted waiting for output consumer thread");
   }
 
+  @Test
+  public void testRunAsync_success() throws IOException, InterruptedException, ExecutionException {
+    List<String> command = Arrays.asList("someCommand", "someOption");
+    List<String> expectedOutput = Arrays.asList("some output line 1", "some output line 2");
+
+    setProcessMockOutput(expectedOutput);
+
+    List<String> streamedOutput = new ArrayList<>();
+    CompletableFuture<CommandResult> result =
+        new CommandExecutor()
+            .setLogger(loggerMock)
+            .setProcessBuilderFactory(processBuilderFactoryMock)
+            .runAsync(command, streamedOutput::add);
+
+    Assert.assertEquals(expectedOutput, result.get().getOutput());
+    Assert.assertEquals(0, result.get().getExitCode());
+    Assert.assertEquals(expectedOutput, streamedOutput);
+
+    verifyProcessBuilding(command);
+    loggerInOrder
+        .verify(loggerMock)
+        .debug("Running command asynchronously : someCommand someOption");
+    loggerInOrder.verify(loggerMock).info("some output line 1");
+    loggerInOrder.verify(loggerMock).info("some output line 2");
+  }
+
+  @Test
+  public void testRunAsync_commandError() throws IOException, InterruptedException {
+    List<String> command = Arrays.asList("someCommand", "someOption");
+
+    setProcessMockOutput(Arrays.asList("some output line 1", "some output line 2"));
+    when(processMock.waitFor()).thenReturn(1);
+
+    CompletableFuture<CommandResult> result =
+        new CommandExecutor()
+            .setProcessBuilderFactory(processBuilderFactoryMock)
+            .runAsync(command, line -> {});
+
+    try {
+      result.get();
+      Assert.fail("Expected the future to complete with a GradleException");
+    } catch (ExecutionException ex) {
+      Assert.assertTrue(ex.getCause() instanceof GradleException);
+      Assert.assertEquals("command exited with non-zero exit code : 1", ex.getCause().getMessage());
+    }
+  }
+
+  @Test
+  public void testRun_outputConsumerFailed() throws IOException, InterruptedException {
+    setProcessMockOutput(Arrays.asList("some output line 1", "some output line 2"));
+    IllegalStateException consumerFailure = new IllegalStateException("bad line");
+
+    try {
+      new CommandExecutor()
+          .setProcessBuilderFactory(processBuilderFactoryMock)
+          .run(
+              Arrays.asList("someCommand"),
+              line -> {
+                throw consumerFailure;
+              });
+      Assert.fail("Expected the consumer failure to be thrown");
+    } catch (IllegalStateException ex) {
+      Assert.assertSame(consumerFailure, ex);
+    }
+  }
+
+  @Test
+  public void testRunAsync_outputConsumerFailed()
+      throws IOException, InterruptedException, TimeoutException {
+    setProcessMockOutput(Arrays.asList("some output line 1", "some output line 2"));
+    IllegalStateException consumerFailure = new IllegalStateException("bad line");
+
+    CompletableFuture<CommandResult> result =
+        new CommandExecutor()
+            .setProcessBuilderFactory(processBuilderFactoryMock)
+            .runAsync(
+                Arrays.asList("someCommand"),
+                line -> {
+                  throw consumerFailure;
+                });
+
+    try {
+      result.get(CommandExecutor.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      Assert.fail("Expected the future to complete with the consumer failure");
+    } catch (ExecutionException ex) {
+      Assert.assertSame(consumerFailure, ex.getCause());
+    }
+  }
+
+  @Test
+  public void testRunAsync_recordFailed()
+      throws IOException, InterruptedException, TimeoutException {
+    setProcessMockOutput(Arrays.asList("some output line"));
+    IllegalStateException recordFailure = new IllegalStateException("record failed");
+    CommandMetrics commandMetricsMock = mock(CommandMetrics.class);
+    doThrow(recordFailure).when(commandMetricsMock).record(any(CommandMetric.class));
+
+    CompletableFuture<CommandResult> result =
+        new CommandExecutor()
+            .setProcessBuilderFactory(processBuilderFactoryMock)
+            .setCommandMetrics(commandMetricsMock)
+            .runAsync(Arrays.asList("someCommand"), line -> {});
+
+    try {
+      result.get(CommandExecutor.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      Assert.fail("Expected the future to complete with the record failure");
+    } catch (ExecutionException ex) {
+      Assert.assertSame(recordFailure, ex.getCause());
+    }
+  }
+
+  @Test
+  public void testRun_commandCache() throws IOException, InterruptedException {
+    List<String> command = Arrays.asList("minikube", "docker-env", "--shell=none");
+    List<String> expectedOutput = Arrays.asList("some output line 1", "some output line 2");
+    setProcessMockOutput(expectedOutput);
+
+    CommandCache commandCache = new CommandCache();
+    CommandExecutor commandExecutor =
+        new CommandExecutor()
+            .setProcessBuilderFactory(processBuilderFactoryMock)
+            .setMinikube("minikube")
+            .setCommandCache(commandCache);
+
+    Assert.assertEquals(expectedOutput, commandExecutor.run(command));
+
+    // The cached output is streamed without starting another process.
+    List<String> streamedOutput = new ArrayList<>();
+    Assert.assertEquals(expectedOutput, commandExecutor.run(command, streamedOutput::add));
+    Assert.assertEquals(expectedOutput, streamedOutput);
+    verifyProcessBuilding(command);
+  }
+
+  @Test
+  public void testRun_commandCacheOnlyForMinikube() throws IOException, InterruptedException {
+    setRepeatedProcessMockOutput(Arrays.asList("some output line"));
+
+    CommandCache commandCache = new CommandCache();
+    CommandExecutor commandExecutor =
+        new CommandExecutor()
+            .setProcessBuilderFactory(processBuilderFactoryMock)
+            .setMinikube("minikube")
+            .setCommandCache(commandCache);
+    commandExecutor.run(Arrays.asList("minikube", "status"));
+
+    // Other executables with subcommands of the same names are neither cached nor invalidate.
+    commandExecutor.run(Arrays.asList("kubectl", "version"));
+    commandExecutor.run(Arrays.asList("kubectl", "version"));
+    commandExecutor.run(Arrays.asList("docker", "start"));
+    commandExecutor.runAsync(Arrays.asList("docker", "stop"), line -> {}).join();
+
+    Assert.assertEquals(1, commandCache.size());
+    verify(processBuilderMock, times(5)).start();
+  }
+
+  @Test
+  public void testRun_commandCacheNotForOutputTail() throws IOException, InterruptedException {
+    setRepeatedProcessMockOutput(Arrays.asList("some output line 1", "some output line 2"));
+
+    CommandCache commandCache = new CommandCache();
+    new CommandExecutor()
+        .setProcessBuilderFactory(processBuilderFactoryMock)
+        .setMinikube("minikube")
+        .setCommandCache(commandCache)
+        .setOutputTail(1, 100)
+        .run(Arrays.asList("minikube", "status"));
+
+    // A later caller without the tail gets the whole output.
+    List<String> output =
+        new CommandExecutor()
+            .setProcessBuilderFactory(processBuilderFactoryMock)
+            .setMinikube("minikube")
+            .setCommandCache(commandCache)
+            .run(Arrays.asList("minikube", "status"));
+
+    Assert.assertEquals(Arrays.asList("some output line 1", "some output line 2"), output);
+    verify(processBuilderMock, times(2)).start();
+  }
+
+  @Test
+  public void testRun_profileLockOnlyForMinikube() throws IOException, InterruptedException {
+    setProcessMockOutput(Arrays.asList("some output line"));
+    Path lockDirectory = temporaryFolder.getRoot().toPath().resolve("locks");
+    CommandExecutor commandExecutor =
+        new CommandExecutor()
+            .setProcessBuilderFactory(processBuilderFactoryMock)
+            .setMinikube("minikube")
+            .setProfileLockDirectory(lockDirectory);
+
+    // Another executable with a subcommand of the same name does not lock the default profile.
+    commandExecutor.run(Arrays.asList("docker", "start"));
+    Assert.assertFalse(Files.exists(lockDirectory));
+
+    commandExecutor.run(Arrays.asList("minikube", "start"));
+    Assert.assertTrue(Files.exists(lockDirectory.resolve("minikube.lock")));
+  }
+
+  @Test
+  public void testRun_commandMetrics() throws IOException, InterruptedException {
+    List<String> command = Arrays.asList("someCommand", "someOption");
+    setProcessMockOutput(Arrays.asList("some output line 1", "some output line 2"));
+    when(processMock.waitFor()).thenReturn(1);
+
+    CommandMetrics commandMetrics = new CommandMetrics();
+    try {
+      new CommandExecutor()
+          .setProcessBuilderFactory(processBuilderFactoryMock)
+          .setCommandMetrics(commandMetrics)
+          .run(command);
+      Assert.fail("Expected a GradleException to be thrown");
+    } catch (GradleException ex) {
+      // Failed commands are recorded too.
+    }
+
+    Assert.assertEquals(1, commandMetrics.getMetrics().size());
+    CommandMetric metric = commandMetrics.getMetrics().get(0);
+    Assert.assertEquals(command, metric.getCommand());
+    Assert.assertEquals(Integer.valueOf(1), metric.getExitCode());
+    Assert.assertEquals(2, metric.getOutputLines());
+    Assert.assertEquals(37, metric.getOutputBytes());
+    Assert.assertTrue(metric.getFirstOutputNanos() >= 0);
+    Assert.assertTrue(metric.getWallNanos() >= metric.getSpawnNanos());
+  }
+
+  @Test
+  public void testRun_buildTrace() throws IOException, InterruptedException {
+    List<String> command = Arrays.asList("/usr/local/bin/minikube", "start");
+    setProcessMockOutput(
+        Arrays.asList("Starting VM...", "some output line", "Setting up certs...", "Done."));
+    when(processMock.waitFor()).thenReturn(0);
+
+    BuildTrace buildTrace = new BuildTrace("test");
+    new CommandExecutor()
+        .setProcessBuilderFactory(processBuilderFactoryMock)
+        .setBuildTrace(buildTrace)
+        .run(command);
+
+    List<BuildTrace.Span> spans = buildTrace.getSpans();
+    Assert.assertEquals(3, spans.size());
+    BuildTrace.Span commandSpan = spans.get(0);
+    Assert.assertEquals("minikube start", commandSpan.getName());
+    Assert.assertEquals("command", commandSpan.getCategory());
+    Assert.assertEquals(Thread.currentThread().getName(), commandSpan.getThreadName());
+    Assert.assertEquals("/usr/local/bin/minikube start", commandSpan.getArgs().get("command"));
+    Assert.assertEquals("0", commandSpan.getArgs().get("exitCode"));
+
+    BuildTrace.Span vmPhase = spans.get(1);
+    BuildTrace.Span certsPhase = spans.get(2);
+    Assert.assertEquals("Starting VM", vmPhase.getName());
+    Assert.assertEquals("Setting up certs", certsPhase.getName());
+    Assert.assertTrue(commandSpan.getStartNanoTime() <= vmPhase.getStartNanoTime());
+    Assert.assertEquals(certsPhase.getStartNanoTime(), vmPhase.getEndNanoTime());
+    Assert.assertEquals(commandSpan.getEndNanoTime(), certsPhase.getEndNanoTime());
+  }
+
   private void setProcessMockOutput(List<String> expectedOutput) {
     when(processMock.getInputStream())
         .thenReturn(new StringInputStream(String.join("\n", expectedOutput)));
   }
 
+  private void setRepeatedProcessMockOutput(List<String> output) {
+    when(processMock.getInputStream())
+        .thenAnswer(invocation -> new StringInputStream(String.join("\n", output)));
+  }
+
   private void verifyProcessBuilding(List<String> command) throws IOException {
     verify(processBuilderMock).command(command);
     verify(processBuilderMock).redirectErrorStream(true);
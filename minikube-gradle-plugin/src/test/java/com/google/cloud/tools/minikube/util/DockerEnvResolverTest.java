@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for DockerEnvResolver */
+public class DockerEnvResolverTest {
+
+  private static final String VIRTUALBOX_CONFIG =
+      "{\"Name\": \"minikube\", \"Driver\": \"virtualbox\","
+          + " \"KubernetesConfig\": {\"KubernetesVersion\": \"v1.28.3\", \"ContainerRuntime\": \"docker\"},"
+          + " \"Nodes\": [{\"Name\": \"\", \"IP\": \"192.168.59.100\", \"Port\": 8443,"
+          + " \"ControlPlane\": true, \"Worker\": true}]}";
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private Path minikubeHome;
+  private DockerEnvResolver dockerEnvResolver;
+
+  @Before
+  public void setUp() throws IOException {
+    minikubeHome = tmp.newFolder(".minikube").toPath();
+    Path certs = Files.createDirectories(minikubeHome.resolve("certs"));
+    for (String certificate : Arrays.asList("ca.pem", "cert.pem", "key.pem")) {
+      Files.createFile(certs.resolve(certificate));
+    }
+    dockerEnvResolver = new DockerEnvResolver(minikubeHome);
+  }
+
+  private void writeConfig(String profile, String config) throws IOException {
+    Path profileDirectory = minikubeHome.resolve("profiles").resolve(profile);
+    Files.createDirectories(profileDirectory);
+    Files.write(profileDirectory.resolve("config.json"), config.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testResolve_parityWithDockerEnvCommand() throws IOException {
+    writeConfig("minikube", VIRTUALBOX_CONFIG);
+
+    // What 'minikube docker-env --shell=none' prints for the same profile.
+    List<String> dockerEnvOutput =
+        Arrays.asList(
+            "DOCKER_TLS_VERIFY=1",
+            "DOCKER_HOST=tcp://192.168.59.100:2376",
+            "DOCKER_CERT_PATH=" + minikubeHome.resolve("certs"),
+            "MINIKUBE_ACTIVE_DOCKERD=minikube");
+
+    Assert.assertEquals(
+        MinikubeDockerEnvParser.parse(dockerEnvOutput), dockerEnvResolver.resolve("minikube"));
+  }
+
+  @Test
+  public void testResolve_otherProfile() throws IOException {
+    writeConfig("other", VIRTUALBOX_CONFIG.replace("virtualbox", "kvm2"));
+
+    Assert.assertEquals("other", dockerEnvResolver.resolve("other").get("MINIKUBE_ACTIVE_DOCKERD"));
+    Assert.assertNull(dockerEnvResolver.resolve("minikube"));
+  }
+
+  @Test
+  public void testResolve_unsupportedDriver() throws IOException {
+    writeConfig("minikube", VIRTUALBOX_CONFIG.replace("virtualbox", "docker"));
+
+    Assert.assertNull(dockerEnvResolver.resolve("minikube"));
+  }
+
+  @Test
+  public void testResolve_unsupportedContainerRuntime() throws IOException {
+    writeConfig("minikube", VIRTUALBOX_CONFIG.replace("\"docker\"", "\"containerd\""));
+
+    Assert.assertNull(dockerEnvResolver.resolve("minikube"));
+  }
+
+  @Test
+  public void testResolve_noNodeIp() throws IOException {
+    writeConfig("minikube", VIRTUALBOX_CONFIG.replace("192.168.59.100", ""));
+
+    Assert.assertNull(dockerEnvResolver.resolve("minikube"));
+  }
+
+  @Test
+  public void testResolve_missingCertificates() throws IOException {
+    writeConfig("minikube", VIRTUALBOX_CONFIG);
+    Files.delete(minikubeHome.resolve("certs").resolve("key.pem"));
+
+    Assert.assertNull(dockerEnvResolver.resolve("minikube"));
+  }
+
+  @Test
+  public void testResolve_invalidConfig() throws IOException {
+    writeConfig("minikube", "not json");
+
+    Assert.assertNull(dockerEnvResolver.resolve("minikube"));
+  }
+}
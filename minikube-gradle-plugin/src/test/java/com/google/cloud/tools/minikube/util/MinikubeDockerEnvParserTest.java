@@ -16,6 +16,8 @@
 
 package com.google.cloud.tools.minikube.util;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -70,4 +72,51 @@ public class MinikubeDockerEnvParserTest {
           ex.getMessage());
     }
   }
+
+  @Test
+  public void testParse_shellForm() {
+    List<String> keyValueStrings =
+        Arrays.asList(
+            "export DOCKER_TLS_VERIFY=\"1\"",
+            "export DOCKER_HOST=\"tcp://192.168.99.100:2376\"",
+            "",
+            "# Run this command to configure your shell:",
+            "# eval $(minikube docker-env)",
+            "unset DOCKER_API_VERSION");
+    Map<String, String> expectedEnvironment = new HashMap<>();
+    expectedEnvironment.put("DOCKER_TLS_VERIFY", "1");
+    expectedEnvironment.put("DOCKER_HOST", "tcp://192.168.99.100:2376");
+
+    Map<String, String> environment = MinikubeDockerEnvParser.parse(keyValueStrings);
+
+    Assert.assertEquals(expectedEnvironment, environment);
+  }
+
+  @Test
+  public void testParse_reader() throws IOException {
+    StringReader reader =
+        new StringReader(
+            "SOME_VARIABLE_1=SOME_VALUE_1\r\nexport SOME_VARIABLE_2=\"SOME=VALUE_2\"\n\nSOME_VARIABLE_3=");
+    Map<String, String> expectedEnvironment = new HashMap<>();
+    expectedEnvironment.put("SOME_VARIABLE_1", "SOME_VALUE_1");
+    expectedEnvironment.put("SOME_VARIABLE_2", "SOME=VALUE_2");
+    expectedEnvironment.put("SOME_VARIABLE_3", "");
+
+    Map<String, String> environment = MinikubeDockerEnvParser.parse(reader);
+
+    Assert.assertEquals(expectedEnvironment, environment);
+  }
+
+  @Test
+  public void testNewLineConsumer() {
+    MinikubeDockerEnvParser.LineConsumer lineConsumer = MinikubeDockerEnvParser.newLineConsumer();
+
+    lineConsumer.accept("SOME_VARIABLE_1=SOME_VALUE_1");
+    lineConsumer.accept("export SOME_VARIABLE_2=\"SOME_VALUE_2\"");
+
+    Map<String, String> expectedEnvironment = new HashMap<>();
+    expectedEnvironment.put("SOME_VARIABLE_1", "SOME_VALUE_1");
+    expectedEnvironment.put("SOME_VARIABLE_2", "SOME_VALUE_2");
+    Assert.assertEquals(expectedEnvironment, lineConsumer.getEnvironment());
+  }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for MinikubeJsonEvent */
+public class MinikubeJsonEventTest {
+
+  @Test
+  public void testParse_step() {
+    MinikubeJsonEvent event =
+        MinikubeJsonEvent.parse(
+            "{\"specversion\":\"1.0\",\"id\":\"a1b2\",\"source\":\"https://minikube.sigs.k8s.io/\","
+                + "\"type\":\"io.k8s.sigs.minikube.step\",\"datacontenttype\":\"application/json\","
+                + "\"data\":{\"currentstep\":\"3\",\"message\":\"Pulling base image \\\"v0.0.10\\\""
+                + " ...\\n\",\"name\":\"Pulling Base Image\",\"totalsteps\":\"19\"}}");
+
+    Assert.assertNotNull(event);
+    Assert.assertTrue(event.isStep());
+    Assert.assertEquals(MinikubeJsonEvent.STEP_TYPE, event.getType());
+    Assert.assertEquals("Pulling Base Image", event.getName());
+    Assert.assertEquals("Pulling base image \"v0.0.10\" ...", event.getMessage());
+    Assert.assertEquals(3, event.getCurrentStep());
+    Assert.assertEquals(19, event.getTotalSteps());
+  }
+
+  @Test
+  public void testParse_warning() {
+    MinikubeJsonEvent event =
+        MinikubeJsonEvent.parse(
+            "{ \"type\" : \"io.k8s.sigs.minikube.warning\", \"data\" : { \"message\" :"
+                + " \"Low memory \\u2013 2GB\" } }");
+
+    Assert.assertNotNull(event);
+    Assert.assertFalse(event.isStep());
+    Assert.assertEquals(MinikubeJsonEvent.WARNING_TYPE, event.getType());
+    Assert.assertEquals("", event.getName());
+    Assert.assertEquals("Low memory \u2013 2GB", event.getMessage()); // en dash
+    Assert.assertEquals(-1, event.getCurrentStep());
+    Assert.assertEquals(-1, event.getTotalSteps());
+  }
+
+  @Test
+  public void testParse_nestedObjects() {
+    MinikubeJsonEvent event =
+        MinikubeJsonEvent.parse(
+            "{\"data\":{\"name\":\"Creating\",\"type\":\"nested\","
+                + "\"extra\":{\"message\":\"nested message\",\"name\":\"nested name\"}},"
+                + "\"type\":\"io.k8s.sigs.minikube.step\",\"message\":\"top-level message\"}");
+
+    Assert.assertNotNull(event);
+    Assert.assertEquals(MinikubeJsonEvent.STEP_TYPE, event.getType());
+    Assert.assertEquals("Creating", event.getName());
+    Assert.assertEquals("", event.getMessage());
+  }
+
+  @Test
+  public void testParse_numericFields() {
+    MinikubeJsonEvent event =
+        MinikubeJsonEvent.parse(
+            "{\"type\":\"io.k8s.sigs.minikube.step\","
+                + "\"data\":{\"currentstep\":4,\"totalsteps\":12,\"message\":42}}");
+
+    Assert.assertNotNull(event);
+    Assert.assertEquals(4, event.getCurrentStep());
+    Assert.assertEquals(12, event.getTotalSteps());
+    Assert.assertEquals("42", event.getMessage());
+  }
+
+  @Test
+  public void testParse_notEvent() {
+    Assert.assertNull(MinikubeJsonEvent.parse("Starting VM..."));
+    Assert.assertNull(MinikubeJsonEvent.parse("{\"type\":\"something.else\"}"));
+    Assert.assertNull(MinikubeJsonEvent.parse("{\"data\":{\"message\":\"type\"}}"));
+    Assert.assertNull(MinikubeJsonEvent.parse("{\"type\":\"io.k8s.sigs.minikube.step"));
+    Assert.assertNull(MinikubeJsonEvent.parse("{\"type\":3}"));
+    Assert.assertNull(MinikubeJsonEvent.parse("[\"io.k8s.sigs.minikube.step\"]"));
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for MinikubeOutputPhases */
+public class MinikubeOutputPhasesTest {
+
+  @Test
+  public void testParsePhaseName() {
+    Assert.assertEquals("Starting VM", MinikubeOutputPhases.parsePhaseName("Starting VM..."));
+    Assert.assertEquals(
+        "Starting local Kubernetes v1.10.0 cluster",
+        MinikubeOutputPhases.parsePhaseName("Starting local Kubernetes v1.10.0 cluster..."));
+    Assert.assertEquals(
+        "Creating virtualbox VM (CPUs=2, Memory=2048MB, Disk=20000MB)",
+        MinikubeOutputPhases.parsePhaseName(
+            "\uD83D\uDD25  Creating virtualbox VM (CPUs=2, Memory=2048MB, Disk=20000MB) ..."));
+    Assert.assertEquals(
+        "Pulling images", MinikubeOutputPhases.parsePhaseName("  - Pulling images \u2026  "));
+  }
+
+  @Test
+  public void testParsePhaseName_jsonEvent() {
+    Assert.assertEquals(
+        "Creating VM",
+        MinikubeOutputPhases.parsePhaseName(
+            "{\"type\":\"io.k8s.sigs.minikube.step\",\"data\":{\"message\":\"Creating VM"
+                + " ...\",\"name\":\"Creating VM\"}}"));
+    Assert.assertNull(
+        MinikubeOutputPhases.parsePhaseName(
+            "{\"type\":\"io.k8s.sigs.minikube.info\",\"data\":{\"message\":\"Waiting ...\"}}"));
+  }
+
+  @Test
+  public void testParsePhaseName_notPhase() {
+    Assert.assertNull(MinikubeOutputPhases.parsePhaseName("Kubectl is now configured."));
+    Assert.assertNull(MinikubeOutputPhases.parsePhaseName(""));
+    Assert.assertNull(MinikubeOutputPhases.parsePhaseName(" ... "));
+  }
+
+  @Test
+  public void testFinish() {
+    MinikubeOutputPhases phases = new MinikubeOutputPhases();
+    phases.accept("Starting VM...");
+    phases.accept("some output");
+    phases.accept("Setting up certs...");
+    long endNanoTime = System.nanoTime();
+
+    List<BuildTrace.Span> spans = phases.finish("main", endNanoTime);
+
+    Assert.assertEquals(2, spans.size());
+    Assert.assertEquals("Starting VM", spans.get(0).getName());
+    Assert.assertEquals("phase", spans.get(0).getCategory());
+    Assert.assertEquals("main", spans.get(0).getThreadName());
+    Assert.assertEquals(spans.get(1).getStartNanoTime(), spans.get(0).getEndNanoTime());
+    Assert.assertEquals("Setting up certs", spans.get(1).getName());
+    Assert.assertEquals(endNanoTime, spans.get(1).getEndNanoTime());
+  }
+
+  @Test
+  public void testFinish_noPhases() {
+    MinikubeOutputPhases phases = new MinikubeOutputPhases();
+    phases.accept("Kubectl is now configured.");
+
+    Assert.assertTrue(phases.finish("main", System.nanoTime()).isEmpty());
+  }
+}
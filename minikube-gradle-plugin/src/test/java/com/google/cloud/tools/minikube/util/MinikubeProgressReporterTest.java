@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import org.gradle.api.logging.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for MinikubeProgressReporter */
+public class MinikubeProgressReporterTest {
+
+  @Test
+  public void testAccept() {
+    Logger loggerMock = mock(Logger.class);
+    MinikubeProgressReporter progressReporter = new MinikubeProgressReporter(loggerMock);
+
+    progressReporter.accept(
+        "{\"type\":\"io.k8s.sigs.minikube.step\",\"data\":{\"currentstep\":\"0\","
+            + "\"message\":\"minikube v1.12.0 on Darwin\",\"name\":\"Initial Minikube Setup\","
+            + "\"totalsteps\":\"10\"}}");
+    progressReporter.accept("not an event");
+    progressReporter.accept(
+        "{\"type\":\"io.k8s.sigs.minikube.warning\",\"data\":{\"message\":\"Low memory\"}}");
+    progressReporter.accept(
+        "{\"type\":\"io.k8s.sigs.minikube.step\",\"data\":{\"currentstep\":\"1\","
+            + "\"message\":\"Creating VM ...\",\"name\":\"Creating VM\",\"totalsteps\":\"10\"}}");
+    progressReporter.accept(
+        "{\"type\":\"io.k8s.sigs.minikube.error\",\"data\":{\"message\":\"VM failed\"}}");
+
+    Assert.assertEquals("Creating VM", progressReporter.getCurrentStep());
+    verify(loggerMock)
+        .lifecycle("minikube [0/10] Initial Minikube Setup: minikube v1.12.0 on Darwin");
+    verify(loggerMock).warn("Low memory");
+    verify(loggerMock).lifecycle("minikube [1/10] Creating VM: Creating VM ...");
+    verify(loggerMock).error("VM failed");
+    verifyNoMoreInteractions(loggerMock);
+  }
+
+  @Test
+  public void testFinish() {
+    Logger loggerMock = mock(Logger.class);
+    MinikubeProgressReporter progressReporter = new MinikubeProgressReporter(loggerMock);
+    progressReporter.accept(
+        "{\"type\":\"io.k8s.sigs.minikube.step\",\"data\":{\"name\":\"Creating VM\"}}");
+    progressReporter.accept(
+        "{\"type\":\"io.k8s.sigs.minikube.step\",\"data\":{\"name\":\"Pulling Images\"}}");
+    progressReporter.accept(
+        "{\"type\":\"io.k8s.sigs.minikube.step\",\"data\":{\"name\":\"Creating VM\"}}");
+
+    Map<String, Duration> stepDurations = progressReporter.finish();
+
+    Assert.assertNull(progressReporter.getCurrentStep());
+    Assert.assertEquals(
+        Arrays.asList("Creating VM", "Pulling Images"),
+        Arrays.asList(stepDurations.keySet().toArray()));
+    verify(loggerMock).lifecycle(startsWith("minikube step durations:"));
+  }
+
+  @Test
+  public void testFinish_noSteps() {
+    Logger loggerMock = mock(Logger.class);
+    MinikubeProgressReporter progressReporter = new MinikubeProgressReporter(loggerMock);
+
+    Assert.assertTrue(progressReporter.finish().isEmpty());
+    verifyNoMoreInteractions(loggerMock);
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for MinikubeStartState */
+public class MinikubeStartStateTest {
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testGetMinikubeHome() {
+    Assert.assertEquals(
+        Paths.get(System.getProperty("user.home"), ".minikube"),
+        MinikubeStartState.getMinikubeHome(null));
+    Assert.assertEquals(
+        Paths.get(System.getProperty("user.home"), ".minikube"),
+        MinikubeStartState.getMinikubeHome(""));
+    Assert.assertEquals(
+        Paths.get("/some/home/.minikube"), MinikubeStartState.getMinikubeHome("/some/home"));
+    Assert.assertEquals(
+        Paths.get("/some/home/.minikube"),
+        MinikubeStartState.getMinikubeHome("/some/home/.minikube"));
+  }
+
+  @Test
+  public void testMatches() throws IOException {
+    MinikubeStartState startState =
+        writeProfileConfig(
+            "{\"Driver\": \"hyperkit\", \"CPUs\": 2, \"Memory\": 4096, \"DiskSize\": 20000,"
+                + " \"Nodes\": [{\"ControlPlane\": true}],"
+                + " \"KubernetesConfig\": {\"KubernetesVersion\": \"v1.20.2\","
+                + " \"ContainerRuntime\": \"docker\"}}");
+
+    Assert.assertTrue(startState.matches(Collections.emptyList()));
+    Assert.assertTrue(
+        startState.matches(
+            Arrays.asList(
+                "--memory=4g",
+                "--cpus",
+                "2",
+                "--driver=hyperkit",
+                "--disk-size=20000mb",
+                "--nodes=1",
+                "--kubernetes-version=1.20.2",
+                "--container-runtime=docker",
+                "-p",
+                "someProfile",
+                "--wait=all")));
+    Assert.assertTrue(startState.matches(Arrays.asList("--memory=4096", "--vm-driver=hyperkit")));
+    Assert.assertFalse(startState.matches(Arrays.asList("--cpus=4")));
+    Assert.assertFalse(startState.matches(Arrays.asList("--memory=2g")));
+    Assert.assertFalse(startState.matches(Arrays.asList("--driver=virtualbox")));
+    Assert.assertFalse(startState.matches(Arrays.asList("--kubernetes-version=stable")));
+    Assert.assertFalse(startState.matches(Arrays.asList("--nodes=2")));
+    Assert.assertFalse(startState.matches(Arrays.asList("--memory=lots")));
+  }
+
+  @Test
+  public void testMatches_flagNotInConfig() throws IOException {
+    MinikubeStartState startState = writeProfileConfig("{\"CPUs\": 2}");
+
+    Assert.assertFalse(startState.matches(Arrays.asList("--cpus=2", "--addons=ingress")));
+    Assert.assertFalse(startState.matches(Arrays.asList("--memory=2048")));
+    Assert.assertFalse(startState.matches(Arrays.asList("someArgument")));
+  }
+
+  @Test
+  public void testMatches_noConfig() throws IOException {
+    MinikubeStartState startState = new MinikubeStartState(tmp.getRoot().toPath(), "someProfile");
+
+    Assert.assertFalse(startState.matches(Collections.emptyList()));
+    Assert.assertFalse(startState.matches(Arrays.asList("--cpus=2")));
+  }
+
+  @Test
+  public void testMatches_invalidConfig() throws IOException {
+    MinikubeStartState startState = writeProfileConfig("{\"CPUs\": ");
+
+    Assert.assertFalse(startState.matches(Collections.emptyList()));
+  }
+
+  private MinikubeStartState writeProfileConfig(String configJson) throws IOException {
+    Path minikubeHome = tmp.getRoot().toPath();
+    Path profileDirectory =
+        Files.createDirectories(minikubeHome.resolve("profiles").resolve("someProfile"));
+    Files.write(
+        profileDirectory.resolve("config.json"), configJson.getBytes(StandardCharsets.UTF_8));
+    return new MinikubeStartState(minikubeHome, "someProfile");
+  }
+}
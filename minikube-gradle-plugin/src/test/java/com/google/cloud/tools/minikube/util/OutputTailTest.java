@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for {@link OutputTail} */
+public class OutputTailTest {
+
+  @Test
+  public void testAdd_withinLimits() {
+    OutputTail outputTail = new OutputTail(3, 100);
+    outputTail.add("line 1");
+    outputTail.add("line 2");
+
+    Assert.assertEquals(Arrays.asList("line 1", "line 2"), outputTail.getLines());
+    Assert.assertEquals(0, outputTail.getDroppedLines());
+  }
+
+  @Test
+  public void testAdd_dropsOldestLinesOverLineLimit() {
+    OutputTail outputTail = new OutputTail(2, 100);
+    outputTail.add("line 1");
+    outputTail.add("line 2");
+    outputTail.add("line 3");
+
+    Assert.assertEquals(Arrays.asList("line 2", "line 3"), outputTail.getLines());
+    Assert.assertEquals(1, outputTail.getDroppedLines());
+  }
+
+  @Test
+  public void testAdd_dropsOldestLinesOverCharacterLimit() {
+    OutputTail outputTail = new OutputTail(10, 12);
+    outputTail.add("line 1");
+    outputTail.add("line 2");
+    outputTail.add("line 3");
+
+    Assert.assertEquals(Arrays.asList("line 2", "line 3"), outputTail.getLines());
+    Assert.assertEquals(1, outputTail.getDroppedLines());
+  }
+
+  @Test
+  public void testAdd_lineLongerThanCharacterLimit() {
+    OutputTail outputTail = new OutputTail(10, 4);
+    outputTail.add("line 1");
+
+    Assert.assertEquals(Collections.emptyList(), outputTail.getLines());
+    Assert.assertEquals(1, outputTail.getDroppedLines());
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for ParallelProfileRunner */
+public class ParallelProfileRunnerTest {
+
+  @Test
+  public void testRun_boundedConcurrency() throws InterruptedException {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    Set<String> ran = ConcurrentHashMap.newKeySet();
+
+    Map<String, Throwable> failures =
+        new ParallelProfileRunner(2)
+            .run(
+                Arrays.asList("a", "b", "c", "d", "e"),
+                profile -> {
+                  maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                  Thread.sleep(50);
+                  running.decrementAndGet();
+                  ran.add(profile);
+                });
+
+    Assert.assertTrue(failures.isEmpty());
+    Assert.assertEquals(5, ran.size());
+    Assert.assertEquals(2, maxRunning.get());
+  }
+
+  @Test
+  public void testRun_failuresInProfileOrder() throws InterruptedException {
+    IOException failureA = new IOException("a");
+    IOException failureC = new IOException("c");
+    Set<String> ran = ConcurrentHashMap.newKeySet();
+
+    Map<String, Throwable> failures =
+        new ParallelProfileRunner(3)
+            .run(
+                Arrays.asList("a", "b", "c"),
+                profile -> {
+                  ran.add(profile);
+                  if ("c".equals(profile)) {
+                    throw failureC;
+                  }
+                  if ("a".equals(profile)) {
+                    throw failureA;
+                  }
+                });
+
+    Assert.assertEquals(Arrays.asList("a", "c"), Arrays.asList(failures.keySet().toArray()));
+    Assert.assertSame(failureA, failures.get("a"));
+    Assert.assertSame(failureC, failures.get("c"));
+    Assert.assertEquals(3, ran.size());
+  }
+
+  @Test
+  public void testRun_noProfiles() throws InterruptedException {
+    Assert.assertTrue(
+        new ParallelProfileRunner(1)
+            .run(Collections.emptyList(), profile -> Assert.fail())
+            .isEmpty());
+  }
+
+  @Test
+  public void testNew_invalidMaxConcurrency() {
+    try {
+      new ParallelProfileRunner(0);
+      Assert.fail("new ParallelProfileRunner(0) should have failed");
+
+    } catch (IllegalArgumentException ex) {
+      Assert.assertEquals("Max concurrency must be at least 1: 0", ex.getMessage());
+    }
+  }
+}
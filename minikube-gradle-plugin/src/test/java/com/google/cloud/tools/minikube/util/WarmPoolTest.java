@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for WarmPool */
+public class WarmPoolTest {
+
+  private static final Instant PAUSED_AT = Instant.ofEpochSecond(1_500_000_000);
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path minikubeHome;
+
+  @Before
+  public void setUp() throws IOException {
+    minikubeHome = temporaryFolder.newFolder(".minikube").toPath();
+    Files.createDirectories(minikubeHome.resolve("profiles").resolve("a"));
+    Files.createDirectories(minikubeHome.resolve("profiles").resolve("b"));
+  }
+
+  @Test
+  public void testMarkPaused() throws IOException {
+    WarmPool warmPool = newWarmPool(PAUSED_AT);
+
+    warmPool.markPaused("a");
+
+    Assert.assertEquals(PAUSED_AT, warmPool.getPausedSince("a"));
+    Assert.assertTrue(warmPool.isWarm("a"));
+    Assert.assertFalse(warmPool.isExpired("a"));
+    Assert.assertNull(warmPool.getPausedSince("b"));
+    Assert.assertFalse(warmPool.isWarm("b"));
+  }
+
+  @Test
+  public void testMarkPaused_noProfileDirectory() throws IOException {
+    WarmPool warmPool = newWarmPool(PAUSED_AT);
+
+    warmPool.markPaused("missing");
+
+    Assert.assertFalse(warmPool.isWarm("missing"));
+  }
+
+  @Test
+  public void testGetExpiredProfiles() throws IOException {
+    newWarmPool(PAUSED_AT).markPaused("a");
+    newWarmPool(PAUSED_AT.plus(Duration.ofMinutes(30))).markPaused("b");
+
+    WarmPool warmPool = newWarmPool(PAUSED_AT.plus(Duration.ofMinutes(61)));
+
+    Assert.assertEquals(Collections.singletonList("a"), warmPool.getExpiredProfiles());
+    Assert.assertTrue(warmPool.isExpired("a"));
+    Assert.assertFalse(warmPool.isWarm("a"));
+    Assert.assertTrue(warmPool.isWarm("b"));
+  }
+
+  @Test
+  public void testIsExpired_unreadableRecord() throws IOException {
+    Files.write(
+        minikubeHome.resolve("profiles").resolve("a").resolve(WarmPool.PAUSED_FILE_NAME),
+        "garbage".getBytes(StandardCharsets.UTF_8));
+    WarmPool warmPool = newWarmPool(PAUSED_AT);
+
+    Assert.assertTrue(warmPool.isExpired("a"));
+    Assert.assertEquals(Arrays.asList("a"), warmPool.getExpiredProfiles());
+  }
+
+  @Test
+  public void testRemove() throws IOException {
+    WarmPool warmPool = newWarmPool(PAUSED_AT);
+    warmPool.markPaused("a");
+
+    warmPool.remove("a");
+
+    Assert.assertFalse(warmPool.isWarm("a"));
+    Assert.assertTrue(warmPool.getExpiredProfiles().isEmpty());
+  }
+
+  private WarmPool newWarmPool(Instant now) {
+    return new WarmPool(minikubeHome, Duration.ofMinutes(60))
+        .setClock(Clock.fixed(now, ZoneOffset.UTC));
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.command;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link CommandExecutor#run} against {@link FakeMinikubeBinary}: the latency from
+ * spawning the process to its exit with all output read, and the throughput of reading output.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CommandExecutorBenchmark {
+
+  @Param({"0", "1000", "100000"})
+  public int lineCount;
+
+  @Param({"80"})
+  public int lineLength;
+
+  private Path binary;
+  private List<String> command;
+
+  @Setup
+  public void setUp() throws IOException {
+    binary = FakeMinikubeBinary.create(lineCount, lineLength);
+    command = Collections.singletonList(binary.toString());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FakeMinikubeBinary.delete(binary);
+  }
+
+  /** Spawns the command and captures all of its output lines. */
+  @Benchmark
+  @BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public List<String> run() throws IOException, InterruptedException {
+    return new CommandExecutor().run(command);
+  }
+
+  /**
+   * Spawns the command and streams its output lines, retaining only the tail as minikube goals do.
+   */
+  @Benchmark
+  @BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public List<String> runStreaming(Blackhole blackhole) throws IOException, InterruptedException {
+    return new CommandExecutor().setOutputTail(100, 64 * 1024).run(command, blackhole::consume);
+  }
+}
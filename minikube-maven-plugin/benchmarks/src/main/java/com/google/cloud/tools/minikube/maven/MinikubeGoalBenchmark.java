@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.maven;
+
+import com.google.cloud.tools.minikube.command.SimulatedMinikube;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.maven.monitor.logging.DefaultLog;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what the goals add on top of minikube itself: the latency of a goal against {@link
+ * SimulatedMinikube}, next to the latency of running the simulated minikube directly. The plugin
+ * overhead is the difference between the percentiles of {@link #goal} and {@link #minikube}.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MinikubeGoalBenchmark {
+
+  @Param({"start", "docker-env", "stop", "delete"})
+  public String command;
+
+  @Param({"0"})
+  public long fakeDelayMillis;
+
+  @Param({"0", "500"})
+  public int fakeOutputLines;
+
+  private final Log log = new DefaultLog(new ConsoleLogger(Logger.LEVEL_WARN, "minikube"));
+
+  private Path benchmarkDirectory;
+  private String minikube;
+  private List<String> minikubeCommand;
+  private AbstractMinikubeMojo mojo;
+
+  @Setup
+  public void setUp() throws IOException {
+    benchmarkDirectory = Files.createTempDirectory("minikube-benchmark");
+    minikube =
+        SimulatedMinikube.create(benchmarkDirectory, fakeDelayMillis, fakeOutputLines).toString();
+    minikubeCommand = newMojo().buildMinikubeCommand();
+  }
+
+  /** Gives every invocation new goals and project state, as a new build would. */
+  @Setup(Level.Invocation)
+  public void setUpInvocation() {
+    mojo = newMojo();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(benchmarkDirectory)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /** Runs the goal for the command. */
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public void goal() throws MojoExecutionException {
+    mojo.execute();
+  }
+
+  /** Runs the command the goal runs without the plugin, reading and discarding its output. */
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public void minikube() throws IOException, InterruptedException {
+    Process process = new ProcessBuilder(minikubeCommand).redirectErrorStream(true).start();
+    try (InputStream inputStream = process.getInputStream()) {
+      ByteStreams.exhaust(inputStream);
+    }
+    if (process.waitFor() != 0) {
+      throw new IOException("command exited with non-zero exit code : " + minikubeCommand);
+    }
+  }
+
+  private AbstractMinikubeMojo newMojo() {
+    AbstractMinikubeMojo newMojo;
+    switch (command) {
+      case "start":
+        newMojo = new StartMojo();
+        break;
+      case "docker-env":
+        newMojo = new DockerEnvMojo();
+        break;
+      case "stop":
+        newMojo = new StopMojo();
+        break;
+      case "delete":
+        newMojo = new DeleteMojo();
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown minikube command: " + command);
+    }
+    // Keeps the docker environment properties, metrics and trace of the goal in a new project.
+    MavenProject project = new MavenProject();
+    project.getBuild().setDirectory(benchmarkDirectory.resolve("target").toString());
+    newMojo.setProject(project);
+    newMojo.setLog(log);
+    newMojo.setMavenBuildLogger(new MavenBuildLogger(log));
+    newMojo.setMinikube(minikube);
+    // No profile configuration exists here, so start never finds the profile already running.
+    newMojo.setMinikubeHome(benchmarkDirectory.resolve(".minikube"));
+    return newMojo;
+  }
+}
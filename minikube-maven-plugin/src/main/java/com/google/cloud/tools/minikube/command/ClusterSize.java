@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.command;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// TODO: Share this with minikube-gradle-plugin.
+/** The CPUs and memory a minikube cluster is started with. */
+public class ClusterSize {
+
+  /**
+   * Finds the size set by the {@code --cpus} and {@code --memory} flags. As with minikube, the last
+   * occurrence wins, and a flag that is not set or not understood leaves minikube's default.
+   *
+   * @param arguments the command line tokens
+   * @return the size the cluster is started with
+   */
+  public static ClusterSize fromArguments(List<String> arguments) {
+    int cpus = HostResources.DEFAULT_CLUSTER_CPUS;
+    long memoryMb = HostResources.DEFAULT_CLUSTER_MEMORY_MB;
+    for (int i = 0; i < arguments.size(); i++) {
+      String argument = arguments.get(i);
+      String cpusValue = null;
+      String memoryValue = null;
+      if (argument.startsWith("--cpus=")) {
+        cpusValue = argument.substring("--cpus=".length());
+      } else if (argument.startsWith("--memory=")) {
+        memoryValue = argument.substring("--memory=".length());
+      } else if (argument.equals("--cpus") && i + 1 < arguments.size()) {
+        cpusValue = arguments.get(++i);
+      } else if (argument.equals("--memory") && i + 1 < arguments.size()) {
+        memoryValue = arguments.get(++i);
+      }
+      if (cpusValue != null) {
+        try {
+          cpus = Integer.parseInt(cpusValue.trim());
+        } catch (NumberFormatException ex) {
+          cpus = HostResources.DEFAULT_CLUSTER_CPUS;
+        }
+      }
+      if (memoryValue != null) {
+        memoryMb = parseMemoryMb(memoryValue);
+      }
+    }
+    return new ClusterSize(cpus, memoryMb);
+  }
+
+  /**
+   * Parses a {@code --memory} value the way minikube does: a number of MB, or a number with a
+   * {@code k}, {@code m}, {@code g} or {@code t} unit, optionally followed by {@code b}.
+   *
+   * @return the memory in MB, or minikube's default if the value is not understood
+   */
+  @VisibleForTesting
+  static long parseMemoryMb(String value) {
+    String memory = value.trim().toLowerCase(Locale.ROOT);
+    if (memory.endsWith("b")) {
+      memory = memory.substring(0, memory.length() - 1);
+    }
+    // Kilobytes, megabytes, gigabytes and terabytes, each 1024 times the one before.
+    int unit = memory.isEmpty() ? -1 : "kmgt".indexOf(memory.charAt(memory.length() - 1));
+    if (unit >= 0) {
+      memory = memory.substring(0, memory.length() - 1);
+    }
+    double unitMb = unit >= 0 ? Math.pow(1024, unit - 1) : 1;
+    try {
+      return (long) Math.ceil(Double.parseDouble(memory) * unitMb);
+    } catch (NumberFormatException ex) {
+      return HostResources.DEFAULT_CLUSTER_MEMORY_MB;
+    }
+  }
+
+  /** @return true if the arguments set the flag, as {@code --flag value} or {@code --flag=value} */
+  private static boolean isFlagSet(List<String> arguments, String flag) {
+    for (String argument : arguments) {
+      if (argument.equals(flag) || argument.startsWith(flag + "=")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private final int cpus;
+  private final long memoryMb;
+
+  /**
+   * @param cpus the CPUs of the cluster
+   * @param memoryMb the memory of the cluster in MB
+   */
+  public ClusterSize(int cpus, long memoryMb) {
+    this.cpus = cpus;
+    this.memoryMb = memoryMb;
+  }
+
+  /** @return the CPUs of the cluster */
+  public int getCpus() {
+    return cpus;
+  }
+
+  /** @return the memory of the cluster in MB */
+  public long getMemoryMb() {
+    return memoryMb;
+  }
+
+  /**
+   * Gets the {@code --cpus} and {@code --memory} flags of this size that the arguments do not set,
+   * so that flags set by the user win.
+   *
+   * @param arguments the command line tokens
+   * @return the flags to add to the arguments
+   */
+  public List<String> getMissingFlags(List<String> arguments) {
+    List<String> missingFlags = new ArrayList<>();
+    if (!isFlagSet(arguments, "--cpus")) {
+      missingFlags.add("--cpus=" + cpus);
+    }
+    if (!isFlagSet(arguments, "--memory")) {
+      missingFlags.add("--memory=" + memoryMb + "mb");
+    }
+    return missingFlags;
+  }
+
+  @Override
+  public String toString() {
+    return cpus + " CPUs and " + memoryMb + " MB";
+  }
+}
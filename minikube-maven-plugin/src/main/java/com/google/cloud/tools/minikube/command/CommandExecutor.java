@@ -17,19 +17,30 @@
 package com.google.cloud.tools.minikube.command;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.io.CountingInputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import javax.annotation.Nullable;
 
 // TODO: Share this with minikube-gradle-plugin.
 /** Executes a shell command. */
@@ -37,10 +48,30 @@ public class CommandExecutor {
 
   @VisibleForTesting static final int TIMEOUT_SECONDS = 5;
 
+  /**
+   * Reads the output of all commands. Idle threads are reused across commands and exit after a
+   * minute, and as daemon threads they never keep the JVM alive at the end of the build.
+   */
+  private static final ExecutorService SHARED_EXECUTOR_SERVICE =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("minikube-command-output-%d")
+              .build());
+
   private Supplier<ProcessBuilder> processBuilderSupplier = ProcessBuilder::new;
-  private Supplier<ExecutorService> executorServiceSupplier = Executors::newSingleThreadExecutor;
+  private ExecutorService executorService = SHARED_EXECUTOR_SERVICE;
   private BuildLogger logger;
+  @Nullable private String minikube;
+  @Nullable private CommandMetrics commandMetrics;
+  @Nullable private BuildTrace buildTrace;
   private Map<String, String> environment;
+  private int maxOutputLines = Integer.MAX_VALUE;
+  private long maxOutputCharacters = Long.MAX_VALUE;
+  private boolean outputTailed;
+  @Nullable private Duration timeout;
+  @Nullable private Path profileLockDirectory;
+  @Nullable private ClusterAdmission clusterAdmission;
 
   /** Sets the {@code BuildLogger} to use to log messages during the command execution. */
   public CommandExecutor setLogger(BuildLogger logger) {
@@ -54,6 +85,74 @@ public class CommandExecutor {
     return this;
   }
 
+  /**
+   * Sets the minikube executable, as configured. Only the commands it runs are minikube commands:
+   * other executables may have subcommands of the same names.
+   */
+  public CommandExecutor setMinikube(String minikube) {
+    this.minikube = minikube;
+    return this;
+  }
+
+  /** Sets the registry to record the timings and output statistics of each command run in. */
+  public CommandExecutor setCommandMetrics(CommandMetrics commandMetrics) {
+    this.commandMetrics = commandMetrics;
+    return this;
+  }
+
+  /**
+   * Sets the trace to add a span for each command run to, with spans for the phases minikube
+   * announces in its output nested under it.
+   */
+  public CommandExecutor setBuildTrace(BuildTrace buildTrace) {
+    this.buildTrace = buildTrace;
+    return this;
+  }
+
+  /**
+   * Retains only the last lines of the command output, instead of all of it. The retained lines are
+   * returned from {@link #run} and included in the failure message if the command fails. Use with
+   * an output line consumer to stream long output with bounded memory.
+   *
+   * @param maxLines the maximum number of lines to retain
+   * @param maxCharacters the maximum total number of characters to retain
+   */
+  public CommandExecutor setOutputTail(int maxLines, long maxCharacters) {
+    this.maxOutputLines = maxLines;
+    this.maxOutputCharacters = maxCharacters;
+    outputTailed = true;
+    return this;
+  }
+
+  /**
+   * Sets the maximum time the command may run for. If the command has not exited by then, it is
+   * destroyed along with all of its descendant processes and the run fails.
+   */
+  public CommandExecutor setTimeout(Duration timeout) {
+    this.timeout = timeout;
+    return this;
+  }
+
+  /**
+   * Locks the minikube profile of each command across processes while it runs, with the lock files
+   * in the directory: commands that change the profile lock it exclusively, and read-only commands
+   * share the lock. Other commands, commands of executables other than the one set with {@link
+   * #setMinikube}, and commands run with {@link #runAsync}, are not locked.
+   */
+  public CommandExecutor setProfileLockDirectory(Path profileLockDirectory) {
+    this.profileLockDirectory = profileLockDirectory;
+    return this;
+  }
+
+  /**
+   * Sets the admission of the cluster starts of the build, for {@link #admitClusterStart} to wait
+   * on.
+   */
+  public CommandExecutor setClusterAdmission(ClusterAdmission clusterAdmission) {
+    this.clusterAdmission = clusterAdmission;
+    return this;
+  }
+
   @VisibleForTesting
   CommandExecutor setProcessBuilderSupplier(Supplier<ProcessBuilder> processBuilderSupplier) {
     this.processBuilderSupplier = processBuilderSupplier;
@@ -61,8 +160,8 @@ public class CommandExecutor {
   }
 
   @VisibleForTesting
-  CommandExecutor setExecutorServiceSupplier(Supplier<ExecutorService> executorServiceSupplier) {
-    this.executorServiceSupplier = executorServiceSupplier;
+  CommandExecutor setExecutorService(ExecutorService executorService) {
+    this.executorService = executorService;
     return this;
   }
 
@@ -79,63 +178,569 @@ public class CommandExecutor {
    * @throws IOException if the command failed to run or exited with non-zero exit code
    */
   public List<String> run(List<String> command) throws IOException, InterruptedException {
+    return run(command, CommandExecutor::ignoreOutputLine);
+  }
+
+  /**
+   * Runs the command, streaming its output. Holds the lock of the command's minikube profile while
+   * it runs, if a profile lock directory is set.
+   *
+   * @param command the list of command line tokens
+   * @param outputLineConsumer called with each line of output as it is read
+   * @return the retained output of the command as a list of lines
+   * @throws IOException if the command failed to run, exited with non-zero exit code, or timed out
+   */
+  public List<String> run(List<String> command, Consumer<String> outputLineConsumer)
+      throws IOException, InterruptedException {
+    boolean readOnly = MinikubeProfile.isReadOnly(command);
+    if (!isMinikubeCommand(command) || (!readOnly && !MinikubeProfile.isMutating(command))) {
+      return runProcess(command, outputLineConsumer);
+    }
+    try (ProfileLock.Lease ignored =
+        lockProfile(MinikubeProfile.fromArguments(command), readOnly, makeSpanName(command))) {
+      return runProcess(command, outputLineConsumer);
+    }
+  }
+
+  /** @return true if the command is run by the minikube executable */
+  private boolean isMinikubeCommand(List<String> command) {
+    return minikube != null && !command.isEmpty() && minikube.equals(command.get(0));
+  }
+
+  /**
+   * Locks the minikube profile, waiting while another build holds it. Waiting is logged, and how
+   * long it took is recorded in the metrics and the trace.
+   *
+   * @param profile the minikube profile
+   * @param shared true to share the lock with other read-only commands
+   * @param holder describes what the lock is held for, such as {@code minikube start}
+   * @return the lease to release the lock with, or {@code null} if no profile lock directory is set
+   *     or it does not support file locks
+   */
+  @Nullable
+  public ProfileLock.Lease lockProfile(String profile, boolean shared, String holder)
+      throws InterruptedException {
+    if (profileLockDirectory == null) {
+      return null;
+    }
+    String threadName = Thread.currentThread().getName();
+    long startNanos = System.nanoTime();
+    ProfileLock.Lease lease;
+    try {
+      lease =
+          ProfileLock.get(profileLockDirectory, profile)
+              .lock(
+                  shared,
+                  holder,
+                  currentHolder -> {
+                    if (logger != null) {
+                      logger.lifecycle(
+                          "Waiting for minikube profile "
+                              + profile
+                              + " locked by "
+                              + (currentHolder.isEmpty() ? "another build" : currentHolder));
+                    }
+                  });
+
+    } catch (IOException ex) {
+      if (logger != null) {
+        logger.warn(
+            "Could not lock minikube profile "
+                + profile
+                + ", running unlocked: "
+                + ex.getMessage());
+      }
+      return null;
+    }
+    if (lease.isReentrant()) {
+      return lease;
+    }
+
+    if (lease.getStaleHolder() != null && logger != null) {
+      logger.warn(
+          "minikube profile "
+              + profile
+              + " was locked by "
+              + lease.getStaleHolder()
+              + ", which exited before it was done; the profile may need to be deleted");
+    }
+    if (commandMetrics != null) {
+      commandMetrics.recordLockWait(lease);
+    }
+    if (buildTrace != null && lease.getWaitNanos() > 0) {
+      Map<String, String> args = new LinkedHashMap<>();
+      args.put("holder", holder);
+      args.put("shared", Boolean.toString(shared));
+      buildTrace.addSpan(
+          new BuildTrace.Span(
+              "lock " + profile,
+              "lock",
+              threadName,
+              startNanos,
+              startNanos + lease.getWaitNanos(),
+              args));
+    }
+    return lease;
+  }
+
+  /**
+   * Waits until a cluster of the size may start without the clusters of the build taking more than
+   * the fraction of the host. Waiting is logged, and how long it took is recorded in the metrics
+   * and the trace.
+   *
+   * @param profile the minikube profile
+   * @param size the size the cluster is started with
+   * @param maxFraction the share of the host processors and memory the clusters may take
+   * @return the ticket to close once the start is done, or {@code null} if no cluster admission is
+   *     set
+   */
+  @Nullable
+  public ClusterAdmission.Ticket admitClusterStart(
+      String profile, ClusterSize size, double maxFraction) throws InterruptedException {
+    if (clusterAdmission == null) {
+      return null;
+    }
+    HostResources hostResources = clusterAdmission.getHostResources();
+    String threadName = Thread.currentThread().getName();
+    long startNanos = System.nanoTime();
+    ClusterAdmission.Ticket ticket =
+        clusterAdmission.admit(
+            profile,
+            size,
+            maxFraction,
+            (committedCpus, committedMemoryMb) -> {
+              if (logger != null) {
+                logger.lifecycle(
+                    "Waiting to start minikube profile "
+                        + profile
+                        + " with "
+                        + size
+                        + ": the clusters of this build already take "
+                        + committedCpus
+                        + " of "
+                        + hostResources.getProcessors()
+                        + " CPUs and "
+                        + committedMemoryMb
+                        + " of "
+                        + hostResources.getMemoryMb()
+                        + " MB");
+              }
+            });
+
+    if (ticket.isOvercommitted() && logger != null) {
+      logger.warn(
+          "Starting minikube profile "
+              + profile
+              + " with "
+              + size
+              + " although it does not fit in "
+              + Math.round(maxFraction * 100)
+              + "% of the host with the clusters already started");
+    }
+    if (commandMetrics != null) {
+      commandMetrics.recordAdmissionWait(ticket);
+    }
+    if (buildTrace != null && ticket.getWaitNanos() > 0) {
+      Map<String, String> args = new LinkedHashMap<>();
+      args.put("cpus", Integer.toString(size.getCpus()));
+      args.put("memoryMb", Long.toString(size.getMemoryMb()));
+      buildTrace.addSpan(
+          new BuildTrace.Span(
+              "admit " + profile,
+              "admission",
+              threadName,
+              startNanos,
+              startNanos + ticket.getWaitNanos(),
+              args));
+    }
+    return ticket;
+  }
+
+  /** Runs the command in a new process, streaming its output. */
+  private List<String> runProcess(List<String> command, Consumer<String> outputLineConsumer)
+      throws IOException, InterruptedException {
     if (logger != null) {
       logger.debug("Running command : " + String.join(" ", command));
     }
 
-    ExecutorService executor = executorServiceSupplier.get();
+    long startTimeMillis = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
+    Process process = startProcess(command);
+    long spawnNanos = System.nanoTime() - startNanos;
+
+    // Runs the command and streams the output.
+    OutputTail output = new OutputTail(maxOutputLines, maxOutputCharacters);
+    String threadName = Thread.currentThread().getName();
+    MinikubeOutputPhases phases = new MinikubeOutputPhases();
+    CountingInputStream processOutput = new CountingInputStream(process.getInputStream());
+    Future<?> outputConsumer =
+        executorService.submit(
+            makeOutputConsumerRunnable(
+                processOutput, output, splitPhases(outputLineConsumer, phases)));
+
+    Supplier<IOException> timeoutFailure = null;
+    Integer exitCode = waitForExit(process, startNanos);
+    if (exitCode == null) {
+      timeoutFailure = destroyTimedOutProcess(process, command, startNanos, output);
+    }
 
-    // Builds the command to execute.
+    Throwable outputFailure = null;
+    try {
+      outputFailure = awaitOutputConsumer(outputConsumer);
+    } catch (InterruptedException ex) {
+      if (logger != null) {
+        logger.debug("Task Executor interrupted waiting for output consumer thread");
+      }
+      Thread.currentThread().interrupt();
+    }
+    recordCommand(
+        command,
+        threadName,
+        startTimeMillis,
+        startNanos,
+        spawnNanos,
+        exitCode,
+        output,
+        processOutput,
+        phases);
+
+    if (timeoutFailure != null) {
+      throw timeoutFailure.get();
+    }
+    if (outputFailure != null) {
+      throwOutputFailure(outputFailure);
+    }
+
+    // Checks the command exit code.
+    if (exitCode != 0) {
+      throw new IOException(makeFailureMessage(exitCode, output));
+    }
+
+    return output.getLines();
+  }
+
+  /**
+   * Runs the command without blocking the calling thread. The command output is read, and the
+   * process waited for, on a thread from the {@link ExecutorService}.
+   *
+   * @param command the list of command line tokens
+   * @param outputLineConsumer called with each line of output as it is read
+   * @return a future that completes with the result of the command, or completes exceptionally with
+   *     an {@link IOException} if the command exited with non-zero exit code or timed out
+   * @throws IOException if the command could not be started
+   */
+  public CompletableFuture<CommandResult> runAsync(
+      List<String> command, Consumer<String> outputLineConsumer) throws IOException {
+    if (logger != null) {
+      logger.debug("Running command asynchronously : " + String.join(" ", command));
+    }
+
+    long startTimeMillis = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
+    Process process = startProcess(command);
+    long spawnNanos = System.nanoTime() - startNanos;
+
+    CompletableFuture<CommandResult> result = new CompletableFuture<>();
+    OutputTail output = new OutputTail(maxOutputLines, maxOutputCharacters);
+    // The command outlives the calling thread's current work, so it gets its own track.
+    String threadName = Thread.currentThread().getName() + " (async)";
+    MinikubeOutputPhases phases = new MinikubeOutputPhases();
+    CountingInputStream processOutput = new CountingInputStream(process.getInputStream());
+    Future<?> outputConsumer =
+        executorService.submit(
+            makeOutputConsumerRunnable(
+                processOutput, output, splitPhases(outputLineConsumer, phases)));
+    executorService.execute(
+        () -> {
+          try {
+            Integer exitCode = waitForExit(process, startNanos);
+            if (exitCode == null) {
+              Supplier<IOException> timeoutFailure =
+                  destroyTimedOutProcess(process, command, startNanos, output);
+              awaitOutputConsumer(outputConsumer);
+              recordCommand(
+                  command,
+                  threadName,
+                  startTimeMillis,
+                  startNanos,
+                  spawnNanos,
+                  null,
+                  output,
+                  processOutput,
+                  phases);
+              result.completeExceptionally(timeoutFailure.get());
+              return;
+            }
+            Throwable outputFailure = awaitOutputConsumer(outputConsumer);
+            recordCommand(
+                command,
+                threadName,
+                startTimeMillis,
+                startNanos,
+                spawnNanos,
+                exitCode,
+                output,
+                processOutput,
+                phases);
+            if (outputFailure != null) {
+              result.completeExceptionally(outputFailure);
+              return;
+            }
+            if (exitCode != 0) {
+              result.completeExceptionally(new IOException(makeFailureMessage(exitCode, output)));
+              return;
+            }
+            result.complete(new CommandResult(exitCode, output.getLines()));
+
+          } catch (InterruptedException ex) {
+            process.destroy();
+            result.completeExceptionally(ex);
+            Thread.currentThread().interrupt();
+          } catch (Throwable ex) {
+            // Callers waiting on the result would otherwise wait forever.
+            result.completeExceptionally(ex);
+          }
+        });
+
+    return result;
+  }
+
+  /** Builds and starts the process for the command. */
+  private Process startProcess(List<String> command) throws IOException {
     ProcessBuilder processBuilder = processBuilderSupplier.get();
     processBuilder.command(command);
     processBuilder.redirectErrorStream(true);
     if (environment != null) {
       processBuilder.environment().putAll(environment);
     }
-    Process process = processBuilder.start();
+    return processBuilder.start();
+  }
 
-    // Runs the command and streams the output.
-    List<String> output = new ArrayList<>();
-    executor.execute(makeOutputConsumerRunnable(process, output));
-    int exitCode = process.waitFor();
+  /**
+   * Waits for the process to exit, or for the timeout to elapse if one is set.
+   *
+   * @return the process exit code, or {@code null} if the timeout elapsed first
+   */
+  @Nullable
+  private Integer waitForExit(Process process, long startNanos) throws InterruptedException {
+    if (timeout == null) {
+      return process.waitFor();
+    }
 
-    // Shuts down the executor.
-    executor.shutdown();
+    long remainingNanos = timeout.toNanos() - (System.nanoTime() - startNanos);
+    if (process.waitFor(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS)) {
+      return process.exitValue();
+    }
+    return null;
+  }
+
+  /**
+   * Destroys the process tree of a timed out command.
+   *
+   * @return makes the failure to report once the remaining output has been read
+   */
+  private Supplier<IOException> destroyTimedOutProcess(
+      Process process, List<String> command, long startNanos, OutputTail output) {
+    long timedOutNanos = System.nanoTime();
+    int destroyedProcesses = ProcessTree.destroyForcibly(process);
+    if (logger != null) {
+      logger.debug(
+          "Destroyed "
+              + destroyedProcesses
+              + " processes of timed out command : "
+              + command.get(0));
+    }
+    return () ->
+        new IOException(
+            makeTimeoutMessage(command, startNanos, timedOutNanos, destroyedProcesses, output));
+  }
 
+  /**
+   * Waits a limited time for the output consumer to finish reading the output.
+   *
+   * @return the failure of the output line consumer, or {@code null} if it did not fail
+   */
+  @Nullable
+  private Throwable awaitOutputConsumer(Future<?> outputConsumer) throws InterruptedException {
     try {
-      executor.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-    } catch (InterruptedException ex) {
+      outputConsumer.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (ExecutionException ex) {
+      return ex.getCause();
+    } catch (TimeoutException ex) {
       if (logger != null) {
-        logger.debug("Task Executor interrupted waiting for output consumer thread");
+        logger.debug("Output consumer thread did not finish reading the process output");
       }
     }
+    return null;
+  }
 
-    // Checks the command exit code.
-    if (exitCode != 0) {
-      throw new IOException("command exited with non-zero exit code : " + exitCode);
+  /** Throws the failure of the output line consumer, wrapped if it is checked. */
+  private static void throwOutputFailure(Throwable outputFailure) throws IOException {
+    if (outputFailure instanceof RuntimeException) {
+      throw (RuntimeException) outputFailure;
+    }
+    if (outputFailure instanceof Error) {
+      throw (Error) outputFailure;
     }
+    throw new IOException("Consuming the command output failed", outputFailure);
+  }
+
+  /**
+   * Records the metric of a command that ran and adds its spans and the spans of its phases to the
+   * trace, if there is a registry or trace to record them in.
+   */
+  private void recordCommand(
+      List<String> command,
+      String threadName,
+      long startTimeMillis,
+      long startNanos,
+      long spawnNanos,
+      @Nullable Integer exitCode,
+      OutputTail output,
+      CountingInputStream processOutput,
+      MinikubeOutputPhases phases) {
+    long endNanos = System.nanoTime();
+    List<BuildTrace.Span> phaseSpans = phases.finish(threadName, endNanos);
+
+    if (commandMetrics != null) {
+      long firstOutputNanos =
+          output.getLineCount() == 0 ? -1 : output.getFirstLineNanoTime() - startNanos;
+      Map<String, Long> phaseNanos = new LinkedHashMap<>();
+      for (BuildTrace.Span phase : phaseSpans) {
+        phaseNanos.merge(
+            phase.getName(), phase.getEndNanoTime() - phase.getStartNanoTime(), Long::sum);
+      }
+      commandMetrics.record(
+          new CommandMetric(
+              command,
+              startTimeMillis,
+              spawnNanos,
+              endNanos - startNanos,
+              exitCode,
+              output.getLineCount(),
+              processOutput.getCount(),
+              firstOutputNanos,
+              phaseNanos));
+    }
+
+    if (buildTrace != null) {
+      Map<String, String> args = new LinkedHashMap<>();
+      args.put("command", String.join(" ", command));
+      args.put("exitCode", exitCode == null ? "timed out" : exitCode.toString());
+      buildTrace.addSpan(
+          new BuildTrace.Span(
+              makeSpanName(command), "command", threadName, startNanos, endNanos, args));
+      phaseSpans.forEach(buildTrace::addSpan);
+    }
+  }
+
+  /** @return the output line consumer, also splitting the output into phases if recording them */
+  private Consumer<String> splitPhases(
+      Consumer<String> outputLineConsumer, MinikubeOutputPhases phases) {
+    if (commandMetrics == null && buildTrace == null) {
+      return outputLineConsumer;
+    }
+    return outputLineConsumer.andThen(phases);
+  }
 
-    return output;
+  /** @return the executable file name and the subcommand, such as {@code minikube start} */
+  private static String makeSpanName(List<String> command) {
+    String executable = command.get(0);
+    executable =
+        executable.substring(
+            Math.max(executable.lastIndexOf('/'), executable.lastIndexOf('\\')) + 1);
+    return command.size() > 1 ? executable + " " + command.get(1) : executable;
+  }
+
+  /**
+   * Logs a line of output. Events printed by minikube with {@code --output=json} are only logged at
+   * debug level, since a {@link MinikubeProgressReporter} reports them in a readable form.
+   */
+  private void logOutputLine(String line) {
+    if (line.startsWith("{") && MinikubeJsonEvent.parse(line) != null) {
+      logger.debug(line);
+    } else {
+      logger.lifecycle(line);
+    }
+  }
+
+  /** Output line consumer for when only the retained output is needed. */
+  private static void ignoreOutputLine(String line) {}
+
+  /** Makes the failure message for a non-zero exit code, with the output tail if retained. */
+  private String makeFailureMessage(int exitCode, OutputTail output) {
+    String message = "command exited with non-zero exit code : " + exitCode;
+    return appendOutputTail(message, output);
+  }
+
+  /** Makes the failure message for a timed out command, with timings and the output tail. */
+  private String makeTimeoutMessage(
+      List<String> command,
+      long startNanos,
+      long timedOutNanos,
+      int destroyedProcesses,
+      OutputTail output) {
+    Preconditions.checkNotNull(timeout);
+
+    StringBuilder message = new StringBuilder("command timed out after ");
+    message.append(TimeUnit.NANOSECONDS.toMillis(timedOutNanos - startNanos)).append(" ms");
+    message.append(" (timeout ").append(timeout.toMillis()).append(" ms)");
+
+    long lastLineNanos = output.getLastLineNanoTime();
+    if (output.getLineCount() == 0) {
+      message.append(", no output since start");
+    } else {
+      message.append(", ").append(output.getLineCount()).append(" lines of output, last line ");
+      message.append(TimeUnit.NANOSECONDS.toMillis(timedOutNanos - lastLineNanos));
+      message.append(" ms before timeout");
+    }
+    message.append(", destroyed ").append(destroyedProcesses).append(" processes");
+    message.append(" : ").append(String.join(" ", command));
+
+    return appendOutputTail(message.toString(), output);
+  }
+
+  /** Appends the retained output lines to the message, if output is being tailed. */
+  private String appendOutputTail(String message, OutputTail output) {
+    if (!outputTailed) {
+      return message;
+    }
+    List<String> lines = output.getLines();
+    if (lines.isEmpty()) {
+      return message;
+    }
+    return message + System.lineSeparator() + String.join(System.lineSeparator(), lines);
   }
 
   /**
    * Creates a {@link Runnable} to read the command output.
    *
-   * @param process the process to read from
-   * @param output a list to store the output lines to
+   * @param processOutput the process output to read from
+   * @param output the tail to retain the output lines in
+   * @param outputLineConsumer also receives each output line
    */
-  private Runnable makeOutputConsumerRunnable(Process process, List<String> output) {
+  private Runnable makeOutputConsumerRunnable(
+      InputStream processOutput, OutputTail output, Consumer<String> outputLineConsumer) {
     return () -> {
-      try (InputStream processInputStream = process.getInputStream();
+      RuntimeException consumerFailure = null;
+      try (InputStream processInputStream = processOutput;
           InputStreamReader inputStreamReader =
               new InputStreamReader(processInputStream, StandardCharsets.UTF_8);
           BufferedReader bufferedReader = new BufferedReader(inputStreamReader)) {
         String line = bufferedReader.readLine();
         while (line != null) {
           if (logger != null) {
-            logger.lifecycle(line);
+            logOutputLine(line);
           }
           output.add(line);
+          if (consumerFailure == null) {
+            try {
+              outputLineConsumer.accept(line);
+            } catch (RuntimeException ex) {
+              // Keeps reading, so that the process does not block on a full output pipe.
+              consumerFailure = ex;
+            }
+          }
           line = bufferedReader.readLine();
         }
 
@@ -144,6 +749,9 @@ public class CommandExecutor {
           logger.warn("IO Exception reading process output");
         }
       }
+      if (consumerFailure != null) {
+        throw consumerFailure;
+      }
     };
   }
 }
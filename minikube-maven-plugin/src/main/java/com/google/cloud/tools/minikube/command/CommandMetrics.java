@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.command;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// TODO: Share this with minikube-gradle-plugin.
+/**
+ * Collects the {@link CommandMetric}s of the commands run during a build, and how long each lock of
+ * a minikube profile and each admission of a cluster start took to get.
+ */
+public class CommandMetrics {
+
+  private final List<CommandMetric> metrics = new ArrayList<>();
+  private final List<ProfileLock.Lease> lockWaits = new ArrayList<>();
+  private final List<ClusterAdmission.Ticket> admissionWaits = new ArrayList<>();
+
+  /** Records the metric of a command that ran. */
+  public synchronized void record(CommandMetric metric) {
+    metrics.add(metric);
+  }
+
+  /** @return the metrics recorded so far, in the order the commands finished */
+  public synchronized List<CommandMetric> getMetrics() {
+    return new ArrayList<>(metrics);
+  }
+
+  /** Records a lock of a minikube profile that was taken. */
+  public synchronized void recordLockWait(ProfileLock.Lease lease) {
+    lockWaits.add(lease);
+  }
+
+  /** @return the profile locks taken so far, in the order they were taken */
+  public synchronized List<ProfileLock.Lease> getLockWaits() {
+    return new ArrayList<>(lockWaits);
+  }
+
+  /** Records the admission of a cluster start. */
+  public synchronized void recordAdmissionWait(ClusterAdmission.Ticket ticket) {
+    admissionWaits.add(ticket);
+  }
+
+  /** @return the cluster starts admitted so far, in the order they were admitted */
+  public synchronized List<ClusterAdmission.Ticket> getAdmissionWaits() {
+    return new ArrayList<>(admissionWaits);
+  }
+
+  /** @return the metrics as a JSON report */
+  public String toJson() {
+    StringBuilder json = new StringBuilder("{\n  \"commands\": [");
+    String separator = "\n";
+    for (CommandMetric metric : getMetrics()) {
+      json.append(separator).append("    {\"command\": [");
+      for (int i = 0; i < metric.getCommand().size(); i++) {
+        json.append(i == 0 ? "" : ", ").append(quote(metric.getCommand().get(i)));
+      }
+      json.append("], \"startTimeMillis\": ")
+          .append(metric.getStartTimeMillis())
+          .append(", \"spawnMillis\": ")
+          .append(toMillis(metric.getSpawnNanos()))
+          .append(", \"wallMillis\": ")
+          .append(toMillis(metric.getWallNanos()))
+          .append(", \"exitCode\": ")
+          .append(metric.getExitCode())
+          .append(", \"outputLines\": ")
+          .append(metric.getOutputLines())
+          .append(", \"outputBytes\": ")
+          .append(metric.getOutputBytes())
+          .append(", \"firstOutputMillis\": ")
+          .append(
+              metric.getFirstOutputNanos() < 0 ? "null" : toMillis(metric.getFirstOutputNanos()))
+          .append(", \"phaseMillis\": {");
+      String phaseSeparator = "";
+      for (Map.Entry<String, Long> phaseNanos : metric.getPhaseNanos().entrySet()) {
+        json.append(phaseSeparator)
+            .append(quote(phaseNanos.getKey()))
+            .append(": ")
+            .append(toMillis(phaseNanos.getValue()));
+        phaseSeparator = ", ";
+      }
+      json.append("}}");
+      separator = ",\n";
+    }
+    json.append("\n  ],\n  \"lockWaits\": [");
+    separator = "\n";
+    for (ProfileLock.Lease lease : getLockWaits()) {
+      json.append(separator)
+          .append("    {\"profile\": ")
+          .append(quote(lease.getProfile()))
+          .append(", \"shared\": ")
+          .append(lease.isShared())
+          .append(", \"holder\": ")
+          .append(quote(lease.getHolder()))
+          .append(", \"startTimeMillis\": ")
+          .append(lease.getStartTimeMillis())
+          .append(", \"waitMillis\": ")
+          .append(toMillis(lease.getWaitNanos()))
+          .append("}");
+      separator = ",\n";
+    }
+    json.append("\n  ],\n  \"admissionWaits\": [");
+    separator = "\n";
+    for (ClusterAdmission.Ticket ticket : getAdmissionWaits()) {
+      json.append(separator)
+          .append("    {\"profile\": ")
+          .append(quote(ticket.getProfile()))
+          .append(", \"cpus\": ")
+          .append(ticket.getSize().getCpus())
+          .append(", \"memoryMb\": ")
+          .append(ticket.getSize().getMemoryMb())
+          .append(", \"startTimeMillis\": ")
+          .append(ticket.getStartTimeMillis())
+          .append(", \"waitMillis\": ")
+          .append(toMillis(ticket.getWaitNanos()))
+          .append(", \"overcommitted\": ")
+          .append(ticket.isOvercommitted())
+          .append("}");
+      separator = ",\n";
+    }
+    return json.append("\n  ]\n}\n").toString();
+  }
+
+  /** Writes the JSON report to the file, creating its directory if needed. */
+  public void write(Path reportFile) throws IOException {
+    Files.createDirectories(reportFile.getParent());
+    Files.write(reportFile, toJson().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String toMillis(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+  }
+
+  private static String quote(String string) {
+    StringBuilder quoted = new StringBuilder("\"");
+    for (char character : string.toCharArray()) {
+      if (character == '"' || character == '\\') {
+        quoted.append('\\').append(character);
+      } else if (character < 0x20) {
+        quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) character));
+      } else {
+        quoted.append(character);
+      }
+    }
+    return quoted.append('"').toString();
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.command;
+
+import java.util.Collections;
+import java.util.List;
+
+/** The result of a command run by {@link CommandExecutor}. */
+public class CommandResult {
+
+  private final int exitCode;
+  private final List<String> output;
+
+  public CommandResult(int exitCode, List<String> output) {
+    this.exitCode = exitCode;
+    this.output = Collections.unmodifiableList(output);
+  }
+
+  /** @return the exit code of the command */
+  public int getExitCode() {
+    return exitCode;
+  }
+
+  /** @return the output of the command as a list of lines */
+  public List<String> getOutput() {
+    return output;
+  }
+}
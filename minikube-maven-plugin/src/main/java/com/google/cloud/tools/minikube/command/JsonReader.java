@@ -0,0 +1,218 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.command;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Reads a JSON document into maps, lists, strings, numbers, booleans and nulls. The plugin has no
+ * JSON library on its classpath, and the documents it reads, such as minikube JSON events and
+ * profile configurations, are small enough to read whole.
+ */
+public class JsonReader {
+
+  /**
+   * Reads a JSON document.
+   *
+   * @param json the document
+   * @return the value of the document, such as a map for an object
+   * @throws IllegalArgumentException if the document is not valid JSON
+   */
+  @Nullable
+  public static Object read(String json) {
+    return new JsonReader(json).readDocument();
+  }
+
+  private final String json;
+  private int index;
+
+  private JsonReader(String json) {
+    this.json = json;
+  }
+
+  @Nullable
+  private Object readDocument() {
+    Object value = readValue();
+    skipWhitespace();
+    if (index != json.length()) {
+      throw error();
+    }
+    return value;
+  }
+
+  @Nullable
+  private Object readValue() {
+    skipWhitespace();
+    if (index == json.length()) {
+      throw error();
+    }
+    char character = json.charAt(index);
+    switch (character) {
+      case '{':
+        return readObject();
+      case '[':
+        return readArray();
+      case '"':
+        return readString();
+      case 't':
+        return readLiteral("true", Boolean.TRUE);
+      case 'f':
+        return readLiteral("false", Boolean.FALSE);
+      case 'n':
+        return readLiteral("null", null);
+      default:
+        return readNumber();
+    }
+  }
+
+  private Map<String, Object> readObject() {
+    Map<String, Object> object = new HashMap<>();
+    index++;
+    skipWhitespace();
+    if (consume('}')) {
+      return object;
+    }
+    do {
+      skipWhitespace();
+      if (index == json.length() || json.charAt(index) != '"') {
+        throw error();
+      }
+      String key = readString();
+      skipWhitespace();
+      if (!consume(':')) {
+        throw error();
+      }
+      object.put(key, readValue());
+      skipWhitespace();
+    } while (consume(','));
+    if (!consume('}')) {
+      throw error();
+    }
+    return object;
+  }
+
+  private List<Object> readArray() {
+    List<Object> array = new ArrayList<>();
+    index++;
+    skipWhitespace();
+    if (consume(']')) {
+      return array;
+    }
+    do {
+      array.add(readValue());
+      skipWhitespace();
+    } while (consume(','));
+    if (!consume(']')) {
+      throw error();
+    }
+    return array;
+  }
+
+  private String readString() {
+    StringBuilder string = new StringBuilder();
+    index++;
+    while (index < json.length()) {
+      char character = json.charAt(index++);
+      if (character == '"') {
+        return string.toString();
+      }
+      if (character != '\\') {
+        string.append(character);
+        continue;
+      }
+      if (index == json.length()) {
+        break;
+      }
+      char escaped = json.charAt(index++);
+      switch (escaped) {
+        case 'n':
+          string.append('\n');
+          break;
+        case 't':
+          string.append('\t');
+          break;
+        case 'r':
+          string.append('\r');
+          break;
+        case 'b':
+          string.append('\b');
+          break;
+        case 'f':
+          string.append('\f');
+          break;
+        case 'u':
+          if (index + 4 > json.length()) {
+            throw error();
+          }
+          try {
+            string.append((char) Integer.parseInt(json.substring(index, index + 4), 16));
+          } catch (NumberFormatException ex) {
+            throw error();
+          }
+          index += 4;
+          break;
+        default:
+          string.append(escaped);
+      }
+    }
+    throw error();
+  }
+
+  @Nullable
+  private Object readLiteral(String literal, @Nullable Object value) {
+    if (!json.startsWith(literal, index)) {
+      throw error();
+    }
+    index += literal.length();
+    return value;
+  }
+
+  private Number readNumber() {
+    int start = index;
+    while (index < json.length() && "+-.0123456789eE".indexOf(json.charAt(index)) >= 0) {
+      index++;
+    }
+    try {
+      return new BigDecimal(json.substring(start, index));
+    } catch (NumberFormatException ex) {
+      throw error();
+    }
+  }
+
+  private boolean consume(char character) {
+    if (index < json.length() && json.charAt(index) == character) {
+      index++;
+      return true;
+    }
+    return false;
+  }
+
+  private void skipWhitespace() {
+    while (index < json.length() && Character.isWhitespace(json.charAt(index))) {
+      index++;
+    }
+  }
+
+  private IllegalArgumentException error() {
+    return new IllegalArgumentException("Invalid JSON at index " + index);
+  }
+}
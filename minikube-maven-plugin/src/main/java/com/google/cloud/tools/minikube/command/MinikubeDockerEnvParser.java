@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.command;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// TODO: Share this with minikube-gradle-plugin.
+/**
+ * Utility class to parse a minikube's Docker environment variables list. Both the {@code
+ * --shell=none} form ({@code KEY=VALUE}) and the shell form ({@code export KEY="VALUE"}) are
+ * supported; blank lines, comments and {@code unset} lines are skipped. Lines are parsed without
+ * splitting, allocating only the names and values put in the map.
+ */
+public class MinikubeDockerEnvParser {
+
+  private static final String EXPORT_PREFIX = "export ";
+  private static final String UNSET_PREFIX = "unset ";
+  private static final int BUFFER_SIZE = 1024;
+
+  private MinikubeDockerEnvParser() {}
+
+  /**
+   * Parses a list of KEY=VALUE strings into a map from KEY to VALUE.
+   *
+   * @param keyValueStrings a list of "KEY=VALUE" strings, where KEY is the environment variable
+   *     name and VALUE is the value to set it to
+   */
+  public static Map<String, String> parse(List<String> keyValueStrings) {
+    Map<String, String> environmentMap = new HashMap<>();
+
+    for (String keyValueString : keyValueStrings) {
+      parseLine(keyValueString, environmentMap);
+    }
+
+    return environmentMap;
+  }
+
+  /**
+   * Parses KEY=VALUE lines streamed from the reader into a map from KEY to VALUE, copying each line
+   * out of the read buffer once.
+   *
+   * @param reader the output of {@code minikube docker-env}
+   */
+  public static Map<String, String> parse(Reader reader) throws IOException {
+    Map<String, String> environmentMap = new HashMap<>();
+    char[] buffer = new char[BUFFER_SIZE];
+    // Holds the start of a line that continues past the end of the buffer.
+    StringBuilder partialLine = new StringBuilder();
+
+    int read = reader.read(buffer);
+    while (read != -1) {
+      int lineStart = 0;
+      for (int i = 0; i < read; i++) {
+        if (buffer[i] != '\n' && buffer[i] != '\r') {
+          continue;
+        }
+        if (partialLine.length() == 0) {
+          parseLine(new String(buffer, lineStart, i - lineStart), environmentMap);
+        } else {
+          partialLine.append(buffer, lineStart, i - lineStart);
+          parseLine(partialLine.toString(), environmentMap);
+          partialLine.setLength(0);
+        }
+        lineStart = i + 1;
+      }
+      partialLine.append(buffer, lineStart, read - lineStart);
+      read = reader.read(buffer);
+    }
+    parseLine(partialLine.toString(), environmentMap);
+
+    return environmentMap;
+  }
+
+  /**
+   * Creates a line consumer to pass to {@link CommandExecutor#run(List, Consumer)}, so that the
+   * output is parsed as it is read.
+   */
+  public static LineConsumer newLineConsumer() {
+    return new LineConsumer();
+  }
+
+  /** Parses each line it is given into a map from KEY to VALUE. */
+  public static class LineConsumer implements Consumer<String> {
+
+    private final Map<String, String> environmentMap = new HashMap<>();
+
+    private LineConsumer() {}
+
+    @Override
+    public synchronized void accept(String line) {
+      parseLine(line, environmentMap);
+    }
+
+    /** @return the environment variables parsed so far */
+    public synchronized Map<String, String> getEnvironment() {
+      return new HashMap<>(environmentMap);
+    }
+  }
+
+  /** Parses a single line into the map, skipping lines that do not set a variable. */
+  private static void parseLine(String line, Map<String, String> environmentMap) {
+    if (line.isEmpty() || line.charAt(0) == '#' || line.startsWith(UNSET_PREFIX)) {
+      return;
+    }
+    int start = line.startsWith(EXPORT_PREFIX) ? EXPORT_PREFIX.length() : 0;
+
+    int equalsIndex = line.indexOf('=', start);
+    if (equalsIndex == -1) {
+      throw new IllegalArgumentException(
+          "Error while parsing minikube's Docker environment: "
+              + "environment variable string not in KEY=VALUE format");
+    }
+    if (equalsIndex == start) {
+      throw new IllegalArgumentException(
+          "Error while parsing minikube's Docker environment: "
+              + "encountered empty environment variable name");
+    }
+
+    int valueStart = equalsIndex + 1;
+    int valueEnd = line.length();
+    if (valueEnd - valueStart >= 2
+        && line.charAt(valueStart) == '"'
+        && line.charAt(valueEnd - 1) == '"') {
+      valueStart++;
+      valueEnd--;
+    }
+
+    environmentMap.put(line.substring(start, equalsIndex), line.substring(valueStart, valueEnd));
+  }
+}
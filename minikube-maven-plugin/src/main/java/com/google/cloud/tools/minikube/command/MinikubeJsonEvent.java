@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.command;
+
+import java.util.Collections;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+// TODO: Share this with minikube-gradle-plugin.
+/**
+ * An event printed by minikube with {@code --output=json}. Each event is a CloudEvents JSON object
+ * on a line of its own, such as:
+ *
+ * <pre>{@code
+ * {"specversion":"1.0","type":"io.k8s.sigs.minikube.step","data":{"currentstep":"3",
+ * "message":"Pulling base image ...","name":"Pulling Base Image","totalsteps":"19"}}
+ * }</pre>
+ */
+public class MinikubeJsonEvent {
+
+  /** A step of the command starts. */
+  public static final String STEP_TYPE = "io.k8s.sigs.minikube.step";
+
+  public static final String INFO_TYPE = "io.k8s.sigs.minikube.info";
+  public static final String WARNING_TYPE = "io.k8s.sigs.minikube.warning";
+  public static final String ERROR_TYPE = "io.k8s.sigs.minikube.error";
+
+  private static final String TYPE_PREFIX = "io.k8s.sigs.minikube.";
+
+  /**
+   * Parses an output line.
+   *
+   * @return the event, or {@code null} if the line is not a minikube JSON event
+   */
+  @Nullable
+  public static MinikubeJsonEvent parse(String line) {
+    if (!line.startsWith("{")) {
+      return null;
+    }
+    Object event;
+    try {
+      event = JsonReader.read(line);
+    } catch (IllegalArgumentException ex) {
+      return null;
+    }
+    if (!(event instanceof Map)) {
+      return null;
+    }
+    Object type = ((Map<?, ?>) event).get("type");
+    if (!(type instanceof String) || !((String) type).startsWith(TYPE_PREFIX)) {
+      return null;
+    }
+    Object data = ((Map<?, ?>) event).get("data");
+    Map<?, ?> dataMap = data instanceof Map ? (Map<?, ?>) data : Collections.emptyMap();
+    return new MinikubeJsonEvent(
+        (String) type,
+        toString(dataMap.get("name")),
+        toString(dataMap.get("message")).trim(),
+        parseStep(dataMap.get("currentstep")),
+        parseStep(dataMap.get("totalsteps")));
+  }
+
+  /** @return the value as a string, or empty if it is missing or not a string or number */
+  private static String toString(@Nullable Object value) {
+    return value instanceof String || value instanceof Number ? value.toString() : "";
+  }
+
+  /** Parses a step number, which minikube prints as a string. */
+  private static int parseStep(@Nullable Object step) {
+    if (step instanceof Number) {
+      return ((Number) step).intValue();
+    }
+    if (!(step instanceof String)) {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(((String) step).trim());
+    } catch (NumberFormatException ex) {
+      return -1;
+    }
+  }
+
+  private final String type;
+  private final String name;
+  private final String message;
+  private final int currentStep;
+  private final int totalSteps;
+
+  private MinikubeJsonEvent(
+      String type, String name, String message, int currentStep, int totalSteps) {
+    this.type = type;
+    this.name = name;
+    this.message = message;
+    this.currentStep = currentStep;
+    this.totalSteps = totalSteps;
+  }
+
+  /** @return the event type, such as {@link #STEP_TYPE} */
+  public String getType() {
+    return type;
+  }
+
+  /** @return true if the event starts a step of the command */
+  public boolean isStep() {
+    return STEP_TYPE.equals(type);
+  }
+
+  /** @return the name of the step, or empty if the event has none */
+  public String getName() {
+    return name;
+  }
+
+  /** @return the message to show, or empty if the event has none */
+  public String getMessage() {
+    return message;
+  }
+
+  /** @return the number of the step, or -1 if the event has none */
+  public int getCurrentStep() {
+    return currentStep;
+  }
+
+  /** @return the total number of steps of the command, or -1 if the event has none */
+  public int getTotalSteps() {
+    return totalSteps;
+  }
+}
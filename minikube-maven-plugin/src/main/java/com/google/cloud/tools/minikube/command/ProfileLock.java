@@ -0,0 +1,345 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.command;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+// TODO: Share this with minikube-gradle-plugin.
+/**
+ * Locks a minikube profile across processes, so that concurrent builds sharing a profile take turns
+ * instead of running {@code minikube start} and {@code minikube delete} over each other. Commands
+ * that change the profile hold the lock exclusively, and read-only commands share it.
+ *
+ * <p>The lock is an OS file lock ({@link FileChannel#lock}) on a file under the minikube home,
+ * which the OS releases if the process holding it dies. The threads of a process take turns before
+ * taking the file lock, since a process can hold only one lock on a file. A thread holding the lock
+ * exclusively may lock it again without waiting.
+ *
+ * <p>The exclusive holder records itself in the file and clears the record when done. A record
+ * found by the next holder is stale: it was left by a process that died holding the lock, possibly
+ * with the profile half changed.
+ */
+public class ProfileLock {
+
+  /** The locked region is past the holder record, so that the record can be read while locked. */
+  private static final long LOCK_POSITION = Long.MAX_VALUE - 1;
+
+  private static final long POLL_MILLIS = 100;
+  private static final int MAX_RECORD_BYTES = 4096;
+
+  private static final ConcurrentMap<Path, ProfileLock> profileLocks = new ConcurrentHashMap<>();
+
+  /**
+   * @param minikubeHome the {@code .minikube} directory
+   * @return the directory of the lock files, which {@code minikube delete} leaves in place
+   */
+  public static Path getLockDirectory(Path minikubeHome) {
+    return minikubeHome.resolve("build-tools-locks");
+  }
+
+  /**
+   * Gets the lock of the profile. Every caller in the process gets the same lock for the same file.
+   *
+   * @param lockDirectory the directory of the lock files
+   * @param profile the minikube profile
+   */
+  public static ProfileLock get(Path lockDirectory, String profile) {
+    Path lockFile = lockDirectory.resolve(profile + ".lock").toAbsolutePath().normalize();
+    return profileLocks.computeIfAbsent(lockFile, ignored -> new ProfileLock(profile, lockFile));
+  }
+
+  private final String profile;
+  private final Path lockFile;
+
+  // Guarded by this.
+  @Nullable private Thread exclusiveOwner;
+  private int sharedHolders;
+  private boolean fileLocking;
+  @Nullable private FileChannel channel;
+
+  private ProfileLock(String profile, Path lockFile) {
+    this.profile = profile;
+    this.lockFile = lockFile;
+  }
+
+  /** @return the minikube profile */
+  public String getProfile() {
+    return profile;
+  }
+
+  /**
+   * Locks the profile, waiting for the other holders to release it.
+   *
+   * @param shared true to share the lock with other shared holders, false to hold it exclusively
+   * @param holder describes what the lock is held for, such as {@code minikube start}
+   * @param waitListener called with the record of the current holder, or an empty string if there
+   *     is none, if the lock is held by another process
+   * @return the lease to release the lock with
+   */
+  public Lease lock(boolean shared, String holder, Consumer<String> waitListener)
+      throws IOException, InterruptedException {
+    long startTimeMillis = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
+    Thread thread = Thread.currentThread();
+    synchronized (this) {
+      if (exclusiveOwner == thread) {
+        return new Lease(
+            this, shared, holder, startTimeMillis, 0, null, true, ProfileLock::releaseNothing);
+      }
+      while (fileLocking || exclusiveOwner != null || (!shared && sharedHolders > 0)) {
+        wait();
+      }
+      if (shared && sharedHolders > 0) {
+        sharedHolders++;
+        return new Lease(
+            this,
+            true,
+            holder,
+            startTimeMillis,
+            System.nanoTime() - startNanos,
+            null,
+            false,
+            this::releaseShared);
+      }
+      // Keeps the other threads waiting while this one takes the file lock for the process.
+      fileLocking = true;
+    }
+
+    FileChannel newChannel = null;
+    String staleHolder;
+    try {
+      Files.createDirectories(lockFile.getParent());
+      newChannel =
+          FileChannel.open(
+              lockFile,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE);
+      takeFileLock(newChannel, shared, waitListener);
+      staleHolder = readRecord(newChannel);
+      if (shared) {
+        newChannel.truncate(0);
+      } else {
+        writeRecord(newChannel, holder);
+      }
+
+    } catch (IOException | InterruptedException | RuntimeException ex) {
+      if (newChannel != null) {
+        newChannel.close();
+      }
+      synchronized (this) {
+        fileLocking = false;
+        notifyAll();
+      }
+      throw ex;
+    }
+
+    synchronized (this) {
+      fileLocking = false;
+      channel = newChannel;
+      if (shared) {
+        sharedHolders = 1;
+      } else {
+        exclusiveOwner = thread;
+      }
+      notifyAll();
+    }
+    return new Lease(
+        this,
+        shared,
+        holder,
+        startTimeMillis,
+        System.nanoTime() - startNanos,
+        staleHolder.isEmpty() ? null : staleHolder,
+        false,
+        shared ? this::releaseShared : this::releaseExclusive);
+  }
+
+  /** Takes the file lock, polling while another process holds it. */
+  private static void takeFileLock(
+      FileChannel channel, boolean shared, Consumer<String> waitListener)
+      throws IOException, InterruptedException {
+    boolean waiting = false;
+    while (true) {
+      FileLock fileLock;
+      try {
+        fileLock = channel.tryLock(LOCK_POSITION, 1, shared);
+      } catch (OverlappingFileLockException ex) {
+        // Held by a copy of this class loaded by another classloader of this process.
+        fileLock = null;
+      }
+      if (fileLock != null) {
+        return;
+      }
+      if (!waiting) {
+        waitListener.accept(readRecord(channel));
+        waiting = true;
+      }
+      Thread.sleep(POLL_MILLIS);
+    }
+  }
+
+  private static String readRecord(FileChannel channel) throws IOException {
+    ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_BYTES);
+    int read;
+    do {
+      read = channel.read(record, record.position());
+    } while (read > 0 && record.hasRemaining());
+    return new String(record.array(), 0, record.position(), StandardCharsets.UTF_8).trim();
+  }
+
+  private static void writeRecord(FileChannel channel, String holder) throws IOException {
+    String record =
+        holder
+            + " in process "
+            + ManagementFactory.getRuntimeMXBean().getName()
+            + " since "
+            + Instant.now();
+    channel.truncate(0);
+    channel.write(ByteBuffer.wrap(record.getBytes(StandardCharsets.UTF_8)), 0);
+  }
+
+  private void releaseExclusive() throws IOException {
+    synchronized (this) {
+      try {
+        channel.truncate(0);
+      } finally {
+        // Closing the channel releases the file lock.
+        channel.close();
+        channel = null;
+        exclusiveOwner = null;
+        notifyAll();
+      }
+    }
+  }
+
+  private void releaseShared() throws IOException {
+    synchronized (this) {
+      sharedHolders--;
+      if (sharedHolders == 0) {
+        try {
+          channel.close();
+        } finally {
+          channel = null;
+          notifyAll();
+        }
+      }
+    }
+  }
+
+  /** Releases nothing, for a reentrant lease of a lock the thread already holds. */
+  private static void releaseNothing() {}
+
+  /** Releases the lock. */
+  private interface Release {
+    void run() throws IOException;
+  }
+
+  /** A hold on the lock, released by {@link #close}. */
+  public static class Lease implements AutoCloseable {
+
+    private final ProfileLock profileLock;
+    private final boolean shared;
+    private final String holder;
+    private final long startTimeMillis;
+    private final long waitNanos;
+    @Nullable private final String staleHolder;
+    private final boolean reentrant;
+    private final Release release;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Lease(
+        ProfileLock profileLock,
+        boolean shared,
+        String holder,
+        long startTimeMillis,
+        long waitNanos,
+        @Nullable String staleHolder,
+        boolean reentrant,
+        Release release) {
+      this.profileLock = profileLock;
+      this.shared = shared;
+      this.holder = holder;
+      this.startTimeMillis = startTimeMillis;
+      this.waitNanos = waitNanos;
+      this.staleHolder = staleHolder;
+      this.reentrant = reentrant;
+      this.release = release;
+    }
+
+    /** @return the minikube profile */
+    public String getProfile() {
+      return profileLock.getProfile();
+    }
+
+    /** @return true if the lock is shared with other holders */
+    public boolean isShared() {
+      return shared;
+    }
+
+    /** @return what the lock is held for */
+    public String getHolder() {
+      return holder;
+    }
+
+    /** @return the epoch milliseconds the lock was asked for at */
+    public long getStartTimeMillis() {
+      return startTimeMillis;
+    }
+
+    /** @return how long it took to get the lock, in nanoseconds */
+    public long getWaitNanos() {
+      return waitNanos;
+    }
+
+    /**
+     * @return the record left by a process that died holding the lock exclusively, or {@code null}
+     *     if there is none
+     */
+    @Nullable
+    public String getStaleHolder() {
+      return staleHolder;
+    }
+
+    /** @return true if the thread already held the lock exclusively, so nothing was locked */
+    public boolean isReentrant() {
+      return reentrant;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (released.compareAndSet(false, true)) {
+        release.run();
+      }
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.command;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+// TODO: Share this with minikube-gradle-plugin.
+/**
+ * Keeps track of the minikube profiles paused instead of stopped, so that the next start can
+ * unpause them in seconds instead of booting them again. A paused profile is idle, and is evicted
+ * with a real stop or delete once it has been idle for longer than the idle timeout.
+ *
+ * <p>The time a profile was paused at is recorded in the profile directory under the minikube home,
+ * so that {@code minikube delete} also removes it.
+ */
+public class WarmPool {
+
+  @VisibleForTesting static final String PAUSED_FILE_NAME = "build-tools-paused";
+
+  private final Path profilesDirectory;
+  private final Duration idleTimeout;
+  private Clock clock = Clock.systemUTC();
+
+  /**
+   * @param minikubeHome the {@code .minikube} directory
+   * @param idleTimeout how long a profile may stay paused before it is evicted
+   */
+  public WarmPool(Path minikubeHome, Duration idleTimeout) {
+    profilesDirectory = minikubeHome.resolve("profiles");
+    this.idleTimeout = idleTimeout;
+  }
+
+  @VisibleForTesting
+  WarmPool setClock(Clock clock) {
+    this.clock = clock;
+    return this;
+  }
+
+  /**
+   * Records that the profile was paused now. Nothing is recorded if minikube has no profile
+   * directory for it.
+   */
+  public void markPaused(String profile) throws IOException {
+    Path profileDirectory = profilesDirectory.resolve(profile);
+    if (!Files.isDirectory(profileDirectory)) {
+      return;
+    }
+    Files.write(
+        profileDirectory.resolve(PAUSED_FILE_NAME),
+        Long.toString(clock.millis()).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @return the time the profile was paused at, or {@code null} if it is not paused in the pool or
+   *     the record is unreadable
+   */
+  @Nullable
+  public Instant getPausedSince(String profile) throws IOException {
+    Path pausedFile = profilesDirectory.resolve(profile).resolve(PAUSED_FILE_NAME);
+    if (!Files.isRegularFile(pausedFile)) {
+      return null;
+    }
+    try {
+      return Instant.ofEpochMilli(
+          Long.parseLong(
+              new String(Files.readAllBytes(pausedFile), StandardCharsets.UTF_8).trim()));
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+  }
+
+  /** @return true if the profile is paused in the pool, idle for no longer than the timeout */
+  public boolean isWarm(String profile) throws IOException {
+    Instant pausedSince = getPausedSince(profile);
+    return pausedSince != null && !isIdleTooLong(pausedSince);
+  }
+
+  /**
+   * @return true if the profile is paused in the pool and idle for longer than the timeout, or its
+   *     record is unreadable
+   */
+  public boolean isExpired(String profile) throws IOException {
+    if (!Files.exists(profilesDirectory.resolve(profile).resolve(PAUSED_FILE_NAME))) {
+      return false;
+    }
+    Instant pausedSince = getPausedSince(profile);
+    return pausedSince == null || isIdleTooLong(pausedSince);
+  }
+
+  /** @return the profiles to evict, idle in the pool for longer than the timeout */
+  public List<String> getExpiredProfiles() throws IOException {
+    List<String> expiredProfiles = new ArrayList<>();
+    if (!Files.isDirectory(profilesDirectory)) {
+      return expiredProfiles;
+    }
+    try (DirectoryStream<Path> profileDirectories = Files.newDirectoryStream(profilesDirectory)) {
+      for (Path profileDirectory : profileDirectories) {
+        String profile = profileDirectory.getFileName().toString();
+        if (isExpired(profile)) {
+          expiredProfiles.add(profile);
+        }
+      }
+    }
+    expiredProfiles.sort(null);
+    return expiredProfiles;
+  }
+
+  /** Takes the profile out of the pool, once it is unpaused, stopped or deleted. */
+  public void remove(String profile) throws IOException {
+    Files.deleteIfExists(profilesDirectory.resolve(profile).resolve(PAUSED_FILE_NAME));
+  }
+
+  private boolean isIdleTooLong(Instant pausedSince) {
+    return Duration.between(pausedSince, clock.instant()).compareTo(idleTimeout) > 0;
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.maven;
+
+import com.google.cloud.tools.minikube.command.HostResources;
+import com.google.cloud.tools.minikube.command.ParallelProfileRunner;
+import com.google.cloud.tools.minikube.command.ProfileLock;
+import com.google.cloud.tools.minikube.command.WarmPool;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * A goal that starts, stops or deletes clusters. With {@code <profiles>} configured, it runs on
+ * each of the profiles in parallel, at most {@code maxConcurrentProfiles} at a time, instead of on
+ * the single profile selected by the flags.
+ *
+ * <p>With {@code warmPool} enabled, {@code minikube:stop} pauses the cluster instead of stopping
+ * it, and {@code minikube:start} unpauses a paused cluster with the same configuration. Clusters
+ * left paused for longer than {@code warmPoolIdleTimeoutMinutes} are evicted with a real stop or
+ * delete by the next goal that starts or stops a cluster.
+ */
+abstract class AbstractClusterMojo extends AbstractMinikubeMojo implements Cloneable {
+
+  /** Profiles to run on in parallel, each with its own {@code start} flags. */
+  @Parameter @Nullable private List<ProfileConfiguration> profiles;
+
+  /** The most profiles to run on at once; 0 derives it from the host processors and memory. */
+  @Parameter(property = "minikube.maxConcurrentProfiles", defaultValue = "0")
+  private int maxConcurrentProfiles;
+
+  /** Pauses clusters instead of stopping them, and unpauses them instead of starting them. */
+  @Parameter(property = "minikube.warmPool", defaultValue = "false")
+  private boolean warmPool;
+
+  /** How long a cluster may stay paused before it is evicted. */
+  @Parameter(property = "minikube.warmPoolIdleTimeoutMinutes", defaultValue = "60")
+  private long warmPoolIdleTimeoutMinutes = 60;
+
+  /** How a cluster paused for too long is evicted: {@code stop} or {@code delete}. */
+  @Parameter(property = "minikube.warmPoolEviction", defaultValue = "stop")
+  private String warmPoolEviction = "stop";
+
+  /** The profile a copy of this goal runs on, or {@code null} for the original. */
+  @Nullable private ProfileConfiguration targetProfile;
+
+  /** How many copies of this goal run at once, including this one. */
+  private int concurrentProfiles = 1;
+
+  @Override
+  void runGoal() throws MojoExecutionException {
+    if (warmPool && !"stop".equals(warmPoolEviction) && !"delete".equals(warmPoolEviction)) {
+      throw new MojoExecutionException(
+          "warmPoolEviction must be stop or delete: " + warmPoolEviction);
+    }
+    if (profiles == null || profiles.isEmpty()) {
+      super.runGoal();
+      return;
+    }
+
+    Map<String, AbstractClusterMojo> profileMojos = new LinkedHashMap<>();
+    for (ProfileConfiguration profile : profiles) {
+      if (profile.getName() == null || profile.getName().isEmpty()) {
+        throw new MojoExecutionException("Each of the <profiles> needs a <name>");
+      }
+      profileMojos.put(profile.getName(), copyForProfile(profile));
+    }
+    int maxConcurrency =
+        maxConcurrentProfiles > 0
+            ? maxConcurrentProfiles
+            : HostResources.detect().getMaxConcurrentClusters();
+    getLog()
+        .info(
+            getDescription()
+                + " on "
+                + profileMojos.size()
+                + " profiles, at most "
+                + maxConcurrency
+                + " at a time");
+
+    for (AbstractClusterMojo profileMojo : profileMojos.values()) {
+      profileMojo.concurrentProfiles = Math.min(maxConcurrency, profileMojos.size());
+    }
+
+    Map<String, Throwable> failures;
+    try {
+      failures =
+          new ParallelProfileRunner(maxConcurrency)
+              .run(
+                  new ArrayList<>(profileMojos.keySet()),
+                  profile -> profileMojos.get(profile).runGoal());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException(getDescription() + " interrupted", ex);
+    }
+    if (!failures.isEmpty()) {
+      throw makeFailure(failures);
+    }
+  }
+
+  /** @return the common and command-specific flags, then those of the target profile */
+  @Override
+  List<String> getAllFlags() {
+    List<String> allFlags = super.getAllFlags();
+    if (targetProfile != null) {
+      if ("start".equals(getCommand())) {
+        allFlags.addAll(targetProfile.getFlags());
+      }
+      allFlags.add("--profile=" + targetProfile.getName());
+    }
+    return allFlags;
+  }
+
+  /** @return how many profiles this goal runs on at once, 1 unless it is a copy for a profile */
+  int getConcurrentProfiles() {
+    return concurrentProfiles;
+  }
+
+  /** @return true if clusters are paused into the warm pool instead of stopped */
+  boolean isWarmPoolEnabled() {
+    return warmPool;
+  }
+
+  /** @return the warm pool of the clusters paused under the minikube home */
+  WarmPool newWarmPool() {
+    return new WarmPool(getMinikubeHome(), Duration.ofMinutes(warmPoolIdleTimeoutMinutes));
+  }
+
+  /**
+   * Evicts the profiles idle in the warm pool for longer than its timeout. Each one is evicted
+   * under its own profile lock, and only if it is still idle then, since another build may have
+   * unpaused it meanwhile.
+   */
+  void evictIdleProfiles() throws IOException, InterruptedException {
+    WarmPool pool = newWarmPool();
+    for (String profile : pool.getExpiredProfiles()) {
+      try (ProfileLock.Lease ignored = lockProfile(profile, "minikube " + warmPoolEviction)) {
+        if (pool.isExpired(profile)) {
+          evict(pool, profile);
+        }
+      }
+    }
+  }
+
+  /** Stops or deletes the paused profile, as configured, and takes it out of the warm pool. */
+  void evict(WarmPool pool, String profile) throws IOException, InterruptedException {
+    getLog()
+        .info(
+            "Evicting minikube profile "
+                + profile
+                + " from the warm pool with minikube "
+                + warmPoolEviction);
+    runCommand(Arrays.asList(getMinikube(), warmPoolEviction, "--profile=" + profile));
+    pool.remove(profile);
+    getClusterCoordinator().getClusterAdmission().release(profile);
+  }
+
+  /**
+   * Copies this goal to run on the profile. The copy shares the metrics, trace and cluster
+   * coordinator of this goal.
+   */
+  private AbstractClusterMojo copyForProfile(ProfileConfiguration profile) {
+    // Creates the values shared with the copies if this goal would otherwise create its own.
+    getCommandMetrics();
+    getBuildTrace();
+    getClusterCoordinator();
+    try {
+      AbstractClusterMojo profileMojo = (AbstractClusterMojo) clone();
+      profileMojo.profiles = null;
+      profileMojo.targetProfile = profile;
+      return profileMojo;
+
+    } catch (CloneNotSupportedException ex) {
+      throw new AssertionError(ex);
+    }
+  }
+
+  /** @return the failure of the profiles, caused by the failure of the first one */
+  private MojoExecutionException makeFailure(Map<String, Throwable> failures) {
+    List<Throwable> causes = new ArrayList<>();
+    for (Map.Entry<String, Throwable> failure : failures.entrySet()) {
+      // Unwraps the failure of the copy, which only repeats the description.
+      Throwable cause =
+          failure.getValue() instanceof MojoExecutionException
+                  && failure.getValue().getCause() != null
+              ? failure.getValue().getCause()
+              : failure.getValue();
+      getLog().error(getDescription() + " failed for profile " + failure.getKey(), cause);
+      causes.add(cause);
+    }
+    MojoExecutionException failure =
+        new MojoExecutionException(
+            getDescription() + " failed for profiles " + String.join(", ", failures.keySet()),
+            causes.get(0));
+    causes.subList(1, causes.size()).forEach(failure::addSuppressed);
+    return failure;
+  }
+
+  @VisibleForTesting
+  void setProfiles(List<ProfileConfiguration> profiles) {
+    this.profiles = profiles;
+  }
+
+  @VisibleForTesting
+  void setMaxConcurrentProfiles(int maxConcurrentProfiles) {
+    this.maxConcurrentProfiles = maxConcurrentProfiles;
+  }
+
+  @VisibleForTesting
+  void setWarmPool(boolean warmPool) {
+    this.warmPool = warmPool;
+  }
+
+  @VisibleForTesting
+  void setWarmPoolEviction(String warmPoolEviction) {
+    this.warmPoolEviction = warmPoolEviction;
+  }
+}
@@ -16,19 +16,56 @@
 
 package com.google.cloud.tools.minikube.maven;
 
+import com.google.cloud.tools.minikube.command.BuildTrace;
+import com.google.cloud.tools.minikube.command.ClusterAdmission;
+import com.google.cloud.tools.minikube.command.ClusterSize;
 import com.google.cloud.tools.minikube.command.CommandExecutor;
+import com.google.cloud.tools.minikube.command.CommandMetrics;
+import com.google.cloud.tools.minikube.command.MinikubeProfile;
+import com.google.cloud.tools.minikube.command.ProfileLock;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
 
 abstract class AbstractMinikubeMojo extends AbstractMojo {
 
+  /** Limits on the command output retained for the failure message; the rest is only logged. */
+  private static final int OUTPUT_TAIL_LINES = 100;
+
+  private static final long OUTPUT_TAIL_CHARACTERS = 64 * 1024;
+
+  /** Key of the project context value holding the metrics of the commands run in the build. */
+  @VisibleForTesting static final String COMMAND_METRICS_CONTEXT_KEY = "minikube.commandMetrics";
+
+  /** Key of the project context value holding the trace of the goals run in the build. */
+  @VisibleForTesting static final String BUILD_TRACE_CONTEXT_KEY = "minikube.buildTrace";
+
+  /** How long {@code minikube status} may take before the profile is taken as not running. */
+  static final Duration STATUS_TIMEOUT = Duration.ofSeconds(30);
+
+  @Parameter(defaultValue = "${project}", readonly = true)
+  @Nullable
+  private MavenProject project;
+
+  @Parameter(defaultValue = "${session}", readonly = true)
+  @Nullable
+  private MavenSession session;
+
   /** Path to minikube executable. */
   @Parameter(defaultValue = "minikube", required = true)
   private String minikube;
@@ -36,19 +73,276 @@ abstract class AbstractMinikubeMojo extends AbstractMojo {
   /** Common flags to add when calling minikube. */
   @Parameter private List<String> flags;
 
+  /** Seconds minikube may run before it is destroyed; 0 means no timeout. */
+  @Parameter(defaultValue = "0")
+  private long timeoutSeconds;
+
+  private Path minikubeHome = MinikubeStartState.getMinikubeHome(System.getenv("MINIKUBE_HOME"));
   private Supplier<CommandExecutor> commandExecutorSupplier = CommandExecutor::new;
   private MavenBuildLogger mavenBuildLogger = new MavenBuildLogger(getLog());
+  @Nullable private CommandMetrics commandMetrics;
+  @Nullable private BuildTrace buildTrace;
+  @Nullable private MinikubeClusterCoordinator clusterCoordinator;
 
   @Override
   public void execute() throws MojoExecutionException {
+    try {
+      runGoal();
+
+    } finally {
+      writeMetricsReport();
+      writeTrace();
+    }
+  }
+
+  /** Runs the minikube command and traces it. Goals override this to run it more than once. */
+  void runGoal() throws MojoExecutionException {
     List<String> minikubeCommand = buildMinikubeCommand();
+    long startNanoTime = System.nanoTime();
 
     try {
-      commandExecutorSupplier.get().setLogger(mavenBuildLogger).run(minikubeCommand);
+      runMinikube(minikubeCommand);
 
     } catch (InterruptedException | IOException ex) {
       throw new MojoExecutionException(getDescription() + " failed", ex);
+
+    } finally {
+      traceExecution(minikubeCommand, startNanoTime);
+    }
+  }
+
+  /** Runs the minikube command. Goals override this to do more around the command. */
+  void runMinikube(List<String> minikubeCommand) throws IOException, InterruptedException {
+    runCommand(minikubeCommand);
+  }
+
+  /**
+   * Runs a minikube command with the logging, output tail and timeout of this goal.
+   *
+   * @return the retained output of the command as a list of lines
+   */
+  List<String> runCommand(List<String> minikubeCommand) throws IOException, InterruptedException {
+    return newCommandExecutor().run(minikubeCommand);
+  }
+
+  /**
+   * Runs a minikube command with the logging, output tail and timeout of this goal, streaming its
+   * output.
+   *
+   * @param outputLineConsumer called with each line of output as it is read
+   * @return the retained output of the command as a list of lines
+   */
+  List<String> runCommand(List<String> minikubeCommand, Consumer<String> outputLineConsumer)
+      throws IOException, InterruptedException {
+    return newCommandExecutor().run(minikubeCommand, outputLineConsumer);
+  }
+
+  /**
+   * Locks the profile of this goal exclusively across builds, waiting while another build holds it.
+   *
+   * @param holder describes what the lock is held for, such as {@code minikube start}
+   * @return the lease to release the lock with, or {@code null} if the lock could not be taken
+   * @see CommandExecutor#lockProfile
+   */
+  @Nullable
+  ProfileLock.Lease lockProfile(String holder) throws InterruptedException {
+    return lockProfile(getProfile(), holder);
+  }
+
+  /**
+   * Locks another profile exclusively across builds, waiting while another build holds it.
+   *
+   * @param profile the minikube profile
+   * @param holder describes what the lock is held for, such as {@code minikube stop}
+   * @return the lease to release the lock with, or {@code null} if the lock could not be taken
+   */
+  @Nullable
+  ProfileLock.Lease lockProfile(String profile, String holder) throws InterruptedException {
+    return newCommandExecutor().lockProfile(profile, false, holder);
+  }
+
+  /**
+   * Waits until the cluster of this goal may start without the clusters of the build taking more
+   * than the fraction of the host.
+   *
+   * @param minikubeCommand the start command, with the {@code --cpus} and {@code --memory} flags
+   * @param maxFraction the share of the host processors and memory the clusters may take
+   * @return the ticket to close once the start is done, or {@code null} if there is no admission
+   * @see CommandExecutor#admitClusterStart
+   */
+  @Nullable
+  ClusterAdmission.Ticket admitClusterStart(List<String> minikubeCommand, double maxFraction)
+      throws InterruptedException {
+    return newCommandExecutor()
+        .admitClusterStart(getProfile(), ClusterSize.fromArguments(minikubeCommand), maxFraction);
+  }
+
+  /** @return a command executor with the logging, output tail and timeout of this goal */
+  private CommandExecutor newCommandExecutor() {
+    CommandExecutor commandExecutor =
+        commandExecutorSupplier
+            .get()
+            .setLogger(mavenBuildLogger)
+            .setOutputTail(OUTPUT_TAIL_LINES, OUTPUT_TAIL_CHARACTERS);
+    commandExecutor.setMinikube(minikube);
+    commandExecutor.setCommandMetrics(getCommandMetrics());
+    commandExecutor.setBuildTrace(getBuildTrace());
+    commandExecutor.setProfileLockDirectory(ProfileLock.getLockDirectory(getMinikubeHome()));
+    commandExecutor.setClusterAdmission(getClusterCoordinator().getClusterAdmission());
+    if (timeoutSeconds > 0) {
+      commandExecutor.setTimeout(Duration.ofSeconds(timeoutSeconds));
+    }
+    return commandExecutor;
+  }
+
+  /**
+   * Probes the profile with {@code minikube status}, which exits with 0 only when it is running. A
+   * probe that hangs, such as on a stuck hypervisor, is taken as not running.
+   */
+  boolean isProfileRunning() throws InterruptedException {
+    CommandExecutor commandExecutor = commandExecutorSupplier.get();
+    commandExecutor.setTimeout(STATUS_TIMEOUT);
+    commandExecutor.setMinikube(minikube);
+    commandExecutor.setCommandMetrics(getCommandMetrics());
+    commandExecutor.setBuildTrace(getBuildTrace());
+    commandExecutor.setProfileLockDirectory(ProfileLock.getLockDirectory(getMinikubeHome()));
+    try {
+      commandExecutor.run(minikube, "status", "--profile=" + getProfile());
+      return true;
+
+    } catch (IOException ex) {
+      return false;
+    }
+  }
+
+  /**
+   * Gets the metrics registry of the build. Goals of the same project share it, so that the report
+   * covers every command run for the project during the build.
+   */
+  CommandMetrics getCommandMetrics() {
+    if (project == null) {
+      if (commandMetrics == null) {
+        commandMetrics = new CommandMetrics();
+      }
+      return commandMetrics;
+    }
+    return getProjectContextValue(
+        COMMAND_METRICS_CONTEXT_KEY, CommandMetrics.class, CommandMetrics::new);
+  }
+
+  /**
+   * Gets the trace of the build. Goals of the same project share it, so that the trace covers every
+   * goal run for the project during the build.
+   */
+  BuildTrace getBuildTrace() {
+    if (project == null) {
+      if (buildTrace == null) {
+        buildTrace = new BuildTrace("Maven build");
+      }
+      return buildTrace;
+    }
+    return getProjectContextValue(
+        BUILD_TRACE_CONTEXT_KEY, BuildTrace.class, () -> new BuildTrace("Maven build"));
+  }
+
+  /**
+   * Gets the coordinator of the minikube clusters. Goals of every module in the build share it, so
+   * that they do not race to start the same profile.
+   */
+  MinikubeClusterCoordinator getClusterCoordinator() {
+    if (session == null) {
+      if (clusterCoordinator == null) {
+        clusterCoordinator = new MinikubeClusterCoordinator();
+      }
+      return clusterCoordinator;
     }
+    return MinikubeClusterCoordinator.get(session);
+  }
+
+  /** Gets the project context value, setting it to a new value first if there is none. */
+  private <T> T getProjectContextValue(String key, Class<T> type, Supplier<T> newValue) {
+    Preconditions.checkNotNull(project);
+    synchronized (project) {
+      Object value = project.getContextValue(key);
+      // A value from a plugin loaded by another classloader cannot be shared.
+      if (!type.isInstance(value)) {
+        value = newValue.get();
+        project.setContextValue(key, value);
+      }
+      return type.cast(value);
+    }
+  }
+
+  /** Adds a span for this goal execution to the build trace. */
+  private void traceExecution(List<String> minikubeCommand, long startNanoTime) {
+    getBuildTrace()
+        .addSpan(
+            new BuildTrace.Span(
+                "minikube:" + getCommand(),
+                "goal",
+                Thread.currentThread().getName(),
+                startNanoTime,
+                System.nanoTime(),
+                Collections.singletonMap("command", String.join(" ", minikubeCommand))));
+  }
+
+  /** Writes the metrics of the commands run so far to {@code target/minikube/metrics.json}. */
+  private void writeMetricsReport() {
+    CommandMetrics buildCommandMetrics = getCommandMetrics();
+    if (project == null || buildCommandMetrics.getMetrics().isEmpty()) {
+      return;
+    }
+    Path metricsReportFile =
+        Paths.get(project.getBuild().getDirectory(), "minikube", "metrics.json");
+    try {
+      buildCommandMetrics.write(metricsReportFile);
+    } catch (IOException ex) {
+      getLog().warn("Could not write minikube metrics report " + metricsReportFile, ex);
+    }
+  }
+
+  /** Writes the trace of the goals run so far to {@code target/minikube/trace.json}. */
+  private void writeTrace() {
+    if (project == null) {
+      return;
+    }
+    Path traceFile = Paths.get(project.getBuild().getDirectory(), "minikube", "trace.json");
+    try {
+      getBuildTrace().write(traceFile);
+    } catch (IOException ex) {
+      getLog().warn("Could not write minikube trace " + traceFile, ex);
+    }
+  }
+
+  /** @return the minikube profile selected by the {@code --profile} or {@code -p} flag */
+  String getProfile() {
+    return MinikubeProfile.fromArguments(getAllFlags());
+  }
+
+  /** @return the common flags followed by the command-specific flags */
+  List<String> getAllFlags() {
+    List<String> allFlags = new ArrayList<>();
+    if (flags != null) {
+      allFlags.addAll(flags);
+    }
+    allFlags.addAll(getMoreFlags());
+    return allFlags;
+  }
+
+  @VisibleForTesting
+  void setProject(MavenProject project) {
+    this.project = project;
+  }
+
+  @VisibleForTesting
+  void setSession(MavenSession session) {
+    this.session = session;
+  }
+
+  /** @return the project the goal runs for */
+  @Nullable
+  MavenProject getProject() {
+    return project;
   }
 
   @VisibleForTesting
@@ -56,11 +350,31 @@ abstract class AbstractMinikubeMojo extends AbstractMojo {
     this.minikube = minikube;
   }
 
+  /** @return the path to the minikube executable */
+  String getMinikube() {
+    return minikube;
+  }
+
+  @VisibleForTesting
+  void setMinikubeHome(Path minikubeHome) {
+    this.minikubeHome = minikubeHome;
+  }
+
+  /** @return the {@code .minikube} directory */
+  Path getMinikubeHome() {
+    return minikubeHome;
+  }
+
   @VisibleForTesting
   void setFlags(ImmutableList<String> flags) {
     this.flags = flags;
   }
 
+  @VisibleForTesting
+  void setTimeoutSeconds(long timeoutSeconds) {
+    this.timeoutSeconds = timeoutSeconds;
+  }
+
   @VisibleForTesting
   void setMavenBuildLogger(MavenBuildLogger mavenBuildLogger) {
     this.mavenBuildLogger = mavenBuildLogger;
@@ -71,6 +385,11 @@ abstract class AbstractMinikubeMojo extends AbstractMojo {
     this.commandExecutorSupplier = commandExecutorSupplier;
   }
 
+  /** @return the logger for the output of minikube */
+  MavenBuildLogger getMavenBuildLogger() {
+    return mavenBuildLogger;
+  }
+
   /** @return what this goal does */
   abstract String getDescription();
 
@@ -85,10 +404,7 @@ abstract class AbstractMinikubeMojo extends AbstractMojo {
     List<String> execString = new ArrayList<>();
     execString.add(minikube);
     execString.add(getCommand());
-    if (flags != null) {
-      execString.addAll(flags);
-    }
-    execString.addAll(getMoreFlags());
+    execString.addAll(getAllFlags());
 
     return execString;
   }
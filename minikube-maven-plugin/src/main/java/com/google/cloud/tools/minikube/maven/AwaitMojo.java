@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.maven;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.Nullable;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Waits for the minikube start begun by {@link MinikubeLifecycleParticipant} when the session
+ * started. Does nothing if the extension is not registered.
+ */
+@Mojo(name = "await", threadSafe = true)
+class AwaitMojo extends AbstractMojo {
+
+  @Parameter(defaultValue = "${session}", readonly = true)
+  @Nullable
+  private MavenSession session;
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    Preconditions.checkNotNull(session);
+    CompletableFuture<?> sessionStart = MinikubeLifecycleParticipant.getSessionStart(session);
+    if (sessionStart == null) {
+      getLog().info("minikube was not started with the session, nothing to wait for");
+      return;
+    }
+
+    if (!sessionStart.isDone()) {
+      getLog().info("Waiting for minikube to start");
+    }
+    try {
+      sessionStart.get();
+
+    } catch (ExecutionException ex) {
+      throw new MojoExecutionException("Starting minikube in the background failed", ex.getCause());
+
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("Interrupted while waiting for minikube to start", ex);
+    }
+  }
+
+  @VisibleForTesting
+  void setSession(MavenSession session) {
+    this.session = session;
+  }
+}
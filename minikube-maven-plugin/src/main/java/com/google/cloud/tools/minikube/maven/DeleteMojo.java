@@ -17,14 +17,22 @@
 package com.google.cloud.tools.minikube.maven;
 
 import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.List;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
-@Mojo(name = "delete")
-class DeleteMojo extends AbstractMinikubeMojo {
+@Mojo(name = "delete", threadSafe = true)
+class DeleteMojo extends AbstractClusterMojo {
 
   @Parameter private CommandConfiguration delete;
 
+  /** Deletes the profile, so that a later {@code minikube:start} in the build starts it again. */
+  @Override
+  void runMinikube(List<String> minikubeCommand) throws IOException, InterruptedException {
+    getClusterCoordinator().stop(getProfile(), () -> super.runMinikube(minikubeCommand));
+  }
+
   @Override
   String getDescription() {
     return "Deleting minikube cluster";
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.maven;
+
+import com.google.cloud.tools.minikube.command.DockerEnvCache;
+import com.google.cloud.tools.minikube.command.MinikubeDockerEnvParser;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Sets the minikube docker environment variables as project properties, for later plugins to
+ * connect to minikube's docker daemon. The environment is kept under the build directory and reused
+ * for a profile started by the build until the profile configuration or the minikube binary
+ * changes.
+ */
+@Mojo(name = "docker-env", threadSafe = true)
+class DockerEnvMojo extends AbstractMinikubeMojo {
+
+  /** Prefix of the project properties set to the docker environment variables. */
+  @VisibleForTesting static final String PROPERTY_PREFIX = "minikube.dockerEnv.";
+
+  @Parameter @Nullable private CommandConfiguration dockerEnv;
+
+  @Override
+  String getDescription() {
+    return "Getting minikube docker environment";
+  }
+
+  @Override
+  String getCommand() {
+    return "docker-env";
+  }
+
+  @Override
+  ImmutableList<String> getMoreFlags() {
+    ImmutableList.Builder<String> moreFlags = ImmutableList.<String>builder().add("--shell=none");
+    if (dockerEnv != null) {
+      moreFlags.addAll(dockerEnv.getFlags());
+    }
+    return moreFlags.build();
+  }
+
+  @Override
+  void runMinikube(List<String> minikubeCommand) throws IOException, InterruptedException {
+    MavenProject project = Preconditions.checkNotNull(getProject());
+    String profile = getProfile();
+    Path configJson = getMinikubeHome().resolve("profiles").resolve(profile).resolve("config.json");
+    String fingerprint =
+        DockerEnvCache.fingerprint(
+            configJson, DockerEnvCache.findExecutable(getMinikube(), System.getenv("PATH")));
+    DockerEnvCache dockerEnvCache =
+        new DockerEnvCache(Paths.get(project.getBuild().getDirectory(), "minikube", "docker-env"));
+
+    // The profile configuration remains while the cluster is stopped or paused, so the cached
+    // environment is only used for a profile known to be running. Otherwise minikube docker-env
+    // runs, and fails as it should.
+    Map<String, String> environment =
+        getClusterCoordinator().isStarted(profile)
+            ? dockerEnvCache.get(profile, fingerprint)
+            : null;
+    if (environment != null) {
+      getLog().info("Using cached docker environment of minikube profile " + profile);
+    } else {
+      environment = MinikubeDockerEnvParser.parse(runCommand(minikubeCommand));
+      dockerEnvCache.put(profile, fingerprint, environment);
+    }
+
+    for (Map.Entry<String, String> variable : environment.entrySet()) {
+      project.getProperties().setProperty(PROPERTY_PREFIX + variable.getKey(), variable.getValue());
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.maven;
+
+import com.google.cloud.tools.minikube.command.ClusterAdmission;
+import com.google.cloud.tools.minikube.command.HostResources;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+
+/**
+ * Reactor-wide state of the minikube clusters, shared by the goals of every module in a build and
+ * by the Maven extension. Each profile is started at most once per build, however many modules run
+ * {@code minikube:start}, and even when they run in parallel with {@code mvn -T}. Actions on
+ * different profiles run concurrently, with the starts admitted while the clusters of the build fit
+ * on the host.
+ *
+ * <p>The extension may be loaded by another classloader than the goals, as a core extension in
+ * {@code .mvn/extensions.xml}. The starts of the profiles are therefore shared through the session
+ * under a string key, as JDK types only. The admission holds plugin types, so it is only shared by
+ * the goals and extension loaded by the same classloader.
+ */
+class MinikubeClusterCoordinator {
+
+  /** Key of the session data holding the starts of the profiles, shared by every classloader. */
+  @VisibleForTesting static final String STARTS_KEY = "minikube.clusterStarts";
+
+  /** An action on a minikube cluster, such as running {@code minikube start}. */
+  interface ClusterAction {
+    void run() throws IOException, InterruptedException;
+  }
+
+  /** Gets the coordinator of the build, setting a new one on the session if there is none. */
+  static MinikubeClusterCoordinator get(MavenSession session) {
+    // Keyed by the class, since a coordinator from a plugin loaded by another classloader cannot be
+    // shared. Its starts are shared through getStarts.
+    SessionData sessionData = session.getRepositorySession().getData();
+    Object coordinator = sessionData.get(MinikubeClusterCoordinator.class);
+    if (coordinator == null) {
+      sessionData.set(
+          MinikubeClusterCoordinator.class,
+          null,
+          new MinikubeClusterCoordinator(getStarts(sessionData)));
+      coordinator = sessionData.get(MinikubeClusterCoordinator.class);
+    }
+    return (MinikubeClusterCoordinator) coordinator;
+  }
+
+  /** Gets the starts of the profiles of the build, setting a new map on the session if none. */
+  @SuppressWarnings("unchecked")
+  private static ConcurrentMap<String, CompletableFuture<Void>> getStarts(SessionData sessionData) {
+    Object starts = sessionData.get(STARTS_KEY);
+    if (starts == null) {
+      sessionData.set(STARTS_KEY, null, new ConcurrentHashMap<String, CompletableFuture<Void>>());
+      starts = sessionData.get(STARTS_KEY);
+    }
+    return (ConcurrentMap<String, CompletableFuture<Void>>) starts;
+  }
+
+  /**
+   * The start of each profile started or starting during this build, which completes once the
+   * cluster is started. A failed start is removed, so that the next one starts the profile again.
+   */
+  private final ConcurrentMap<String, CompletableFuture<Void>> starts;
+
+  private final ClusterAdmission clusterAdmission = new ClusterAdmission(HostResources.detect());
+
+  MinikubeClusterCoordinator() {
+    this(new ConcurrentHashMap<>());
+  }
+
+  private MinikubeClusterCoordinator(ConcurrentMap<String, CompletableFuture<Void>> starts) {
+    this.starts = starts;
+  }
+
+  /**
+   * Starts the profile, unless it was already started during this build. Concurrent starts of the
+   * same profile wait for the first one to finish, and start it again if it failed.
+   *
+   * @param profile the minikube profile
+   * @param startAction starts the cluster
+   * @return true if the cluster was started, false if it was already started
+   */
+  boolean start(String profile, ClusterAction startAction)
+      throws IOException, InterruptedException {
+    while (true) {
+      CompletableFuture<Void> start = new CompletableFuture<>();
+      CompletableFuture<Void> existingStart = starts.putIfAbsent(profile, start);
+      if (existingStart == null) {
+        try {
+          startAction.run();
+          start.complete(null);
+          return true;
+
+        } catch (IOException | InterruptedException | RuntimeException | Error ex) {
+          starts.remove(profile, start);
+          start.completeExceptionally(ex);
+          throw ex;
+        }
+      }
+      if (awaitStart(existingStart)) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Stops or deletes the profile, releasing the host resources its cluster took. A later start in
+   * the same build starts it again.
+   *
+   * @param profile the minikube profile
+   * @param stopAction stops or deletes the cluster
+   */
+  void stop(String profile, ClusterAction stopAction) throws IOException, InterruptedException {
+    endStart(profile, stopAction);
+    clusterAdmission.release(profile);
+  }
+
+  /**
+   * Pauses the profile into the warm pool. Its cluster keeps the host resources it took, so that a
+   * later start in the same build that unpauses it is not admitted again.
+   *
+   * @param profile the minikube profile
+   * @param pauseAction pauses the cluster
+   */
+  void pause(String profile, ClusterAction pauseAction) throws IOException, InterruptedException {
+    endStart(profile, pauseAction);
+  }
+
+  /** @return the admission of the cluster starts of the build */
+  ClusterAdmission getClusterAdmission() {
+    return clusterAdmission;
+  }
+
+  /** @return true if the profile was started during this build and not stopped since */
+  boolean isStarted(String profile) {
+    CompletableFuture<Void> start = starts.get(profile);
+    return start != null && start.isDone() && !start.isCompletedExceptionally();
+  }
+
+  /** Waits for a start of the profile still running, then runs the action and forgets the start. */
+  private void endStart(String profile, ClusterAction endAction)
+      throws IOException, InterruptedException {
+    CompletableFuture<Void> start = starts.get(profile);
+    if (start != null) {
+      awaitStart(start);
+    }
+    endAction.run();
+    if (start != null) {
+      starts.remove(profile, start);
+    }
+  }
+
+  /** @return true if the start succeeded, false if it failed */
+  private static boolean awaitStart(CompletableFuture<Void> start) throws InterruptedException {
+    try {
+      start.get();
+      return true;
+
+    } catch (ExecutionException ex) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.maven;
+
+import com.google.cloud.tools.minikube.command.BuildLogger;
+import com.google.cloud.tools.minikube.command.ClusterAdmission;
+import com.google.cloud.tools.minikube.command.ClusterSize;
+import com.google.cloud.tools.minikube.command.CommandExecutor;
+import com.google.cloud.tools.minikube.command.HostResources;
+import com.google.cloud.tools.minikube.command.MinikubeProfile;
+import com.google.cloud.tools.minikube.command.ProfileLock;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.logging.Logger;
+
+/**
+ * Starts minikube in the background when the Maven session starts, and stops it when the session
+ * ends, so that the cluster boots while the reactor builds the modules that do not need it. Goals
+ * that need the cluster wait for it with {@code minikube:await}.
+ *
+ * <p>As a core extension in {@code .mvn/extensions.xml}, the start begins before the projects are
+ * read. As a build extension (the plugin declared with {@code <extensions>true</extensions>}), it
+ * begins once the projects are read, since build extensions are only loaded then.
+ *
+ * <p>It is configured with user, system or top-level project properties: {@code
+ * minikube.session.executable} (the path to minikube), {@code minikube.session.flags} (the {@code
+ * start} flags, separated by whitespace), {@code minikube.session.end} ({@code stop}, {@code
+ * delete} or {@code none}) and {@code minikube.session.skip}. Project properties are only seen by a
+ * build extension.
+ */
+@Named("minikube")
+@Singleton
+class MinikubeLifecycleParticipant extends AbstractMavenLifecycleParticipant {
+
+  @VisibleForTesting static final String EXECUTABLE_PROPERTY = "minikube.session.executable";
+  @VisibleForTesting static final String FLAGS_PROPERTY = "minikube.session.flags";
+  @VisibleForTesting static final String END_PROPERTY = "minikube.session.end";
+  @VisibleForTesting static final String SKIP_PROPERTY = "minikube.session.skip";
+
+  /** Key of the repository session data holding the start, shared with the goals of any realm. */
+  @VisibleForTesting static final String SESSION_START_KEY = "minikube.sessionStart";
+
+  /**
+   * Gets the start begun when the session started.
+   *
+   * @return the start, which completes once minikube is ready, or {@code null} if there is none
+   */
+  @Nullable
+  static CompletableFuture<?> getSessionStart(MavenSession session) {
+    Object sessionStart = session.getRepositorySession().getData().get(SESSION_START_KEY);
+    if (sessionStart instanceof CompletableFuture) {
+      return (CompletableFuture<?>) sessionStart;
+    }
+    return null;
+  }
+
+  private BuildLogger buildLogger;
+  private Path minikubeHome = MinikubeStartState.getMinikubeHome(System.getenv("MINIKUBE_HOME"));
+  private Supplier<CommandExecutor> commandExecutorSupplier = CommandExecutor::new;
+
+  @Nullable private CompletableFuture<Void> sessionStart;
+  @Nullable private String sessionProfile;
+  @Nullable private List<String> sessionEndCommand;
+
+  @Inject
+  MinikubeLifecycleParticipant(Logger logger) {
+    buildLogger = new PlexusBuildLogger(logger);
+  }
+
+  @Override
+  public void afterSessionStart(MavenSession session) {
+    Properties properties = new Properties();
+    properties.putAll(session.getSystemProperties());
+    properties.putAll(session.getUserProperties());
+    startInBackground(session, properties);
+  }
+
+  @Override
+  public void afterProjectsRead(MavenSession session) {
+    Properties properties = new Properties();
+    MavenProject topLevelProject = session.getTopLevelProject();
+    if (topLevelProject != null) {
+      properties.putAll(topLevelProject.getProperties());
+    }
+    properties.putAll(session.getSystemProperties());
+    properties.putAll(session.getUserProperties());
+    startInBackground(session, properties);
+  }
+
+  @Override
+  public void afterSessionEnd(MavenSession session) {
+    CompletableFuture<Void> endingSessionStart;
+    String profile;
+    List<String> endCommand;
+    synchronized (this) {
+      endingSessionStart = sessionStart;
+      profile = sessionProfile;
+      endCommand = sessionEndCommand;
+      sessionStart = null;
+      sessionProfile = null;
+      sessionEndCommand = null;
+    }
+    if (endingSessionStart == null || profile == null) {
+      return;
+    }
+
+    boolean startFailed = false;
+    try {
+      // Waits for the start to finish, so that a start still running does not outlive the build.
+      endingSessionStart.get();
+    } catch (ExecutionException ex) {
+      // The failure was already logged, but minikube may have been left half started.
+      startFailed = true;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    MinikubeClusterCoordinator clusterCoordinator = MinikubeClusterCoordinator.get(session);
+    if (endCommand == null || (!startFailed && !clusterCoordinator.isStarted(profile))) {
+      // Left running, or a goal already stopped or deleted the cluster.
+      return;
+    }
+
+    try {
+      clusterCoordinator.stop(
+          profile,
+          () -> newCommandExecutor(endCommand.get(0)).setLogger(buildLogger).run(endCommand));
+    } catch (IOException ex) {
+      buildLogger.warn("Could not " + endCommand.get(1) + " minikube: " + ex.getMessage());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Begins {@code minikube start} on a background thread, unless it was already begun. */
+  private synchronized void startInBackground(MavenSession session, Properties properties) {
+    if (sessionStart != null || Boolean.parseBoolean(properties.getProperty(SKIP_PROPERTY))) {
+      return;
+    }
+
+    String minikube = properties.getProperty(EXECUTABLE_PROPERTY, "minikube");
+    List<String> flags = new ArrayList<>();
+    String flagsProperty = properties.getProperty(FLAGS_PROPERTY, "").trim();
+    if (!flagsProperty.isEmpty()) {
+      flags.addAll(Arrays.asList(flagsProperty.split("\\s+")));
+    }
+    String profile = MinikubeProfile.fromArguments(flags);
+
+    String end = properties.getProperty(END_PROPERTY, "stop");
+    if ("stop".equals(end) || "delete".equals(end)) {
+      sessionEndCommand = Arrays.asList(minikube, end, "--profile=" + profile);
+    } else if (!"none".equals(end)) {
+      buildLogger.warn(
+          "Unknown " + END_PROPERTY + " " + end + ", minikube is left running after the build");
+    }
+
+    sessionProfile = profile;
+    sessionStart = new CompletableFuture<>();
+    session.getRepositorySession().getData().set(SESSION_START_KEY, sessionStart);
+
+    CompletableFuture<Void> startingSessionStart = sessionStart;
+    // Goals starting the same profile wait for this start instead of starting it again.
+    MinikubeClusterCoordinator clusterCoordinator = MinikubeClusterCoordinator.get(session);
+    Thread startThread =
+        new Thread(
+            () -> {
+              try {
+                clusterCoordinator.start(
+                    profile,
+                    () ->
+                        start(minikube, profile, flags, clusterCoordinator.getClusterAdmission()));
+                startingSessionStart.complete(null);
+              } catch (InterruptedException ex) {
+                startingSessionStart.completeExceptionally(ex);
+              } catch (Throwable ex) {
+                // minikube:await and the end of the session would otherwise wait forever.
+                buildLogger.error("Starting minikube in the background failed: " + ex.getMessage());
+                startingSessionStart.completeExceptionally(ex);
+              }
+            },
+            "minikube-session-start");
+    startThread.setDaemon(true);
+    startThread.start();
+    buildLogger.lifecycle("Starting minikube profile " + profile + " in the background");
+  }
+
+  /**
+   * Starts minikube unless the profile is already running as its flags ask for, like {@code
+   * minikube:start}, holding the profile lock throughout. The start waits while the clusters
+   * started by the build take too much of the host for it.
+   */
+  private void start(
+      String minikube, String profile, List<String> flags, ClusterAdmission clusterAdmission)
+      throws IOException, InterruptedException {
+    try (ProfileLock.Lease ignored =
+        newCommandExecutor(minikube).lockProfile(profile, false, "minikube start")) {
+      MinikubeStartState startState = new MinikubeStartState(minikubeHome, profile);
+      if (startState.matches(flags) && isProfileRunning(minikube, profile)) {
+        buildLogger.info(
+            "minikube profile "
+                + profile
+                + " is already running with the same flags, skipping start");
+        return;
+      }
+
+      List<String> startCommand = new ArrayList<>();
+      startCommand.add(minikube);
+      startCommand.add("start");
+      startCommand.addAll(flags);
+      CommandExecutor commandExecutor = newCommandExecutor(minikube).setLogger(buildLogger);
+      commandExecutor.setClusterAdmission(clusterAdmission);
+      try (ClusterAdmission.Ticket ticket =
+          commandExecutor.admitClusterStart(
+              profile, ClusterSize.fromArguments(flags), HostResources.DEFAULT_CLUSTER_FRACTION)) {
+        commandExecutor.run(startCommand);
+        if (ticket != null) {
+          ticket.started();
+        }
+      }
+    }
+  }
+
+  private boolean isProfileRunning(String minikube, String profile) throws InterruptedException {
+    CommandExecutor commandExecutor = newCommandExecutor(minikube);
+    commandExecutor.setTimeout(AbstractMinikubeMojo.STATUS_TIMEOUT);
+    try {
+      commandExecutor.run(minikube, "status", "--profile=" + profile);
+      return true;
+
+    } catch (IOException ex) {
+      return false;
+    }
+  }
+
+  /**
+   * @param minikube the minikube executable
+   * @return a command executor that locks the profiles under the minikube home
+   */
+  private CommandExecutor newCommandExecutor(String minikube) {
+    CommandExecutor commandExecutor = commandExecutorSupplier.get();
+    commandExecutor.setMinikube(minikube);
+    commandExecutor.setProfileLockDirectory(ProfileLock.getLockDirectory(minikubeHome));
+    return commandExecutor;
+  }
+
+  @VisibleForTesting
+  void setBuildLogger(BuildLogger buildLogger) {
+    this.buildLogger = buildLogger;
+  }
+
+  @VisibleForTesting
+  void setMinikubeHome(Path minikubeHome) {
+    this.minikubeHome = minikubeHome;
+  }
+
+  @VisibleForTesting
+  void setCommandExecutorSupplier(Supplier<CommandExecutor> commandExecutorSupplier) {
+    this.commandExecutorSupplier = commandExecutorSupplier;
+  }
+}
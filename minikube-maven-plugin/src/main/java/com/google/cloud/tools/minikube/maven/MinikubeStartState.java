@@ -0,0 +1,180 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.maven;
+
+import com.google.cloud.tools.minikube.command.ClusterSize;
+import com.google.cloud.tools.minikube.command.JsonReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Compares the flags of a start with the configuration minikube keeps for the profile in its {@code
+ * config.json}, so that a start can be skipped while the profile is running as it would be started.
+ * Only flags minikube keeps in the configuration can be compared, so a start with any other flag
+ * never matches.
+ */
+class MinikubeStartState {
+
+  /**
+   * Resolves the minikube home the same way minikube does.
+   *
+   * @param minikubeHomeEnvironment the value of {@code MINIKUBE_HOME}, or {@code null} if not set
+   * @return the {@code .minikube} directory
+   */
+  static Path getMinikubeHome(@Nullable String minikubeHomeEnvironment) {
+    if (minikubeHomeEnvironment == null || minikubeHomeEnvironment.isEmpty()) {
+      return Paths.get(System.getProperty("user.home"), ".minikube");
+    }
+    Path minikubeHome = Paths.get(minikubeHomeEnvironment);
+    if (minikubeHome.getFileName() != null
+        && ".minikube".equals(minikubeHome.getFileName().toString())) {
+      return minikubeHome;
+    }
+    return minikubeHome.resolve(".minikube");
+  }
+
+  private final Path configJson;
+
+  /**
+   * @param minikubeHome the {@code .minikube} directory
+   * @param profile the minikube profile
+   */
+  MinikubeStartState(Path minikubeHome, String profile) {
+    configJson = minikubeHome.resolve("profiles").resolve(profile).resolve("config.json");
+  }
+
+  /**
+   * @return true if the profile configuration has the value of every flag, in any order, false if
+   *     the profile has no configuration or a flag is not kept in it
+   */
+  boolean matches(List<String> flags) throws IOException {
+    Map<?, ?> config = readConfig();
+    if (config == null) {
+      return false;
+    }
+    for (int i = 0; i < flags.size(); i++) {
+      String flag = flags.get(i);
+      if (!flag.startsWith("-")) {
+        return false;
+      }
+      String name = flag;
+      String value = null;
+      int equals = flag.indexOf('=');
+      if (equals >= 0) {
+        name = flag.substring(0, equals);
+        value = flag.substring(equals + 1);
+      } else if (i + 1 < flags.size() && !flags.get(i + 1).startsWith("-")) {
+        value = flags.get(++i);
+      }
+      if (!matchesFlag(config, name, value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return the profile configuration, or {@code null} if it is missing or not readable */
+  @Nullable
+  private Map<?, ?> readConfig() throws IOException {
+    if (!Files.isRegularFile(configJson)) {
+      return null;
+    }
+    Object config;
+    try {
+      config = JsonReader.read(new String(Files.readAllBytes(configJson), StandardCharsets.UTF_8));
+    } catch (IllegalArgumentException ex) {
+      return null;
+    }
+    return config instanceof Map ? (Map<?, ?>) config : null;
+  }
+
+  /** @return true if the configuration has the value of the flag */
+  private static boolean matchesFlag(Map<?, ?> config, String name, @Nullable String value) {
+    switch (name) {
+      case "--profile":
+      case "-p":
+      case "--output":
+      case "-o":
+      case "--wait":
+      case "--wait-timeout":
+      case "--alsologtostderr":
+      case "-v":
+      case "--v":
+        // These do not change the cluster.
+        return true;
+      case "--driver":
+      case "--vm-driver":
+        return value != null && value.equals(config.get("Driver"));
+      case "--cpus":
+        return value != null && matchesNumber(config.get("CPUs"), parseLong(value));
+      case "--memory":
+        return value != null && matchesNumber(config.get("Memory"), parseMemoryMb(value));
+      case "--disk-size":
+        return value != null && matchesNumber(config.get("DiskSize"), parseMemoryMb(value));
+      case "--nodes":
+      case "-n":
+        Object nodes = config.get("Nodes");
+        return value != null
+            && nodes instanceof List
+            && parseLong(value) == ((List<?>) nodes).size();
+      case "--kubernetes-version":
+        // minikube also takes the version without the v, and resolves stable and latest.
+        String version = value != null && !value.startsWith("v") ? "v" + value : value;
+        return version != null
+            && version.equals(getKubernetesConfig(config).get("KubernetesVersion"));
+      case "--container-runtime":
+        return value != null && value.equals(getKubernetesConfig(config).get("ContainerRuntime"));
+      default:
+        return false;
+    }
+  }
+
+  private static Map<?, ?> getKubernetesConfig(Map<?, ?> config) {
+    Object kubernetesConfig = config.get("KubernetesConfig");
+    return kubernetesConfig instanceof Map ? (Map<?, ?>) kubernetesConfig : Collections.emptyMap();
+  }
+
+  private static boolean matchesNumber(@Nullable Object configValue, long value) {
+    return value >= 0
+        && configValue instanceof Number
+        && ((Number) configValue).longValue() == value;
+  }
+
+  /** @return the number, or -1 if the value is not a number */
+  private static long parseLong(String value) {
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException ex) {
+      return -1;
+    }
+  }
+
+  /** @return the size in MB, or -1 if the value is not a size minikube takes */
+  private static long parseMemoryMb(String value) {
+    if (!value.trim().matches("(?i)[0-9.]+([kmgt]b?)?")) {
+      return -1;
+    }
+    return ClusterSize.fromArguments(Collections.singletonList("--memory=" + value)).getMemoryMb();
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.maven;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/** A minikube profile that {@code start}, {@code stop} and {@code delete} run on in parallel. */
+public class ProfileConfiguration {
+
+  /** The minikube profile, passed as {@code --profile}. */
+  @Nullable private String name;
+
+  /** Additional flags to pass to {@code minikube start} for this profile. */
+  @Nullable private List<String> flags;
+
+  @Nullable
+  String getName() {
+    return name;
+  }
+
+  ImmutableList<String> getFlags() {
+    if (flags == null) {
+      return ImmutableList.of();
+    }
+    return ImmutableList.copyOf(flags);
+  }
+
+  @VisibleForTesting
+  static ProfileConfiguration of(String name, String... flags) {
+    ProfileConfiguration profileConfiguration = new ProfileConfiguration();
+    profileConfiguration.name = name;
+    profileConfiguration.flags = ImmutableList.copyOf(flags);
+    return profileConfiguration;
+  }
+}
@@ -16,16 +16,184 @@
 
 package com.google.cloud.tools.minikube.maven;
 
+import com.google.cloud.tools.minikube.command.ClusterAdmission;
+import com.google.cloud.tools.minikube.command.HostResources;
+import com.google.cloud.tools.minikube.command.MinikubeProgressReporter;
+import com.google.cloud.tools.minikube.command.ProfileLock;
+import com.google.cloud.tools.minikube.command.WarmPool;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import javax.annotation.Nullable;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
-@Mojo(name = "start")
-class StartMojo extends AbstractMinikubeMojo {
+@Mojo(name = "start", threadSafe = true)
+class StartMojo extends AbstractClusterMojo {
+
+  private static final String JSON_OUTPUT_FLAG = "--output=json";
 
   @Parameter @Nullable private CommandConfiguration start;
 
+  /**
+   * Runs minikube with {@code --output=json} and reports its progress and the duration of each step
+   * from the JSON events it prints, instead of logging its output as is.
+   */
+  @Parameter(property = "minikube.jsonProgress", defaultValue = "false")
+  private boolean jsonProgress;
+
+  /**
+   * The share of the host processors and memory that the clusters started by the build may take, by
+   * their {@code --cpus} and {@code --memory} flags. A start that would take more waits for the
+   * starts running to finish.
+   */
+  @Parameter(property = "minikube.maxHostFraction", defaultValue = "0.75")
+  private double maxHostFraction = HostResources.DEFAULT_CLUSTER_FRACTION;
+
+  /**
+   * Starts the cluster with {@code --cpus} and {@code --memory} sized to an equal part of the host
+   * processors and memory for each of the profiles starting at once, unless the flags set them.
+   */
+  @Parameter(property = "minikube.autoSize", defaultValue = "false")
+  private boolean autoSize;
+
+  /**
+   * Starts minikube unless the profile was already started in this build, or is already running
+   * with the configuration its flags ask for. Modules starting the same profile in parallel wait
+   * for the first one to start it.
+   */
+  @Override
+  void runMinikube(List<String> minikubeCommand) throws IOException, InterruptedException {
+    String profile = getProfile();
+    boolean started =
+        getClusterCoordinator().start(profile, () -> startUnlessRunning(minikubeCommand));
+    if (!started) {
+      getLog().info("minikube profile " + profile + " was already started in this build");
+    }
+  }
+
+  /**
+   * Holds the profile lock throughout, so that a build waiting to start the same profile sees the
+   * configuration minikube keeps in the profile {@code config.json} and skips its start. The start
+   * waits while the clusters started by this build take too much of the host for it. With the warm
+   * pool enabled, a paused cluster with the same configuration is unpaused instead.
+   */
+  private void startUnlessRunning(List<String> minikubeCommand)
+      throws IOException, InterruptedException {
+    if (isWarmPoolEnabled()) {
+      evictIdleProfiles();
+    }
+    try (ProfileLock.Lease ignored = lockProfile("minikube start")) {
+      MinikubeStartState startState = new MinikubeStartState(getMinikubeHome(), getProfile());
+      List<String> allFlags = getAllFlags();
+      if (isWarmPoolEnabled() && unpauseFromWarmPool(startState, allFlags)) {
+        return;
+      }
+      if (startState.matches(allFlags) && isProfileRunning()) {
+        getLog()
+            .info(
+                "minikube profile "
+                    + getProfile()
+                    + " is already running with the same flags, skipping start");
+        return;
+      }
+
+      try (ClusterAdmission.Ticket ticket = admitClusterStart(minikubeCommand, maxHostFraction)) {
+        if (jsonProgress) {
+          MinikubeProgressReporter progressReporter =
+              new MinikubeProgressReporter(getMavenBuildLogger());
+          try {
+            runCommand(minikubeCommand, progressReporter);
+          } finally {
+            progressReporter.finish();
+          }
+        } else {
+          super.runMinikube(minikubeCommand);
+        }
+        if (ticket != null) {
+          ticket.started();
+        }
+      }
+    }
+  }
+
+  /**
+   * Unpauses the profile if it is in the warm pool and has the configuration its flags ask for. A
+   * paused cluster with another configuration is evicted, so that it is started again with the new
+   * one.
+   *
+   * @return true if the profile was unpaused
+   */
+  private boolean unpauseFromWarmPool(MinikubeStartState startState, List<String> allFlags)
+      throws IOException, InterruptedException {
+    String profile = getProfile();
+    WarmPool pool = newWarmPool();
+    if (pool.isExpired(profile)) {
+      evict(pool, profile);
+      return false;
+    }
+    if (!pool.isWarm(profile)) {
+      return false;
+    }
+    if (!startState.matches(allFlags)) {
+      getLog()
+          .info(
+              "minikube profile "
+                  + profile
+                  + " in the warm pool was started with other flags, starting it again");
+      evict(pool, profile);
+      return false;
+    }
+
+    try {
+      runCommand(Arrays.asList(getMinikube(), "unpause", "--profile=" + profile));
+    } catch (IOException ex) {
+      getLog()
+          .warn(
+              "Could not unpause minikube profile "
+                  + profile
+                  + ", starting it: "
+                  + ex.getMessage());
+      pool.remove(profile);
+      return false;
+    }
+    pool.remove(profile);
+    getLog().info("Unpaused minikube profile " + profile + " from the warm pool");
+    return true;
+  }
+
+  @Override
+  List<String> buildMinikubeCommand() {
+    List<String> minikubeCommand = super.buildMinikubeCommand();
+    if (autoSize) {
+      minikubeCommand.addAll(
+          HostResources.detect()
+              .getAutoClusterSize(getConcurrentProfiles(), maxHostFraction)
+              .getMissingFlags(minikubeCommand));
+    }
+    if (jsonProgress && !minikubeCommand.contains(JSON_OUTPUT_FLAG)) {
+      minikubeCommand.add(JSON_OUTPUT_FLAG);
+    }
+    return minikubeCommand;
+  }
+
+  @VisibleForTesting
+  void setJsonProgress(boolean jsonProgress) {
+    this.jsonProgress = jsonProgress;
+  }
+
+  @VisibleForTesting
+  void setMaxHostFraction(double maxHostFraction) {
+    this.maxHostFraction = maxHostFraction;
+  }
+
+  @VisibleForTesting
+  void setAutoSize(boolean autoSize) {
+    this.autoSize = autoSize;
+  }
+
   @Override
   String getDescription() {
     return "Starting minikube cluster";
@@ -16,15 +16,46 @@
 
 package com.google.cloud.tools.minikube.maven;
 
+import com.google.cloud.tools.minikube.command.ProfileLock;
 import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
-@Mojo(name = "stop")
-class StopMojo extends AbstractMinikubeMojo {
+@Mojo(name = "stop", threadSafe = true)
+class StopMojo extends AbstractClusterMojo {
 
   @Parameter private CommandConfiguration stop;
 
+  /**
+   * Stops the profile, so that a later {@code minikube:start} in the build starts it again. With
+   * the warm pool enabled, pauses it instead, and evicts the profiles paused for too long.
+   */
+  @Override
+  void runMinikube(List<String> minikubeCommand) throws IOException, InterruptedException {
+    if (!isWarmPoolEnabled()) {
+      getClusterCoordinator().stop(getProfile(), () -> super.runMinikube(minikubeCommand));
+      return;
+    }
+    getClusterCoordinator().pause(getProfile(), this::pauseMinikube);
+    evictIdleProfiles();
+  }
+
+  /**
+   * Pauses minikube and records it in the warm pool. Holds the profile lock throughout, so that a
+   * build starting the profile meanwhile sees it paused.
+   */
+  private void pauseMinikube() throws IOException, InterruptedException {
+    String profile = getProfile();
+    try (ProfileLock.Lease ignored = lockProfile("minikube pause")) {
+      runCommand(Arrays.asList(getMinikube(), "pause", "--profile=" + profile));
+      newWarmPool().markPaused(profile);
+    }
+    getLog().info("Paused minikube profile " + profile + " into the warm pool");
+  }
+
   @Override
   String getDescription() {
     return "Stopping minikube cluster";
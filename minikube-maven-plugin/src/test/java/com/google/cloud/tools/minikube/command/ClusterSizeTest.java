@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.command;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for {@link ClusterSize}. */
+public class ClusterSizeTest {
+
+  @Test
+  public void testFromArguments_default() {
+    ClusterSize clusterSize = ClusterSize.fromArguments(Collections.emptyList());
+
+    Assert.assertEquals(HostResources.DEFAULT_CLUSTER_CPUS, clusterSize.getCpus());
+    Assert.assertEquals(HostResources.DEFAULT_CLUSTER_MEMORY_MB, clusterSize.getMemoryMb());
+  }
+
+  @Test
+  public void testFromArguments_flags() {
+    ClusterSize clusterSize =
+        ClusterSize.fromArguments(
+            Arrays.asList("--cpus=2", "--memory", "4g", "--profile=other", "--cpus", "6"));
+
+    Assert.assertEquals(6, clusterSize.getCpus());
+    Assert.assertEquals(4096, clusterSize.getMemoryMb());
+  }
+
+  @Test
+  public void testFromArguments_invalid() {
+    ClusterSize clusterSize = ClusterSize.fromArguments(Arrays.asList("--cpus=max", "--memory=a"));
+
+    Assert.assertEquals(HostResources.DEFAULT_CLUSTER_CPUS, clusterSize.getCpus());
+    Assert.assertEquals(HostResources.DEFAULT_CLUSTER_MEMORY_MB, clusterSize.getMemoryMb());
+  }
+
+  @Test
+  public void testGetMissingFlags() {
+    ClusterSize clusterSize = new ClusterSize(4, 6144);
+
+    Assert.assertEquals(
+        Arrays.asList("--cpus=4", "--memory=6144mb"),
+        clusterSize.getMissingFlags(Collections.singletonList("--profile=dev")));
+    Assert.assertEquals(
+        Collections.singletonList("--memory=6144mb"),
+        clusterSize.getMissingFlags(Arrays.asList("--cpus", "2")));
+    Assert.assertEquals(
+        Collections.emptyList(),
+        clusterSize.getMissingFlags(Arrays.asList("--cpus=2", "--memory=2g")));
+  }
+
+  @Test
+  public void testParseMemoryMb() {
+    Assert.assertEquals(3000, ClusterSize.parseMemoryMb("3000"));
+    Assert.assertEquals(3000, ClusterSize.parseMemoryMb("3000mb"));
+    Assert.assertEquals(2048, ClusterSize.parseMemoryMb("2G"));
+    Assert.assertEquals(1536, ClusterSize.parseMemoryMb("1.5gb"));
+    Assert.assertEquals(1, ClusterSize.parseMemoryMb("512k"));
+    Assert.assertEquals(1024 * 1024, ClusterSize.parseMemoryMb("1t"));
+  }
+}
@@ -21,15 +21,25 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InOrder;
 import org.mockito.Mock;
@@ -40,6 +50,8 @@ import org.mockito.junit.MockitoJUnitRunner;
 @RunWith(MockitoJUnitRunner.class)
 public class CommandExecutorTest {
 
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private final List<String> command = Arrays.asList("someCommand", "someOption");
   private final List<String> expectedOutput =
       Arrays.asList("some output line 1", "some output line 2");
@@ -126,24 +138,70 @@ public class CommandExecutorTest {
   }
 
   @Test
-  public void testRun_withLogging_commandTimeout() throws InterruptedException, IOException {
-    // Mocks the ExecutorService to be interrupted when awaiting termination.
+  public void testRun_withLogging_commandTimeout()
+      throws InterruptedException, IOException, ExecutionException, TimeoutException {
+    // Mocks the ExecutorService to be interrupted when awaiting the output consumer.
     ExecutorService mockExecutorService = Mockito.mock(ExecutorService.class);
-    Mockito.when(
-            mockExecutorService.awaitTermination(CommandExecutor.TIMEOUT_SECONDS, TimeUnit.SECONDS))
+    Future<?> mockOutputConsumer = Mockito.mock(Future.class);
+    Mockito.doReturn(mockOutputConsumer)
+        .when(mockExecutorService)
+        .submit(Mockito.any(Runnable.class));
+    Mockito.when(mockOutputConsumer.get(CommandExecutor.TIMEOUT_SECONDS, TimeUnit.SECONDS))
         .thenThrow(new InterruptedException());
+    Mockito.when(mockProcess.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
 
     testCommandExecutor
-        .setExecutorServiceSupplier(() -> mockExecutorService)
+        .setExecutorService(mockExecutorService)
         .setLogger(mockBuildLogger)
         .run(command);
 
+    // The shared ExecutorService is not shut down.
+    Mockito.verify(mockExecutorService, Mockito.never()).shutdown();
+    Assert.assertTrue(Thread.interrupted());
+
     loggerInOrder.verify(mockBuildLogger).debug("Running command : someCommand someOption");
     loggerInOrder
         .verify(mockBuildLogger)
         .debug("Task Executor interrupted waiting for output consumer thread");
   }
 
+  @Test
+  public void testRun_withTimeout_success() throws IOException, InterruptedException {
+    setMockProcessOutput(expectedOutput);
+    Mockito.when(mockProcess.waitFor(Mockito.anyLong(), Mockito.any(TimeUnit.class)))
+        .thenReturn(true);
+
+    List<String> output = testCommandExecutor.setTimeout(Duration.ofSeconds(10)).run(command);
+
+    verifyProcessBuilding(command);
+    Assert.assertEquals(expectedOutput, output);
+    Mockito.verify(mockProcess).exitValue();
+  }
+
+  @Test
+  public void testRun_withTimeout_timedOut() throws IOException, InterruptedException {
+    setMockProcessOutput(expectedOutput);
+    Mockito.when(mockProcess.waitFor(Mockito.anyLong(), Mockito.any(TimeUnit.class)))
+        .thenReturn(false);
+
+    try {
+      testCommandExecutor.setTimeout(Duration.ofMillis(1)).setOutputTail(1, 1024).run(command);
+      Assert.fail("Expected an IOException to be thrown");
+
+    } catch (IOException ex) {
+      Assert.assertTrue(ex.getMessage(), ex.getMessage().startsWith("command timed out after "));
+      Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("(timeout 1 ms)"));
+      Assert.assertTrue(
+          ex.getMessage(),
+          ex.getMessage()
+              .contains(
+                  "destroyed 1 processes : someCommand someOption"
+                      + System.lineSeparator()
+                      + "some output line 2"));
+      Mockito.verify(mockProcess).destroyForcibly();
+    }
+  }
+
   @Test
   public void testRun_commandError() throws InterruptedException, IOException {
     setMockProcessOutput(expectedOutput);
@@ -162,7 +220,184 @@ public class CommandExecutorTest {
     }
   }
 
+  @Test
+  public void testRun_withOutputTail_success() throws IOException, InterruptedException {
+    setMockProcessOutput(
+        Arrays.asList("some output line 1", "some output line 2", "some output line 3"));
+
+    List<String> streamedOutput = new ArrayList<>();
+    List<String> output =
+        testCommandExecutor.setOutputTail(2, 1024).run(command, streamedOutput::add);
+
+    verifyProcessBuilding(command);
+    Assert.assertEquals(Arrays.asList("some output line 2", "some output line 3"), output);
+    Assert.assertEquals(
+        Arrays.asList("some output line 1", "some output line 2", "some output line 3"),
+        streamedOutput);
+  }
+
+  @Test
+  public void testRun_withOutputTail_commandError() throws InterruptedException, IOException {
+    setMockProcessOutput(
+        Arrays.asList("some output line 1", "some output line 2", "some output line 3"));
+
+    Mockito.when(mockProcess.waitFor()).thenReturn(1);
+
+    try {
+      testCommandExecutor.setOutputTail(1, 1024).run(command);
+      Assert.fail("Expected an IOException to be thrown");
+
+    } catch (IOException ex) {
+      Assert.assertEquals(
+          "command exited with non-zero exit code : 1"
+              + System.lineSeparator()
+              + "some output line 3",
+          ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testRunAsync_success() throws IOException, InterruptedException, ExecutionException {
+    setMockProcessOutput(expectedOutput);
+
+    List<String> streamedOutput = new ArrayList<>();
+    CompletableFuture<CommandResult> result =
+        testCommandExecutor.setLogger(mockBuildLogger).runAsync(command, streamedOutput::add);
+
+    Assert.assertEquals(expectedOutput, result.get().getOutput());
+    Assert.assertEquals(0, result.get().getExitCode());
+    Assert.assertEquals(expectedOutput, streamedOutput);
+
+    verifyProcessBuilding(command);
+    loggerInOrder
+        .verify(mockBuildLogger)
+        .debug("Running command asynchronously : someCommand someOption");
+    loggerInOrder.verify(mockBuildLogger).lifecycle("some output line 1");
+    loggerInOrder.verify(mockBuildLogger).lifecycle("some output line 2");
+  }
+
+  @Test
+  public void testRunAsync_commandError() throws IOException, InterruptedException {
+    setMockProcessOutput(expectedOutput);
+
+    Mockito.when(mockProcess.waitFor()).thenReturn(1);
+
+    CompletableFuture<CommandResult> result = testCommandExecutor.runAsync(command, line -> {});
+
+    try {
+      result.get();
+      Assert.fail("Expected the future to complete with an IOException");
+
+    } catch (ExecutionException ex) {
+      Assert.assertTrue(ex.getCause() instanceof IOException);
+      Assert.assertEquals("command exited with non-zero exit code : 1", ex.getCause().getMessage());
+    }
+  }
+
   /** Has the mocked process output the expected output. */
+  @Test
+  public void testRun_profileLockOnlyForMinikube() throws IOException, InterruptedException {
+    setMockProcessOutput(expectedOutput);
+    Path lockDirectory = temporaryFolder.getRoot().toPath().resolve("locks");
+    testCommandExecutor.setMinikube("minikube").setProfileLockDirectory(lockDirectory);
+
+    // Another executable with a subcommand of the same name does not lock the default profile.
+    testCommandExecutor.run(Arrays.asList("docker", "start"));
+    Assert.assertFalse(Files.exists(lockDirectory));
+
+    testCommandExecutor.run(Arrays.asList("minikube", "start"));
+    Assert.assertTrue(Files.exists(lockDirectory.resolve("minikube.lock")));
+  }
+
+  @Test
+  public void testRun_outputConsumerFailed() throws IOException, InterruptedException {
+    setMockProcessOutput(expectedOutput);
+    IllegalStateException consumerFailure = new IllegalStateException("bad line");
+
+    try {
+      testCommandExecutor.run(
+          command,
+          line -> {
+            throw consumerFailure;
+          });
+      Assert.fail("Expected the consumer failure to be thrown");
+
+    } catch (IllegalStateException ex) {
+      Assert.assertSame(consumerFailure, ex);
+    }
+  }
+
+  @Test
+  public void testRunAsync_outputConsumerFailed()
+      throws IOException, InterruptedException, TimeoutException {
+    setMockProcessOutput(expectedOutput);
+    IllegalStateException consumerFailure = new IllegalStateException("bad line");
+
+    CompletableFuture<CommandResult> result =
+        testCommandExecutor.runAsync(
+            command,
+            line -> {
+              throw consumerFailure;
+            });
+
+    try {
+      result.get(CommandExecutor.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      Assert.fail("Expected the future to complete with the consumer failure");
+
+    } catch (ExecutionException ex) {
+      Assert.assertSame(consumerFailure, ex.getCause());
+    }
+  }
+
+  @Test
+  public void testRunAsync_recordFailed()
+      throws IOException, InterruptedException, TimeoutException {
+    setMockProcessOutput(expectedOutput);
+    IllegalStateException recordFailure = new IllegalStateException("record failed");
+    CommandMetrics mockCommandMetrics = Mockito.mock(CommandMetrics.class);
+    Mockito.doThrow(recordFailure)
+        .when(mockCommandMetrics)
+        .record(Mockito.any(CommandMetric.class));
+
+    CompletableFuture<CommandResult> result =
+        testCommandExecutor.setCommandMetrics(mockCommandMetrics).runAsync(command, line -> {});
+
+    try {
+      result.get(CommandExecutor.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      Assert.fail("Expected the future to complete with the record failure");
+
+    } catch (ExecutionException ex) {
+      Assert.assertSame(recordFailure, ex.getCause());
+    }
+  }
+
+  @Test
+  public void testRun_buildTrace() throws IOException, InterruptedException {
+    List<String> minikubeCommand = Arrays.asList("/usr/local/bin/minikube", "start");
+    setMockProcessOutput(
+        Arrays.asList("Starting VM...", "some output line", "Setting up certs...", "Done."));
+
+    BuildTrace buildTrace = new BuildTrace("test");
+    testCommandExecutor.setBuildTrace(buildTrace).run(minikubeCommand);
+
+    List<BuildTrace.Span> spans = buildTrace.getSpans();
+    Assert.assertEquals(3, spans.size());
+    BuildTrace.Span commandSpan = spans.get(0);
+    Assert.assertEquals("minikube start", commandSpan.getName());
+    Assert.assertEquals("command", commandSpan.getCategory());
+    Assert.assertEquals(Thread.currentThread().getName(), commandSpan.getThreadName());
+    Assert.assertEquals("/usr/local/bin/minikube start", commandSpan.getArgs().get("command"));
+    Assert.assertEquals("0", commandSpan.getArgs().get("exitCode"));
+
+    BuildTrace.Span vmPhase = spans.get(1);
+    BuildTrace.Span certsPhase = spans.get(2);
+    Assert.assertEquals("Starting VM", vmPhase.getName());
+    Assert.assertEquals("Setting up certs", certsPhase.getName());
+    Assert.assertTrue(commandSpan.getStartNanoTime() <= vmPhase.getStartNanoTime());
+    Assert.assertEquals(certsPhase.getStartNanoTime(), vmPhase.getEndNanoTime());
+    Assert.assertEquals(commandSpan.getEndNanoTime(), certsPhase.getEndNanoTime());
+  }
+
   private void setMockProcessOutput(List<String> expectedOutput) {
     Mockito.when(mockProcess.getInputStream())
         .thenReturn(
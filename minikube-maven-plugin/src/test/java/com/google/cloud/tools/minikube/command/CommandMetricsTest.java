@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.command;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for {@link CommandMetrics}. */
+public class CommandMetricsTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testToJson() {
+    Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    phaseNanos.put("Starting VM", 1_500_000_000L);
+    phaseNanos.put("Setting up certs", 250_000L);
+    CommandMetrics commandMetrics = new CommandMetrics();
+    commandMetrics.record(
+        new CommandMetric(
+            Arrays.asList("minikube", "start", "--extra-config=\"a\\b\""),
+            1500000000000L,
+            1_250_000,
+            2_000_000_000,
+            0,
+            3,
+            120,
+            500_000,
+            phaseNanos));
+    commandMetrics.record(
+        new CommandMetric(
+            Arrays.asList("minikube", "stop"),
+            1500000002000L,
+            1_000_000,
+            5_000_000,
+            null,
+            0,
+            0,
+            -1,
+            Collections.emptyMap()));
+
+    Assert.assertEquals(
+        "{\n"
+            + "  \"commands\": [\n"
+            + "    {\"command\": [\"minikube\", \"start\", \"--extra-config=\\\"a\\\\b\\\"\"],"
+            + " \"startTimeMillis\": 1500000000000, \"spawnMillis\": 1.250,"
+            + " \"wallMillis\": 2000.000, \"exitCode\": 0, \"outputLines\": 3,"
+            + " \"outputBytes\": 120, \"firstOutputMillis\": 0.500,"
+            + " \"phaseMillis\": {\"Starting VM\": 1500.000, \"Setting up certs\": 0.250}},\n"
+            + "    {\"command\": [\"minikube\", \"stop\"], \"startTimeMillis\": 1500000002000,"
+            + " \"spawnMillis\": 1.000, \"wallMillis\": 5.000, \"exitCode\": null,"
+            + " \"outputLines\": 0, \"outputBytes\": 0, \"firstOutputMillis\": null,"
+            + " \"phaseMillis\": {}}\n"
+            + "  ],\n"
+            + "  \"lockWaits\": [\n"
+            + "  ],\n"
+            + "  \"admissionWaits\": [\n"
+            + "  ]\n"
+            + "}\n",
+        commandMetrics.toJson());
+  }
+
+  @Test
+  public void testToJson_lockWaits() throws IOException, InterruptedException {
+    CommandMetrics commandMetrics = new CommandMetrics();
+    try (ProfileLock.Lease lease =
+        ProfileLock.get(temporaryFolder.getRoot().toPath(), "minikube")
+            .lock(true, "minikube status", ignored -> {})) {
+      commandMetrics.recordLockWait(lease);
+
+      String json = commandMetrics.toJson();
+      Assert.assertTrue(
+          json,
+          json.contains(
+              "  \"lockWaits\": [\n    {\"profile\": \"minikube\", \"shared\": true,"
+                  + " \"holder\": \"minikube status\", \"startTimeMillis\": "
+                  + lease.getStartTimeMillis()
+                  + ", \"waitMillis\": "));
+    }
+  }
+
+  @Test
+  public void testToJson_admissionWaits() throws InterruptedException {
+    CommandMetrics commandMetrics = new CommandMetrics();
+    try (ClusterAdmission.Ticket ticket =
+        new ClusterAdmission(new HostResources(8, 16 * 1024))
+            .admit("minikube", new ClusterSize(4, 8192), 0.75, (cpus, memoryMb) -> {})) {
+      commandMetrics.recordAdmissionWait(ticket);
+
+      String json = commandMetrics.toJson();
+      Assert.assertTrue(
+          json,
+          json.contains(
+              "  \"admissionWaits\": [\n    {\"profile\": \"minikube\", \"cpus\": 4,"
+                  + " \"memoryMb\": 8192, \"startTimeMillis\": "
+                  + ticket.getStartTimeMillis()
+                  + ", \"waitMillis\": "));
+      Assert.assertTrue(json, json.contains("\"overcommitted\": false}"));
+    }
+  }
+
+  @Test
+  public void testToJson_empty() {
+    Assert.assertEquals(
+        "{\n  \"commands\": [\n  ],\n  \"lockWaits\": [\n  ],\n  \"admissionWaits\": [\n  ]\n}\n",
+        new CommandMetrics().toJson());
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for {@link DockerEnvCache}. */
+public class DockerEnvCacheTest {
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private Path configJson;
+  private Path minikubeBinary;
+  private Map<String, String> dockerEnv;
+
+  @Before
+  public void setUp() throws IOException {
+    configJson = tmp.newFile("config.json").toPath();
+    Files.write(configJson, "{\"Name\": \"minikube\"}".getBytes(StandardCharsets.UTF_8));
+    minikubeBinary = tmp.newFile("minikube").toPath();
+    Files.write(minikubeBinary, "binary".getBytes(StandardCharsets.UTF_8));
+
+    dockerEnv = new HashMap<>();
+    dockerEnv.put("DOCKER_HOST", "tcp://192.168.99.100:2376");
+    dockerEnv.put("DOCKER_CERT_PATH", "/home/user/.minikube/certs");
+  }
+
+  @Test
+  public void testFingerprint_missingFiles() throws IOException {
+    Assert.assertNull(DockerEnvCache.fingerprint(configJson, null));
+    Assert.assertNull(
+        DockerEnvCache.fingerprint(tmp.getRoot().toPath().resolve("x"), minikubeBinary));
+    Assert.assertNotNull(DockerEnvCache.fingerprint(configJson, minikubeBinary));
+  }
+
+  @Test
+  public void testFingerprint_changesWithConfig() throws IOException {
+    String fingerprint = DockerEnvCache.fingerprint(configJson, minikubeBinary);
+    Assert.assertEquals(fingerprint, DockerEnvCache.fingerprint(configJson, minikubeBinary));
+
+    FileTime lastModified = Files.getLastModifiedTime(configJson);
+    Files.write(configJson, "{\"Name\": \"changed\"}".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(configJson, lastModified);
+    Assert.assertNotEquals(fingerprint, DockerEnvCache.fingerprint(configJson, minikubeBinary));
+  }
+
+  @Test
+  public void testGetAndPut() throws IOException {
+    DockerEnvCache dockerEnvCache = new DockerEnvCache(tmp.getRoot().toPath().resolve("cache"));
+    String fingerprint = DockerEnvCache.fingerprint(configJson, minikubeBinary);
+
+    Assert.assertNull(dockerEnvCache.get("minikube", fingerprint));
+
+    dockerEnvCache.put("minikube", fingerprint, dockerEnv);
+
+    Assert.assertEquals(dockerEnv, dockerEnvCache.get("minikube", fingerprint));
+    Assert.assertNull(dockerEnvCache.get("minikube", fingerprint + "changed"));
+    Assert.assertNull(dockerEnvCache.get("other", fingerprint));
+    Assert.assertNull(dockerEnvCache.get("minikube", null));
+  }
+
+  @Test
+  public void testPut_nullFingerprint() throws IOException {
+    Path cacheDirectory = tmp.getRoot().toPath().resolve("cache");
+    new DockerEnvCache(cacheDirectory).put("minikube", null, dockerEnv);
+
+    Assert.assertFalse(Files.exists(cacheDirectory));
+  }
+
+  @Test
+  public void testFindExecutable() throws IOException {
+    Assert.assertTrue(minikubeBinary.toFile().setExecutable(true));
+    String path = tmp.newFolder().toString() + File.pathSeparator + tmp.getRoot().toString();
+
+    Assert.assertEquals(minikubeBinary, DockerEnvCache.findExecutable("minikube", path));
+    Assert.assertNull(DockerEnvCache.findExecutable("minikube", null));
+    Assert.assertNull(DockerEnvCache.findExecutable("other", path));
+    Assert.assertEquals(
+        minikubeBinary, DockerEnvCache.findExecutable(minikubeBinary.toString(), null));
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.command;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for {@link HostResources}. */
+public class HostResourcesTest {
+
+  @Test
+  public void testGetMaxConcurrentClusters_cpuBound() {
+    Assert.assertEquals(4, new HostResources(8, 64 * 1024).getMaxConcurrentClusters());
+  }
+
+  @Test
+  public void testGetMaxConcurrentClusters_memoryBound() {
+    // 3/4 of 16 GB fits six 2 GB clusters.
+    Assert.assertEquals(6, new HostResources(32, 16 * 1024).getMaxConcurrentClusters());
+    Assert.assertEquals(3, new HostResources(32, 16 * 1024).getMaxConcurrentClusters(4, 4096));
+  }
+
+  @Test
+  public void testGetMaxConcurrentClusters_atLeastOne() {
+    Assert.assertEquals(1, new HostResources(1, 1024).getMaxConcurrentClusters());
+  }
+
+  @Test
+  public void testGetMaxConcurrentClusters_unknownMemory() {
+    Assert.assertEquals(8, new HostResources(16, -1).getMaxConcurrentClusters());
+  }
+
+  @Test
+  public void testGetAutoClusterSize_shared() {
+    // 3/4 of 16 CPUs and 32 GB, shared by three clusters.
+    ClusterSize clusterSize = new HostResources(16, 32 * 1024).getAutoClusterSize(3, 0.75);
+
+    Assert.assertEquals(4, clusterSize.getCpus());
+    Assert.assertEquals(8192, clusterSize.getMemoryMb());
+  }
+
+  @Test
+  public void testGetAutoClusterSize_floor() {
+    ClusterSize clusterSize = new HostResources(2, 4096).getAutoClusterSize(4, 0.75);
+
+    Assert.assertEquals(HostResources.MIN_AUTO_CLUSTER_SIZE.getCpus(), clusterSize.getCpus());
+    Assert.assertEquals(
+        HostResources.MIN_AUTO_CLUSTER_SIZE.getMemoryMb(), clusterSize.getMemoryMb());
+  }
+
+  @Test
+  public void testGetAutoClusterSize_ceiling() {
+    ClusterSize clusterSize = new HostResources(64, 256 * 1024).getAutoClusterSize(1, 0.75);
+
+    Assert.assertEquals(HostResources.MAX_AUTO_CLUSTER_SIZE.getCpus(), clusterSize.getCpus());
+    Assert.assertEquals(
+        HostResources.MAX_AUTO_CLUSTER_SIZE.getMemoryMb(), clusterSize.getMemoryMb());
+  }
+
+  @Test
+  public void testGetAutoClusterSize_unknownMemory() {
+    ClusterSize clusterSize = new HostResources(8, -1).getAutoClusterSize(1, 0.75);
+
+    Assert.assertEquals(6, clusterSize.getCpus());
+    Assert.assertEquals(HostResources.DEFAULT_CLUSTER_MEMORY_MB, clusterSize.getMemoryMb());
+  }
+
+  @Test
+  public void testDetect() {
+    HostResources hostResources = HostResources.detect();
+
+    Assert.assertEquals(Runtime.getRuntime().availableProcessors(), hostResources.getProcessors());
+    Assert.assertTrue(hostResources.getMaxConcurrentClusters() >= 1);
+  }
+}
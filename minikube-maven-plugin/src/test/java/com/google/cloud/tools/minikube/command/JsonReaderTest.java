@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.command;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for {@link JsonReader}. */
+public class JsonReaderTest {
+
+  @Test
+  public void testRead() {
+    Object value =
+        JsonReader.read(
+            " {\"name\": \"a\\\"b\\u0041\", \"cpus\": 2, \"memory\": -1.5e3,"
+                + " \"nodes\": [{}, []], \"running\": true, \"paused\": false, \"ip\": null} ");
+
+    Assert.assertTrue(value instanceof Map);
+    Map<?, ?> object = (Map<?, ?>) value;
+    Assert.assertEquals("a\"bA", object.get("name"));
+    Assert.assertEquals(new BigDecimal("2"), object.get("cpus"));
+    Assert.assertEquals(-1500, ((Number) object.get("memory")).intValue());
+    Assert.assertEquals(
+        Arrays.asList(Collections.emptyMap(), Collections.emptyList()), object.get("nodes"));
+    Assert.assertEquals(Boolean.TRUE, object.get("running"));
+    Assert.assertEquals(Boolean.FALSE, object.get("paused"));
+    Assert.assertTrue(object.containsKey("ip"));
+    Assert.assertNull(object.get("ip"));
+  }
+
+  @Test
+  public void testRead_invalid() {
+    for (String json :
+        Arrays.asList("", "{", "{\"a\" 1}", "{\"a\": 1,}", "[1 2]", "\"a", "tru", "1x", "{} {}")) {
+      try {
+        JsonReader.read(json);
+        Assert.fail("Expected an IllegalArgumentException to be thrown for " + json);
+      } catch (IllegalArgumentException ex) {
+        Assert.assertTrue(ex.getMessage().startsWith("Invalid JSON at index "));
+      }
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.command;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for {@link ProfileLock}. */
+public class ProfileLockTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path lockDirectory;
+  private ProfileLock profileLock;
+
+  @Before
+  public void setUp() {
+    lockDirectory = temporaryFolder.getRoot().toPath().resolve("locks");
+    profileLock = ProfileLock.get(lockDirectory, "minikube");
+  }
+
+  @Test
+  public void testGetLockDirectory() {
+    Path minikubeHome = temporaryFolder.getRoot().toPath();
+    Assert.assertEquals(
+        minikubeHome.resolve("build-tools-locks"), ProfileLock.getLockDirectory(minikubeHome));
+  }
+
+  @Test
+  public void testGet_samePerFile() {
+    Assert.assertSame(profileLock, ProfileLock.get(lockDirectory, "minikube"));
+    Assert.assertNotSame(profileLock, ProfileLock.get(lockDirectory, "other"));
+  }
+
+  @Test
+  public void testLock_exclusive() throws IOException, InterruptedException {
+    try (ProfileLock.Lease lease = profileLock.lock(false, "minikube start", this::failWaiting)) {
+      Assert.assertEquals("minikube", lease.getProfile());
+      Assert.assertFalse(lease.isShared());
+      Assert.assertEquals("minikube start", lease.getHolder());
+      Assert.assertNull(lease.getStaleHolder());
+      Assert.assertFalse(lease.isReentrant());
+      Assert.assertTrue(readLockFile().startsWith("minikube start in process "));
+    }
+
+    Assert.assertEquals("", readLockFile());
+  }
+
+  @Test
+  public void testLock_reentrant() throws IOException, InterruptedException {
+    try (ProfileLock.Lease ignored = profileLock.lock(false, "minikube start", this::failWaiting);
+        ProfileLock.Lease lease = profileLock.lock(true, "minikube status", this::failWaiting)) {
+      Assert.assertTrue(lease.isReentrant());
+      Assert.assertEquals(0, lease.getWaitNanos());
+    }
+  }
+
+  @Test
+  public void testLock_sharedTogether() throws IOException, InterruptedException {
+    try (ProfileLock.Lease first = profileLock.lock(true, "minikube status", this::failWaiting)) {
+      AtomicReference<ProfileLock.Lease> second = new AtomicReference<>();
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  second.set(profileLock.lock(true, "minikube docker-env", this::failWaiting));
+                } catch (IOException | InterruptedException ex) {
+                  throw new AssertionError(ex);
+                }
+              });
+      thread.start();
+      thread.join(10_000);
+
+      Assert.assertNotNull(second.get());
+      Assert.assertTrue(first.isShared());
+      second.get().close();
+    }
+  }
+
+  @Test
+  public void testLock_exclusiveWaits() throws IOException, InterruptedException {
+    CountDownLatch locked = new CountDownLatch(1);
+    AtomicReference<ProfileLock.Lease> waitingLease = new AtomicReference<>();
+    Thread thread;
+    try (ProfileLock.Lease ignored = profileLock.lock(true, "minikube status", this::failWaiting)) {
+      thread =
+          new Thread(
+              () -> {
+                try (ProfileLock.Lease lease =
+                    profileLock.lock(false, "minikube delete", this::failWaiting)) {
+                  waitingLease.set(lease);
+                  locked.countDown();
+                } catch (IOException | InterruptedException ex) {
+                  throw new AssertionError(ex);
+                }
+              });
+      thread.start();
+
+      Thread.sleep(200);
+      Assert.assertEquals(1, locked.getCount());
+    }
+    thread.join(10_000);
+
+    Assert.assertEquals(0, locked.getCount());
+    Assert.assertTrue(waitingLease.get().getWaitNanos() > 0);
+  }
+
+  @Test
+  public void testLock_staleHolder() throws IOException, InterruptedException {
+    Files.createDirectories(lockDirectory);
+    Files.write(
+        lockDirectory.resolve("minikube.lock"),
+        "minikube start in process 1@host since 2018-01-01T00:00:00Z"
+            .getBytes(StandardCharsets.UTF_8));
+
+    try (ProfileLock.Lease lease = profileLock.lock(false, "minikube delete", this::failWaiting)) {
+      Assert.assertEquals(
+          "minikube start in process 1@host since 2018-01-01T00:00:00Z", lease.getStaleHolder());
+    }
+    try (ProfileLock.Lease lease = profileLock.lock(false, "minikube start", this::failWaiting)) {
+      Assert.assertNull(lease.getStaleHolder());
+    }
+  }
+
+  private String readLockFile() throws IOException {
+    return new String(
+        Files.readAllBytes(lockDirectory.resolve("minikube.lock")), StandardCharsets.UTF_8);
+  }
+
+  private void failWaiting(String holder) {
+    Assert.fail("Should not have waited for another process holding " + holder);
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.maven;
+
+import com.google.cloud.tools.minikube.command.ClusterSize;
+import com.google.cloud.tools.minikube.command.CommandExecutor;
+import com.google.cloud.tools.minikube.command.HostResources;
+import com.google.cloud.tools.minikube.command.WarmPool;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/** Tests for {@link AbstractClusterMojo}. */
+@RunWith(MockitoJUnitRunner.class)
+public class AbstractClusterMojoTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Mock private CommandExecutor mockCommandExecutor;
+  @Mock private MavenBuildLogger mockMavenBuildLogger;
+
+  @Before
+  public void setUp() {
+    Mockito.when(mockCommandExecutor.setLogger(mockMavenBuildLogger))
+        .thenReturn(mockCommandExecutor);
+    Mockito.when(mockCommandExecutor.setOutputTail(Mockito.anyInt(), Mockito.anyLong()))
+        .thenReturn(mockCommandExecutor);
+  }
+
+  @Test
+  public void testExecute_startProfiles()
+      throws IOException, MojoExecutionException, InterruptedException {
+    StartMojo startMojo = configure(new StartMojo());
+
+    startMojo.execute();
+
+    Mockito.verify(mockCommandExecutor)
+        .run(
+            Arrays.asList("minikube", "start", "--kubernetes-version=v1.10.0", "--profile=k8s110"));
+    Mockito.verify(mockCommandExecutor).run(Arrays.asList("minikube", "start", "--profile=k8s111"));
+    Assert.assertTrue(startMojo.getClusterCoordinator().isStarted("k8s110"));
+    Assert.assertTrue(startMojo.getClusterCoordinator().isStarted("k8s111"));
+  }
+
+  @Test
+  public void testExecute_startProfilesAutoSize()
+      throws IOException, MojoExecutionException, InterruptedException {
+    StartMojo startMojo = configure(new StartMojo());
+    startMojo.setAutoSize(true);
+
+    startMojo.execute();
+
+    // The two profiles starting at once share the host.
+    ClusterSize clusterSize =
+        HostResources.detect().getAutoClusterSize(2, HostResources.DEFAULT_CLUSTER_FRACTION);
+    Mockito.verify(mockCommandExecutor)
+        .run(
+            Arrays.asList(
+                "minikube",
+                "start",
+                "--profile=k8s111",
+                "--cpus=" + clusterSize.getCpus(),
+                "--memory=" + clusterSize.getMemoryMb() + "mb"));
+  }
+
+  @Test
+  public void testExecute_stopProfilesWithoutStartFlags()
+      throws IOException, MojoExecutionException, InterruptedException {
+    configure(new StopMojo()).execute();
+
+    Mockito.verify(mockCommandExecutor).run(Arrays.asList("minikube", "stop", "--profile=k8s110"));
+    Mockito.verify(mockCommandExecutor).run(Arrays.asList("minikube", "stop", "--profile=k8s111"));
+  }
+
+  @Test
+  public void testExecute_stopProfilesIntoWarmPool()
+      throws IOException, MojoExecutionException, InterruptedException {
+    Path minikubeHome = createProfileDirectories("k8s110", "k8s111");
+    StopMojo stopMojo = configure(new StopMojo());
+    stopMojo.setWarmPool(true);
+
+    stopMojo.execute();
+
+    Mockito.verify(mockCommandExecutor).run(Arrays.asList("minikube", "pause", "--profile=k8s110"));
+    Mockito.verify(mockCommandExecutor).run(Arrays.asList("minikube", "pause", "--profile=k8s111"));
+    Mockito.verify(mockCommandExecutor, Mockito.never())
+        .run(Arrays.asList("minikube", "stop", "--profile=k8s110"));
+    WarmPool warmPool = new WarmPool(minikubeHome, Duration.ofHours(1));
+    Assert.assertTrue(warmPool.isWarm("k8s110"));
+    Assert.assertTrue(warmPool.isWarm("k8s111"));
+  }
+
+  @Test
+  public void testExecute_startProfilesFromWarmPool()
+      throws IOException, MojoExecutionException, InterruptedException {
+    Path minikubeHome = createProfileDirectories("k8s110", "k8s111");
+    // k8s111 has no configuration to compare its flags with.
+    Files.write(
+        minikubeHome.resolve("profiles/k8s110/config.json"),
+        "{\"KubernetesConfig\": {\"KubernetesVersion\": \"v1.10.0\"}}"
+            .getBytes(StandardCharsets.UTF_8));
+    WarmPool warmPool = new WarmPool(minikubeHome, Duration.ofHours(1));
+    warmPool.markPaused("k8s110");
+    warmPool.markPaused("k8s111");
+    StartMojo startMojo = configure(new StartMojo());
+    startMojo.setWarmPool(true);
+
+    startMojo.execute();
+
+    // Unpauses the profile with the configuration of its flags, and starts the other one again.
+    Mockito.verify(mockCommandExecutor)
+        .run(Arrays.asList("minikube", "unpause", "--profile=k8s110"));
+    Mockito.verify(mockCommandExecutor, Mockito.never())
+        .run(
+            Arrays.asList("minikube", "start", "--kubernetes-version=v1.10.0", "--profile=k8s110"));
+    Mockito.verify(mockCommandExecutor).run(Arrays.asList("minikube", "stop", "--profile=k8s111"));
+    Mockito.verify(mockCommandExecutor).run(Arrays.asList("minikube", "start", "--profile=k8s111"));
+    Assert.assertFalse(warmPool.isWarm("k8s110"));
+    Assert.assertFalse(warmPool.isWarm("k8s111"));
+  }
+
+  @Test
+  public void testExecute_startEvictsIdleProfiles()
+      throws IOException, MojoExecutionException, InterruptedException {
+    Path minikubeHome = createProfileDirectories("idle");
+    Files.write(
+        minikubeHome.resolve("profiles").resolve("idle").resolve("build-tools-paused"),
+        "0".getBytes(StandardCharsets.UTF_8));
+    StartMojo startMojo = configure(new StartMojo());
+    startMojo.setWarmPool(true);
+    startMojo.setWarmPoolEviction("delete");
+    // The mock takes no profile locks, so profiles started at once could both evict the idle one.
+    startMojo.setMaxConcurrentProfiles(1);
+
+    startMojo.execute();
+
+    Mockito.verify(mockCommandExecutor).run(Arrays.asList("minikube", "delete", "--profile=idle"));
+    Mockito.verify(mockCommandExecutor).run(Arrays.asList("minikube", "start", "--profile=k8s111"));
+    Assert.assertFalse(new WarmPool(minikubeHome, Duration.ofHours(1)).isExpired("idle"));
+  }
+
+  @Test
+  public void testExecute_unknownWarmPoolEviction() {
+    StopMojo stopMojo = configure(new StopMojo());
+    stopMojo.setWarmPool(true);
+    stopMojo.setWarmPoolEviction("pause");
+
+    try {
+      stopMojo.execute();
+      Assert.fail("execute() should have failed");
+
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals("warmPoolEviction must be stop or delete: pause", ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testExecute_failedProfiles() throws IOException, InterruptedException {
+    IOException expectedIOException = new IOException("no k8s111");
+    Mockito.when(mockCommandExecutor.run(Arrays.asList("minikube", "delete", "--profile=k8s111")))
+        .thenThrow(expectedIOException);
+
+    try {
+      configure(new DeleteMojo()).execute();
+      Assert.fail("execute() should have failed");
+
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals("Deleting minikube cluster failed for profiles k8s111", ex.getMessage());
+      Assert.assertSame(expectedIOException, ex.getCause());
+    }
+    Mockito.verify(mockCommandExecutor)
+        .run(Arrays.asList("minikube", "delete", "--profile=k8s110"));
+  }
+
+  @Test
+  public void testExecute_profileWithoutName() {
+    StopMojo stopMojo = configure(new StopMojo());
+    stopMojo.setProfiles(Arrays.asList(new ProfileConfiguration()));
+
+    try {
+      stopMojo.execute();
+      Assert.fail("execute() should have failed");
+
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals("Each of the <profiles> needs a <name>", ex.getMessage());
+    }
+  }
+
+  private Path createProfileDirectories(String... profiles) throws IOException {
+    Path minikubeHome = temporaryFolder.getRoot().toPath().resolve(".minikube");
+    for (String profile : profiles) {
+      Files.createDirectories(minikubeHome.resolve("profiles").resolve(profile));
+    }
+    return minikubeHome;
+  }
+
+  private <T extends AbstractClusterMojo> T configure(T clusterMojo) {
+    clusterMojo.setMinikube("minikube");
+    clusterMojo.setMinikubeHome(temporaryFolder.getRoot().toPath().resolve(".minikube"));
+    clusterMojo.setCommandExecutorSupplier(() -> mockCommandExecutor);
+    clusterMojo.setMavenBuildLogger(mockMavenBuildLogger);
+    clusterMojo.setProfiles(
+        Arrays.asList(
+            ProfileConfiguration.of("k8s110", "--kubernetes-version=v1.10.0"),
+            ProfileConfiguration.of("k8s111")));
+    clusterMojo.setMaxConcurrentProfiles(2);
+    return clusterMojo;
+  }
+}
@@ -19,6 +19,7 @@ package com.google.cloud.tools.minikube.maven;
 import com.google.cloud.tools.minikube.command.CommandExecutor;
 import com.google.common.collect.ImmutableList;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -44,6 +45,8 @@ public class AbstractMinikubeMojoTest {
   public void setUp() {
     Mockito.when(mockCommandExecutor.setLogger(Mockito.any(MavenBuildLogger.class)))
         .thenReturn(mockCommandExecutor);
+    Mockito.when(mockCommandExecutor.setOutputTail(Mockito.anyInt(), Mockito.anyLong()))
+        .thenReturn(mockCommandExecutor);
   }
 
   @Test
@@ -61,6 +64,22 @@ public class AbstractMinikubeMojoTest {
         spyAbstractMinikubeMojo.buildMinikubeCommand());
   }
 
+  @Test
+  public void testGetProfile() {
+    Mockito.when(spyAbstractMinikubeMojo.getMoreFlags()).thenReturn(ImmutableList.of());
+    Assert.assertEquals("minikube", spyAbstractMinikubeMojo.getProfile());
+
+    spyAbstractMinikubeMojo.setFlags(ImmutableList.of("--cpus=2", "--profile=first"));
+    Assert.assertEquals("first", spyAbstractMinikubeMojo.getProfile());
+
+    spyAbstractMinikubeMojo.setFlags(ImmutableList.of("--profile", "second"));
+    Assert.assertEquals("second", spyAbstractMinikubeMojo.getProfile());
+
+    spyAbstractMinikubeMojo.setFlags(ImmutableList.of("-p=first"));
+    Mockito.when(spyAbstractMinikubeMojo.getMoreFlags()).thenReturn(ImmutableList.of("-p", "last"));
+    Assert.assertEquals("last", spyAbstractMinikubeMojo.getProfile());
+  }
+
   @Test
   public void testExecute() throws IOException, MojoExecutionException, InterruptedException {
     List<String> minikubeCommand = Arrays.asList("some", "command");
@@ -75,6 +94,34 @@ public class AbstractMinikubeMojoTest {
     Mockito.verify(mockCommandExecutor).run(minikubeCommand);
   }
 
+  @Test
+  public void testExecute_withTimeout()
+      throws IOException, MojoExecutionException, InterruptedException {
+    List<String> minikubeCommand = Arrays.asList("some", "command");
+    Mockito.doReturn(minikubeCommand).when(spyAbstractMinikubeMojo).buildMinikubeCommand();
+
+    spyAbstractMinikubeMojo.setCommandExecutorSupplier(() -> mockCommandExecutor);
+    spyAbstractMinikubeMojo.setMavenBuildLogger(mockMavenBuildLogger);
+    spyAbstractMinikubeMojo.setTimeoutSeconds(30);
+
+    spyAbstractMinikubeMojo.execute();
+
+    Mockito.verify(mockCommandExecutor).setTimeout(Duration.ofSeconds(30));
+    Mockito.verify(mockCommandExecutor).run(minikubeCommand);
+  }
+
+  @Test
+  public void testIsProfileRunning_statusTimedOut() throws IOException, InterruptedException {
+    Mockito.when(spyAbstractMinikubeMojo.getMoreFlags()).thenReturn(ImmutableList.of());
+    spyAbstractMinikubeMojo.setMinikube("minikube");
+    spyAbstractMinikubeMojo.setCommandExecutorSupplier(() -> mockCommandExecutor);
+    Mockito.when(mockCommandExecutor.run("minikube", "status", "--profile=minikube"))
+        .thenThrow(new IOException("timed out"));
+
+    Assert.assertFalse(spyAbstractMinikubeMojo.isProfileRunning());
+    Mockito.verify(mockCommandExecutor).setTimeout(AbstractMinikubeMojo.STATUS_TIMEOUT);
+  }
+
   @Test
   public void testExecute_fail() throws IOException, InterruptedException {
     List<String> minikubeCommand = Arrays.asList("some", "command");
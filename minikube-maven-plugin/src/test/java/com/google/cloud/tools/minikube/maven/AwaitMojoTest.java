@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.maven;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/** Tests for {@link AwaitMojo}. */
+@RunWith(MockitoJUnitRunner.class)
+public class AwaitMojoTest {
+
+  @Mock private MavenSession mockMavenSession;
+
+  private final DefaultRepositorySystemSession repositorySession =
+      new DefaultRepositorySystemSession();
+  private final AwaitMojo awaitMojo = new AwaitMojo();
+
+  @Before
+  public void setUp() {
+    Mockito.when(mockMavenSession.getRepositorySession()).thenReturn(repositorySession);
+    awaitMojo.setSession(mockMavenSession);
+  }
+
+  @Test
+  public void testExecute_noSessionStart() throws MojoExecutionException {
+    awaitMojo.execute();
+  }
+
+  @Test
+  public void testExecute_started() throws MojoExecutionException {
+    repositorySession
+        .getData()
+        .set(
+            MinikubeLifecycleParticipant.SESSION_START_KEY,
+            CompletableFuture.completedFuture(null));
+
+    awaitMojo.execute();
+  }
+
+  @Test
+  public void testExecute_startFailed() {
+    IOException expectedIOException = new IOException();
+    CompletableFuture<Void> sessionStart = new CompletableFuture<>();
+    sessionStart.completeExceptionally(expectedIOException);
+    repositorySession.getData().set(MinikubeLifecycleParticipant.SESSION_START_KEY, sessionStart);
+
+    try {
+      awaitMojo.execute();
+      Assert.fail("execute() should have failed");
+
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals("Starting minikube in the background failed", ex.getMessage());
+      Assert.assertSame(expectedIOException, ex.getCause());
+    }
+  }
+}
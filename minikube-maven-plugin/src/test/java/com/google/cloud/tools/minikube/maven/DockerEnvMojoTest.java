@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.maven;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.apache.maven.it.VerificationException;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+/** Tests for {@link DockerEnvMojo}. */
+public class DockerEnvMojoTest {
+
+  @ClassRule public static final TestPlugin testPlugin = new TestPlugin();
+
+  @Rule public final TestProject testProject = new TestProject(testPlugin, "/projects/simple");
+
+  private MinikubeVerifier minikubeVerifier;
+
+  @Before
+  public void setUp() throws VerificationException, IOException, URISyntaxException {
+    minikubeVerifier = new MinikubeVerifier(testProject);
+  }
+
+  @Test
+  public void testExecute_withProject() throws VerificationException, IOException {
+    minikubeVerifier.verify("docker-env", "docker-env --shell=none");
+  }
+
+  @Test
+  public void testExecute_cached() throws VerificationException, IOException {
+    writeProfileConfig();
+
+    minikubeVerifier.verify(
+        Arrays.asList("start", "docker-env"), "status --profile=minikubedocker-env --shell=none");
+    // A later build starting the profile uses the cached environment without running fakeminikube.
+    minikubeVerifier.verify(
+        Arrays.asList("start", "docker-env"),
+        "status --profile=minikubedocker-env --shell=nonestatus --profile=minikube");
+  }
+
+  @Test
+  public void testExecute_notCachedAfterStop() throws VerificationException, IOException {
+    writeProfileConfig();
+
+    minikubeVerifier.verify(
+        Arrays.asList("start", "docker-env"), "status --profile=minikubedocker-env --shell=none");
+    // Stopping leaves the profile configuration, but the cluster no longer runs.
+    minikubeVerifier.verify(
+        Arrays.asList("start", "stop", "docker-env"),
+        "status --profile=minikubedocker-env --shell=nonestatus --profile=minikubestopdocker-env"
+            + " --shell=none");
+  }
+
+  /**
+   * Writes a profile configuration, which fakeminikube does not create like minikube does. As
+   * fakeminikube status always exits with 0, starting the profile is then up-to-date.
+   */
+  private void writeProfileConfig() throws IOException {
+    Path profileDirectory = minikubeVerifier.getMinikubeHome().resolve("profiles/minikube");
+    Files.createDirectories(profileDirectory);
+    Files.write(profileDirectory.resolve("config.json"), "{}".getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.maven;
+
+import com.google.cloud.tools.minikube.command.ClusterAdmission;
+import com.google.cloud.tools.minikube.command.ClusterSize;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/** Tests for {@link MinikubeClusterCoordinator}. */
+public class MinikubeClusterCoordinatorTest {
+
+  private final MinikubeClusterCoordinator clusterCoordinator = new MinikubeClusterCoordinator();
+  private final AtomicInteger starts = new AtomicInteger();
+  private final AtomicInteger stops = new AtomicInteger();
+
+  @Test
+  public void testGet_sharedBySession() {
+    MavenSession mockMavenSession = Mockito.mock(MavenSession.class);
+    Mockito.when(mockMavenSession.getRepositorySession())
+        .thenReturn(new DefaultRepositorySystemSession());
+
+    MinikubeClusterCoordinator sessionClusterCoordinator =
+        MinikubeClusterCoordinator.get(mockMavenSession);
+
+    Assert.assertSame(sessionClusterCoordinator, MinikubeClusterCoordinator.get(mockMavenSession));
+  }
+
+  @Test
+  public void testGet_startsSharedAcrossClassloaders() throws IOException, InterruptedException {
+    DefaultRepositorySystemSession repositorySession = new DefaultRepositorySystemSession();
+    MavenSession mockMavenSession = Mockito.mock(MavenSession.class);
+    Mockito.when(mockMavenSession.getRepositorySession()).thenReturn(repositorySession);
+    MinikubeClusterCoordinator sessionClusterCoordinator =
+        MinikubeClusterCoordinator.get(mockMavenSession);
+    sessionClusterCoordinator.start("minikube", starts::incrementAndGet);
+
+    // Another classloader finds no coordinator of its own class, and creates a new one.
+    repositorySession
+        .getData()
+        .set(MinikubeClusterCoordinator.class, sessionClusterCoordinator, null);
+    MinikubeClusterCoordinator otherClusterCoordinator =
+        MinikubeClusterCoordinator.get(mockMavenSession);
+
+    Assert.assertNotSame(sessionClusterCoordinator, otherClusterCoordinator);
+    Assert.assertTrue(otherClusterCoordinator.isStarted("minikube"));
+    Assert.assertFalse(otherClusterCoordinator.start("minikube", starts::incrementAndGet));
+    Assert.assertEquals(1, starts.get());
+  }
+
+  @Test
+  public void testStart_oncePerProfile() throws IOException, InterruptedException {
+    Assert.assertTrue(clusterCoordinator.start("minikube", starts::incrementAndGet));
+    Assert.assertFalse(clusterCoordinator.start("minikube", starts::incrementAndGet));
+    Assert.assertTrue(clusterCoordinator.start("other", starts::incrementAndGet));
+
+    Assert.assertEquals(2, starts.get());
+    Assert.assertTrue(clusterCoordinator.isStarted("minikube"));
+    Assert.assertTrue(clusterCoordinator.isStarted("other"));
+  }
+
+  @Test
+  public void testStart_concurrent() throws InterruptedException {
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] =
+          new Thread(
+              () -> {
+                try {
+                  clusterCoordinator.start("minikube", starts::incrementAndGet);
+                } catch (IOException | InterruptedException ex) {
+                  throw new AssertionError(ex);
+                }
+              });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals(1, starts.get());
+  }
+
+  @Test
+  public void testStart_againAfterFailure() throws IOException, InterruptedException {
+    IOException startFailure = new IOException("start failed");
+    try {
+      clusterCoordinator.start(
+          "minikube",
+          () -> {
+            throw startFailure;
+          });
+      Assert.fail("start() should have failed");
+
+    } catch (IOException ex) {
+      Assert.assertSame(startFailure, ex);
+    }
+
+    Assert.assertFalse(clusterCoordinator.isStarted("minikube"));
+    Assert.assertTrue(clusterCoordinator.start("minikube", starts::incrementAndGet));
+    Assert.assertEquals(1, starts.get());
+  }
+
+  @Test
+  public void testStop_startsAgain() throws IOException, InterruptedException {
+    clusterCoordinator.start("minikube", starts::incrementAndGet);
+    clusterCoordinator.stop("minikube", stops::incrementAndGet);
+
+    Assert.assertFalse(clusterCoordinator.isStarted("minikube"));
+    Assert.assertTrue(clusterCoordinator.start("minikube", starts::incrementAndGet));
+    Assert.assertEquals(2, starts.get());
+    Assert.assertEquals(1, stops.get());
+  }
+
+  @Test
+  public void testStop_releasesClusterResources() throws IOException, InterruptedException {
+    try (ClusterAdmission.Ticket ticket =
+        clusterCoordinator
+            .getClusterAdmission()
+            .admit("minikube", new ClusterSize(2, 2048), 1, (cpus, memoryMb) -> {})) {
+      ticket.started();
+    }
+    Assert.assertEquals(2, clusterCoordinator.getClusterAdmission().getCommittedCpus());
+
+    clusterCoordinator.stop("minikube", stops::incrementAndGet);
+
+    Assert.assertEquals(0, clusterCoordinator.getClusterAdmission().getCommittedCpus());
+  }
+
+  @Test
+  public void testPause_keepsClusterResources() throws IOException, InterruptedException {
+    clusterCoordinator.start("minikube", starts::incrementAndGet);
+    try (ClusterAdmission.Ticket ticket =
+        clusterCoordinator
+            .getClusterAdmission()
+            .admit("minikube", new ClusterSize(2, 2048), 1, (cpus, memoryMb) -> {})) {
+      ticket.started();
+    }
+
+    clusterCoordinator.pause("minikube", stops::incrementAndGet);
+
+    Assert.assertFalse(clusterCoordinator.isStarted("minikube"));
+    Assert.assertEquals(2, clusterCoordinator.getClusterAdmission().getCommittedCpus());
+  }
+}
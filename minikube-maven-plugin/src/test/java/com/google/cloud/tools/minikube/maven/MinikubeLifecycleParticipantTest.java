@@ -0,0 +1,238 @@
+/*
+ * Copyright 2018 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.minikube.maven;
+
+import com.google.cloud.tools.minikube.command.ClusterSize;
+import com.google.cloud.tools.minikube.command.CommandExecutor;
+import com.google.cloud.tools.minikube.command.HostResources;
+import com.google.cloud.tools.minikube.command.ProfileLock;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/** Tests for {@link MinikubeLifecycleParticipant}. */
+@RunWith(MockitoJUnitRunner.class)
+public class MinikubeLifecycleParticipantTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Mock private Logger mockLogger;
+  @Mock private MavenSession mockMavenSession;
+  @Mock private CommandExecutor mockCommandExecutor;
+  @Mock private MavenBuildLogger mockMavenBuildLogger;
+
+  private final Properties userProperties = new Properties();
+  private Path minikubeHome;
+  private MinikubeLifecycleParticipant minikubeLifecycleParticipant;
+
+  @Before
+  public void setUp() throws IOException {
+    Mockito.when(mockMavenSession.getUserProperties()).thenReturn(userProperties);
+    Mockito.when(mockMavenSession.getSystemProperties()).thenReturn(new Properties());
+    Mockito.when(mockMavenSession.getRepositorySession())
+        .thenReturn(new DefaultRepositorySystemSession());
+
+    minikubeLifecycleParticipant = new MinikubeLifecycleParticipant(mockLogger);
+    minikubeLifecycleParticipant.setBuildLogger(mockMavenBuildLogger);
+    minikubeHome = temporaryFolder.newFolder(".minikube").toPath();
+    minikubeLifecycleParticipant.setMinikubeHome(minikubeHome);
+    minikubeLifecycleParticipant.setCommandExecutorSupplier(() -> mockCommandExecutor);
+  }
+
+  @Test
+  public void testAfterSessionStart() throws Exception {
+    Mockito.when(mockCommandExecutor.setLogger(mockMavenBuildLogger))
+        .thenReturn(mockCommandExecutor);
+    userProperties.setProperty(MinikubeLifecycleParticipant.EXECUTABLE_PROPERTY, "/my/minikube");
+    userProperties.setProperty(MinikubeLifecycleParticipant.FLAGS_PROPERTY, " --cpus=2  -p dev ");
+
+    minikubeLifecycleParticipant.afterSessionStart(mockMavenSession);
+
+    CompletableFuture<?> sessionStart =
+        MinikubeLifecycleParticipant.getSessionStart(mockMavenSession);
+    Assert.assertNotNull(sessionStart);
+    sessionStart.get();
+    Mockito.verify(mockCommandExecutor)
+        .run(Arrays.asList("/my/minikube", "start", "--cpus=2", "-p", "dev"));
+
+    minikubeLifecycleParticipant.afterSessionEnd(mockMavenSession);
+
+    Mockito.verify(mockCommandExecutor).run(Arrays.asList("/my/minikube", "stop", "--profile=dev"));
+  }
+
+  @Test
+  public void testAfterProjectsRead_projectProperties() throws Exception {
+    Mockito.when(mockCommandExecutor.setLogger(mockMavenBuildLogger))
+        .thenReturn(mockCommandExecutor);
+    MavenProject mavenProject = new MavenProject();
+    mavenProject.getProperties().setProperty(MinikubeLifecycleParticipant.END_PROPERTY, "none");
+    mavenProject.getProperties().setProperty(MinikubeLifecycleParticipant.FLAGS_PROPERTY, "--a");
+    userProperties.setProperty(MinikubeLifecycleParticipant.END_PROPERTY, "delete");
+    Mockito.when(mockMavenSession.getTopLevelProject()).thenReturn(mavenProject);
+
+    minikubeLifecycleParticipant.afterProjectsRead(mockMavenSession);
+    minikubeLifecycleParticipant.afterSessionEnd(mockMavenSession);
+
+    Mockito.verify(mockCommandExecutor).run(Arrays.asList("minikube", "start", "--a"));
+    Mockito.verify(mockCommandExecutor)
+        .run(Arrays.asList("minikube", "delete", "--profile=minikube"));
+  }
+
+  @Test
+  public void testAfterProjectsRead_alreadyStarted() throws Exception {
+    Mockito.when(mockCommandExecutor.setLogger(mockMavenBuildLogger))
+        .thenReturn(mockCommandExecutor);
+    minikubeLifecycleParticipant.afterSessionStart(mockMavenSession);
+    minikubeLifecycleParticipant.afterProjectsRead(mockMavenSession);
+    minikubeLifecycleParticipant.afterSessionEnd(mockMavenSession);
+
+    Mockito.verify(mockCommandExecutor).run(Arrays.asList("minikube", "start"));
+    Mockito.verify(mockCommandExecutor)
+        .run(Arrays.asList("minikube", "stop", "--profile=minikube"));
+    Mockito.verify(mockCommandExecutor, Mockito.times(2)).setLogger(mockMavenBuildLogger);
+    verifyStartLocked(3);
+    Mockito.verifyNoMoreInteractions(mockCommandExecutor);
+  }
+
+  @Test
+  public void testAfterSessionEnd_alreadyDeleted() throws Exception {
+    Mockito.when(mockCommandExecutor.setLogger(mockMavenBuildLogger))
+        .thenReturn(mockCommandExecutor);
+    minikubeLifecycleParticipant.afterSessionStart(mockMavenSession);
+    MinikubeLifecycleParticipant.getSessionStart(mockMavenSession).get();
+    MinikubeClusterCoordinator.get(mockMavenSession).stop("minikube", () -> {});
+
+    minikubeLifecycleParticipant.afterSessionEnd(mockMavenSession);
+
+    Mockito.verify(mockCommandExecutor).setLogger(mockMavenBuildLogger);
+    Mockito.verify(mockCommandExecutor).run(Arrays.asList("minikube", "start"));
+    verifyStartLocked(2);
+    Mockito.verifyNoMoreInteractions(mockCommandExecutor);
+  }
+
+  @Test
+  public void testAfterSessionStart_skip() {
+    userProperties.setProperty(MinikubeLifecycleParticipant.SKIP_PROPERTY, "true");
+
+    minikubeLifecycleParticipant.afterSessionStart(mockMavenSession);
+    minikubeLifecycleParticipant.afterSessionEnd(mockMavenSession);
+
+    Assert.assertNull(MinikubeLifecycleParticipant.getSessionStart(mockMavenSession));
+    Mockito.verifyZeroInteractions(mockCommandExecutor);
+  }
+
+  @Test
+  public void testAfterSessionStart_failed() throws Exception {
+    Mockito.when(mockCommandExecutor.setLogger(mockMavenBuildLogger))
+        .thenReturn(mockCommandExecutor);
+    userProperties.setProperty(MinikubeLifecycleParticipant.END_PROPERTY, "none");
+    IOException expectedIOException = new IOException("no cluster");
+    Mockito.when(mockCommandExecutor.run(Arrays.asList("minikube", "start")))
+        .thenThrow(expectedIOException);
+
+    minikubeLifecycleParticipant.afterSessionStart(mockMavenSession);
+
+    try {
+      MinikubeLifecycleParticipant.getSessionStart(mockMavenSession).get();
+      Assert.fail("the session start should have failed");
+
+    } catch (ExecutionException ex) {
+      Assert.assertSame(expectedIOException, ex.getCause());
+    }
+    Mockito.verify(mockMavenBuildLogger)
+        .error("Starting minikube in the background failed: no cluster");
+
+    minikubeLifecycleParticipant.afterSessionEnd(mockMavenSession);
+
+    Mockito.verify(mockCommandExecutor).setLogger(mockMavenBuildLogger);
+    Mockito.verify(mockCommandExecutor).run(Arrays.asList("minikube", "start"));
+    verifyStartLocked(2);
+    Mockito.verifyNoMoreInteractions(mockCommandExecutor);
+  }
+
+  @Test
+  public void testAfterSessionStart_error() throws Exception {
+    Mockito.when(mockCommandExecutor.setLogger(mockMavenBuildLogger))
+        .thenReturn(mockCommandExecutor);
+    userProperties.setProperty(MinikubeLifecycleParticipant.END_PROPERTY, "none");
+    NoClassDefFoundError expectedError = new NoClassDefFoundError("missing");
+    Mockito.when(mockCommandExecutor.run(Arrays.asList("minikube", "start")))
+        .thenThrow(expectedError);
+
+    minikubeLifecycleParticipant.afterSessionStart(mockMavenSession);
+
+    try {
+      MinikubeLifecycleParticipant.getSessionStart(mockMavenSession).get(10, TimeUnit.SECONDS);
+      Assert.fail("the session start should have failed");
+
+    } catch (ExecutionException ex) {
+      Assert.assertSame(expectedError, ex.getCause());
+    }
+    AwaitMojo awaitMojo = new AwaitMojo();
+    awaitMojo.setSession(mockMavenSession);
+    try {
+      awaitMojo.execute();
+      Assert.fail("minikube:await should have failed");
+
+    } catch (MojoExecutionException ex) {
+      Assert.assertSame(expectedError, ex.getCause());
+    }
+    Mockito.verify(mockMavenBuildLogger)
+        .error("Starting minikube in the background failed: missing");
+
+    minikubeLifecycleParticipant.afterSessionEnd(mockMavenSession);
+
+    Mockito.verify(mockCommandExecutor).run(Arrays.asList("minikube", "start"));
+  }
+
+  /**
+   * Verifies that the start held the profile lock, with every executor locking the profiles of the
+   * minikube executable under the home, and was admitted by the cluster coordinator of the session.
+   */
+  private void verifyStartLocked(int commandExecutors) throws InterruptedException {
+    Mockito.verify(mockCommandExecutor, Mockito.times(commandExecutors)).setMinikube("minikube");
+    Mockito.verify(mockCommandExecutor, Mockito.times(commandExecutors))
+        .setProfileLockDirectory(ProfileLock.getLockDirectory(minikubeHome));
+    Mockito.verify(mockCommandExecutor).lockProfile("minikube", false, "minikube start");
+    Mockito.verify(mockCommandExecutor)
+        .setClusterAdmission(
+            MinikubeClusterCoordinator.get(mockMavenSession).getClusterAdmission());
+    Mockito.verify(mockCommandExecutor)
+        .admitClusterStart(
+            Mockito.eq("minikube"),
+            Mockito.any(ClusterSize.class),
+            Mockito.eq(HostResources.DEFAULT_CLUSTER_FRACTION));
+  }
+}
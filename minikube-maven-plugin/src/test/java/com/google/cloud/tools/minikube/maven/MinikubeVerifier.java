@@ -20,8 +20,11 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import org.apache.maven.it.VerificationException;
 import org.apache.maven.it.Verifier;
 import org.junit.Assert;
@@ -30,6 +33,8 @@ import org.junit.Assert;
 class MinikubeVerifier {
 
   private final Verifier verifier;
+  private final Path minikubeHome;
+  private final List<String> cliOptions = new ArrayList<>();
   private String profile;
 
   /** Sets up the a verifier on the {@link TestProject}. */
@@ -40,6 +45,15 @@ class MinikubeVerifier {
 
     verifier = new Verifier(testProject.getProjectRoot().toString());
     verifier.setAutoclean(false);
+
+    // Keeps minikube state out of the user's minikube home.
+    minikubeHome = testProject.getProjectRoot().resolve(".minikube");
+    verifier.setEnvironmentVariable("MINIKUBE_HOME", minikubeHome.toString());
+  }
+
+  /** @return the minikube home the goals run with */
+  Path getMinikubeHome() {
+    return minikubeHome;
   }
 
   /** Sets a profile to use. */
@@ -48,12 +62,35 @@ class MinikubeVerifier {
     return this;
   }
 
+  /** Adds a command line option to run the goals with. */
+  MinikubeVerifier addCliOption(String cliOption) {
+    cliOptions.add(cliOption);
+    return this;
+  }
+
+  /** Sets a system property to run the goals with. */
+  MinikubeVerifier setSystemProperty(String key, String value) {
+    verifier.getSystemProperties().setProperty(key, value);
+    return this;
+  }
+
   /** Verifies execution of the goal produces the correct fakeminikube output. */
   void verify(String goal, String expectedOutput) throws IOException, VerificationException {
+    verify(Collections.singletonList(goal), expectedOutput);
+  }
+
+  /** Verifies execution of the goals in one build produces the correct fakeminikube output. */
+  void verify(List<String> goals, String expectedOutput) throws IOException, VerificationException {
+    List<String> allCliOptions = new ArrayList<>(cliOptions);
     if (profile != null) {
-      verifier.setCliOptions(Collections.singletonList("-P" + profile));
+      allCliOptions.add("-P" + profile);
+    }
+    verifier.setCliOptions(allCliOptions);
+    List<String> minikubeGoals = new ArrayList<>();
+    for (String goal : goals) {
+      minikubeGoals.add("minikube:" + goal);
     }
-    verifier.executeGoal("minikube:" + goal);
+    verifier.executeGoals(minikubeGoals);
     verifier.verifyErrorFreeLog();
 
     String fakeMinikubeOutput =
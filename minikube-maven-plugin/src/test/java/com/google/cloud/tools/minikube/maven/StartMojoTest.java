@@ -18,6 +18,9 @@ package com.google.cloud.tools.minikube.maven;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import org.apache.maven.it.VerificationException;
 import org.junit.Before;
 import org.junit.ClassRule;
@@ -31,6 +34,10 @@ public class StartMojoTest {
 
   @Rule public final TestProject testProject = new TestProject(testPlugin, "/projects/simple");
 
+  @Rule
+  public final TestProject multiModuleTestProject =
+      new TestProject(testPlugin, "/projects/multimodule");
+
   private MinikubeVerifier minikubeVerifier;
 
   @Before
@@ -49,4 +56,37 @@ public class StartMojoTest {
         .setProfile("startFlags")
         .verify("start", "start someCommonFlag someStartFlag1 someStartFlag2");
   }
+
+  @Test
+  public void testExecute_withProject_jsonProgress() throws VerificationException, IOException {
+    minikubeVerifier
+        .setSystemProperty("minikube.jsonProgress", "true")
+        .verify("start", "start --output=json");
+  }
+
+  @Test
+  public void testExecute_withProject_profiles() throws VerificationException, IOException {
+    minikubeVerifier
+        .setProfile("minikubeProfiles")
+        .verify(
+            "start", "start --kubernetes-version=v1.10.0 --profile=k8s110start --profile=k8s111");
+  }
+
+  @Test
+  public void testExecute_multiModule_parallel()
+      throws VerificationException, IOException, URISyntaxException {
+    // The goal runs for the parent and both modules, but starts the profile once.
+    new MinikubeVerifier(multiModuleTestProject).addCliOption("-T3").verify("start", "start");
+  }
+
+  @Test
+  public void testExecute_alreadyRunningWithSameFlags() throws VerificationException, IOException {
+    minikubeVerifier.verify("start", "start");
+    // fakeminikube does not create the profile configuration like minikube does.
+    Path profileDirectory = minikubeVerifier.getMinikubeHome().resolve("profiles/minikube");
+    Files.createDirectories(profileDirectory);
+    Files.write(profileDirectory.resolve("config.json"), "{}".getBytes(StandardCharsets.UTF_8));
+    // fakeminikube status always exits with 0, so the second start is skipped.
+    minikubeVerifier.verify("start", "startstatus --profile=minikube");
+  }
 }